@@ -0,0 +1,140 @@
+package benchmarks;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import com.typesafe.config.ConfigFactory;
+import enums.ExecType;
+import enums.Instrument;
+import enums.Side;
+import messages.*;
+import org.openjdk.jmh.annotations.*;
+import ring.RingBuffer;
+import ring.RingMatchEngine;
+
+import java.util.Date;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// round trip latency of one request in the actor engine and in the ring-buffer engine, with the
+// workload of MatchEngineBenchmark. the benchmark thread waits for the reply with the rings' backoff in
+// both modes, so the difference is the mailbox and dispatcher against the rings and the engine's own thread
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineModeBenchmark {
+
+    static final int TRADER_ID = 1;
+    static final long MID_PRICE = 10_000;
+    static final Instrument INSTRUMENT = Instrument.BAG;
+
+    @Param({"actor", "ring"})
+    String mode;
+
+    @Param({"1000"})
+    int depth;
+
+    @Param({"10"})
+    int spread;
+
+    @Param({"0.5"})
+    double cancelRatio;
+
+    ActorSystem system;
+    ActorRef engine;
+    ActorRef client;
+    BlockingQueue<Object> completed;
+
+    RingMatchEngine ringEngine;
+    RingMatchEngine.Session session;
+    RingBuffer.Handler<Response> ringHandler;
+    boolean ringCompleted;
+
+    MatchEngineBenchmark.LiveOrders liveOrders;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        liveOrders = new MatchEngineBenchmark.LiveOrders();
+        random = new SplittableRandom(42);
+        if (mode.equals("actor")) {
+            system = ActorSystem.create("benchmark", ConfigFactory.parseString("akka.loglevel = WARNING"));
+            // the engine lives in the default package
+            engine = system.actorOf(Props.create(Class.forName("MatchEngine")));
+            completed = new LinkedBlockingQueue<>();
+            client = system.actorOf(Props.create(MatchEngineBenchmark.Client.class, liveOrders, completed));
+        } else {
+            ringEngine = new RingMatchEngine(1024, 64, null);
+            ringEngine.start();
+            session = ringEngine.connect(1024);
+            ringHandler = (response, sequence, endOfBatch) -> {
+                if (response instanceof ExecReportResponse) {
+                    ExecReportResponse report = (ExecReportResponse) response;
+                    if (report.getExecType() == ExecType.REJECTED) {
+                        ringCompleted = true;
+                    } else if (report.getExecType() == ExecType.ADD) {
+                        liveOrders.add(report.getOrderID());
+                    } else if (report.getExecType() == ExecType.REMOVE) {
+                        liveOrders.remove(report.getOrderID());
+                    }
+                } else if (response instanceof TransactionComplete) {
+                    ringCompleted = true;
+                }
+            };
+        }
+
+        //resting orders that don't cross
+        for (int i = 0; i < depth; i++) {
+            send(newOrderRequest(Side.BIDS, MID_PRICE - 1 - random.nextInt(spread)));
+            send(newOrderRequest(Side.OFFERS, MID_PRICE + 1 + random.nextInt(spread)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        if (system != null) {
+            system.terminate();
+            system.getWhenTerminated().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        } else {
+            ringEngine.close();
+        }
+    }
+
+    @Benchmark
+    public Object request() {
+        if (liveOrders.size() > 0 && random.nextDouble() < cancelRatio) {
+            return send(new CancelOrderRequest(liveOrders.get(random.nextInt(liveOrders.size())), TRADER_ID));
+        }
+        Side side = random.nextBoolean() ? Side.BIDS : Side.OFFERS;
+        return send(newOrderRequest(side, MID_PRICE - spread + random.nextInt(2 * spread + 1)));
+    }
+
+    private Object send(Request request) {
+        if (session == null) {
+            engine.tell(request, client);
+            Object completion;
+            for (int attempt = 0; (completion = completed.poll()) == null; attempt++) {
+                RingBuffer.idle(attempt);
+            }
+            return completion;
+        }
+        ringCompleted = false;
+        session.send(request);
+        for (int attempt = 0; !ringCompleted; ) {
+            if (session.poll(ringHandler, 64) == 0) {
+                RingBuffer.idle(attempt++);
+            }
+        }
+        return request;
+    }
+
+    private NewOrderRequest newOrderRequest(Side side, long priceTicks) {
+        return new NewOrderRequest(side, INSTRUMENT, 1 + random.nextInt(10), INSTRUMENT.toPrice(priceTicks), new Date(), TRADER_ID);
+    }
+
+}
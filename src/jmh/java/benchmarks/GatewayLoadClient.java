@@ -0,0 +1,148 @@
+package benchmarks;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import com.typesafe.config.ConfigFactory;
+import enums.ExecType;
+import enums.Instrument;
+import enums.Side;
+import messages.*;
+import metrics.LatencyRecorder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// closed-loop load over the gateway's TCP protocol. every connection is one trader that repeatedly
+// places an order away from the market and cancels it, timing each request until its execution
+// report comes back. run with: gradle gatewayLoad [-Pgateway.args="<host:port|local> <connections> <requests per connection>"]
+// "local" starts an engine and a gateway in this JVM on a free loopback port
+public class GatewayLoadClient {
+
+    static final double BID_PRICE = 99;
+    static final double OFFER_PRICE = 101;
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "local";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int warmup = requests / 10;
+
+        ActorSystem system = null;
+        InetSocketAddress address;
+        if (target.equals("local")) {
+            system = ActorSystem.create("gateway-load", ConfigFactory.parseString("akka.loglevel = WARNING").withFallback(ConfigFactory.load()));
+            // the actors live in the default package, which can't be imported
+            ActorRef engine = system.actorOf(Props.create(Class.forName("MatchEngine")), "engine");
+            ActorRef gateway = system.actorOf(Props.create(Class.forName("Gateway"), engine,
+                    new InetSocketAddress("127.0.0.1", 0)), "gateway");
+            address = (InetSocketAddress) Patterns.ask(gateway, Class.forName("Gateway$GetLocalAddress").getConstructor().newInstance(),
+                    Duration.ofSeconds(5)).toCompletableFuture().get();
+        } else {
+            String[] hostPort = target.split(":");
+            address = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+        }
+
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            sessions.add(new Session(address, 1_000_000 + i, requests, warmup));
+        }
+        long start = System.nanoTime();
+        for (Session session : sessions) {
+            session.start();
+        }
+        LatencyRecorder latencies = new LatencyRecorder(connections * requests * 2);
+        for (Session session : sessions) {
+            session.join();
+            if (session.failure != null) throw session.failure;
+            latencies.add(session.latencies);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d connections, %d requests in %.2fs, %.0f requests/s%n",
+                connections, connections * requests * 2L, seconds, connections * requests * 2L / seconds);
+        System.out.println("round trip after warmup: " + latencies.summary());
+
+        if (system != null) {
+            system.terminate();
+        }
+    }
+
+    //one connection, one outstanding request at a time
+    static final class Session extends Thread {
+        final InetSocketAddress address;
+        final int traderID;
+        final int requests;
+        final int warmup;
+        final LatencyRecorder latencies;
+        final ByteBuffer out = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+        final ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        SocketChannel channel;
+        Exception failure;
+
+        Session(InetSocketAddress address, int traderID, int requests, int warmup) {
+            this.address = address;
+            this.traderID = traderID;
+            this.requests = requests;
+            this.warmup = warmup;
+            this.latencies = new LatencyRecorder(requests * 2);
+            in.flip();
+        }
+
+        @Override
+        public void run() {
+            try (SocketChannel channel = SocketChannel.open(address)) {
+                this.channel = channel;
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Side side = traderID % 2 == 0 ? Side.BIDS : Side.OFFERS;
+                double price = side == Side.BIDS ? BID_PRICE : OFFER_PRICE;
+                Instrument[] instruments = Instrument.values();
+                for (int i = 0; i < requests; i++) {
+                    Instrument instrument = instruments[i % instruments.length];
+                    long sent = System.nanoTime();
+                    ExecReportResponse added = roundTrip(new NewOrderRequest(side, instrument, 1, price, new Date(), traderID));
+                    long received = System.nanoTime();
+                    if (added.getExecType() != ExecType.ADD) throw new IllegalStateException("Order rejected: " + added);
+                    ExecReportResponse removed = roundTrip(new CancelOrderRequest(added.getOrderID(), traderID));
+                    long canceled = System.nanoTime();
+                    if (removed.getExecType() != ExecType.REMOVE) throw new IllegalStateException("Cancel rejected: " + removed);
+                    if (i >= warmup) {
+                        latencies.record(received - sent);
+                        latencies.record(canceled - received);
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        //sends the request and reads until its execution report, skipping TransactionComplete
+        ExecReportResponse roundTrip(Request request) throws IOException {
+            out.clear();
+            MessageCodec.encodeFrame(request, out);
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            while (true) {
+                Object message = MessageCodec.decodeFrame(in);
+                if (message == null) {
+                    in.compact();
+                    if (channel.read(in) < 0) throw new IOException("Gateway closed the connection");
+                    in.flip();
+                } else if (message instanceof ExecReportResponse && ((ExecReportResponse) message).getTraderID() == traderID) {
+                    return (ExecReportResponse) message;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import collections.IntObjectMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// order ID lookups and churn on a map holding `size` live orders, java.util.HashMap against IntObjectMap.
+// keys are handed out in sequence like order IDs, churn retires a random live one and adds the next
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntMapBenchmark {
+
+    static final Object ORDER = new Object();
+
+    @Param({"1000000"})
+    int size;
+
+    HashMap<Integer, Object> hashMap;
+    IntObjectMap<Object> intObjectMap;
+    int[] liveKeys;
+    int nextKey;
+    SplittableRandom random;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        hashMap = new HashMap<>();
+        intObjectMap = new IntObjectMap<>();
+        liveKeys = new int[size];
+        random = new SplittableRandom(42);
+        for (nextKey = 0; nextKey < size; nextKey++) {
+            liveKeys[nextKey] = nextKey;
+            hashMap.put(nextKey, ORDER);
+            intObjectMap.put(nextKey, ORDER);
+        }
+    }
+
+    @Benchmark
+    public Object hashMapGet() {
+        return hashMap.get(liveKeys[random.nextInt(size)]);
+    }
+
+    @Benchmark
+    public Object intObjectMapGet() {
+        return intObjectMap.get(liveKeys[random.nextInt(size)]);
+    }
+
+    @Benchmark
+    public Object hashMapChurn() {
+        int index = random.nextInt(size);
+        hashMap.remove(liveKeys[index]);
+        liveKeys[index] = nextKey;
+        return hashMap.put(nextKey++, ORDER);
+    }
+
+    @Benchmark
+    public Object intObjectMapChurn() {
+        int index = random.nextInt(size);
+        intObjectMap.remove(liveKeys[index]);
+        liveKeys[index] = nextKey;
+        return intObjectMap.put(nextKey++, ORDER);
+    }
+
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import enums.Instrument;
+import enums.Side;
+import journal.Journal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// cost of appending one record to the journal, syncing to disk every syncBatchSize records
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+
+    @Param({"1", "64", "1024"})
+    int syncBatchSize;
+
+    Path directory;
+    Journal journal;
+    int numOfOrderID;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("journal");
+        journal = new Journal(directory, 64 << 20, syncBatchSize);
+        numOfOrderID = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void teardown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void appendNewOrder() {
+        journal.appendNewOrder(numOfOrderID++, 1, Side.BIDS, Instrument.BAG, 10, 10_000);
+    }
+
+}
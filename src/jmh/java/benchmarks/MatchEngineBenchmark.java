@@ -0,0 +1,183 @@
+package benchmarks;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import collections.IntIntMap;
+import com.typesafe.config.ConfigFactory;
+import enums.ExecType;
+import enums.Instrument;
+import enums.Side;
+import messages.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// full request path: a request is told to the engine actor and the benchmark waits for
+// its TransactionComplete (or rejection). cancelRatio of the requests cancel a live order,
+// the rest are new orders around the mid price, some of which cross and trade
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchEngineBenchmark {
+
+    static final int TRADER_ID = 1;
+    static final long MID_PRICE = 10_000;
+    static final Instrument INSTRUMENT = Instrument.BAG;
+
+    @Param({"MatchEngine", "ShardedMatchEngine"})
+    String engineClass;
+
+    @Param({"100", "1000"})
+    int depth;
+
+    @Param({"10", "100"})
+    int spread;
+
+    @Param({"0.1", "0.5"})
+    double cancelRatio;
+
+    // compare with -p journal=false,true
+    @Param({"false"})
+    boolean journal;
+
+    // market data subscribers that drop everything they get, try -p subscribers=0,10,100
+    @Param({"0"})
+    int subscribers;
+
+    ActorSystem system;
+    ActorRef engine;
+    ActorRef client;
+    LiveOrders liveOrders;
+    BlockingQueue<Object> completed;
+    SplittableRandom random;
+    Path journalDirectory;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        journalDirectory = Files.createTempDirectory("journal");
+        system = ActorSystem.create("benchmark", ConfigFactory.parseString(
+                "akka.loglevel = WARNING\n" +
+                "engine.journal.enabled = " + journal + "\n" +
+                "engine.journal.directory = \"" + journalDirectory.toString().replace("\\", "/") + "\""));
+        // engines live in the default package
+        engine = system.actorOf(Props.create(Class.forName(engineClass)));
+        liveOrders = new LiveOrders();
+        completed = new LinkedBlockingQueue<>();
+        client = system.actorOf(Props.create(Client.class, liveOrders, completed));
+        random = new SplittableRandom(42);
+        for (int i = 0; i < subscribers; i++) {
+            system.actorOf(Props.create(Subscriber.class, engine, TRADER_ID + 1 + i));
+        }
+
+        //resting orders that don't cross
+        for (int i = 0; i < depth; i++) {
+            send(newOrderRequest(Side.BIDS, MID_PRICE - 1 - random.nextInt(spread)));
+            send(newOrderRequest(Side.OFFERS, MID_PRICE + 1 + random.nextInt(spread)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        system.terminate();
+        system.getWhenTerminated().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        try (Stream<Path> files = Files.walk(journalDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object request() throws InterruptedException {
+        if (liveOrders.size() > 0 && random.nextDouble() < cancelRatio) {
+            return send(new CancelOrderRequest(liveOrders.get(random.nextInt(liveOrders.size())), TRADER_ID));
+        }
+        Side side = random.nextBoolean() ? Side.BIDS : Side.OFFERS;
+        return send(newOrderRequest(side, MID_PRICE - spread + random.nextInt(2 * spread + 1)));
+    }
+
+    private Object send(Request request) throws InterruptedException {
+        engine.tell(request, client);
+        return completed.poll(10, TimeUnit.SECONDS);
+    }
+
+    private NewOrderRequest newOrderRequest(Side side, long priceTicks) {
+        return new NewOrderRequest(side, INSTRUMENT, 1 + random.nextInt(10), INSTRUMENT.toPrice(priceTicks), new Date(), TRADER_ID);
+    }
+
+    // order IDs of the client's resting orders, written by the client actor before it completes a request
+    static final class LiveOrders {
+        private final ArrayList<Integer> orderIDs = new ArrayList<>();
+        private final IntIntMap indexes = new IntIntMap(-1);
+
+        int size() {
+            return orderIDs.size();
+        }
+
+        int get(int index) {
+            return orderIDs.get(index);
+        }
+
+        void add(int orderID) {
+            indexes.put(orderID, orderIDs.size());
+            orderIDs.add(orderID);
+        }
+
+        void remove(int orderID) {
+            int index = indexes.remove(orderID);
+            if (index == -1) return;
+            int last = orderIDs.remove(orderIDs.size() - 1);
+            if (index < orderIDs.size()) {
+                orderIDs.set(index, last);
+                indexes.put(last, index);
+            }
+        }
+    }
+
+    static final class Subscriber extends AbstractActor {
+        public Subscriber(ActorRef engine, int traderID) {
+            engine.tell(new SubscriptionRequest(traderID), getSelf());
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder().matchAny(m -> {
+            }).build();
+        }
+    }
+
+    static final class Client extends AbstractActor {
+        private final LiveOrders liveOrders;
+        private final BlockingQueue<Object> completed;
+
+        public Client(LiveOrders liveOrders, BlockingQueue<Object> completed) {
+            this.liveOrders = liveOrders;
+            this.completed = completed;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder().match(ExecReportResponse.class, response -> {
+                if (response.getExecType() == ExecType.REJECTED) {
+                    completed.add(response);
+                } else if (response.getExecType() == ExecType.ADD) {
+                    liveOrders.add(response.getOrderID());
+                } else if (response.getExecType() == ExecType.REMOVE) {
+                    liveOrders.remove(response.getOrderID());
+                }
+            }).match(TransactionComplete.class, completed::add
+            ).matchAny(m -> {
+            }).build();
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import enums.ExecType;
+import enums.Instrument;
+import enums.Side;
+import enums.Status;
+import messages.ExecReportResponse;
+import messages.MessageCodec;
+import messages.NewOrderRequest;
+import order.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// encode and decode of one message, MessageCodec against java serialization
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageCodecBenchmark {
+
+    NewOrderRequest newOrderRequest;
+    ExecReportResponse execReportResponse;
+    ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        newOrderRequest = new NewOrderRequest(Side.BIDS, Instrument.TV, 5, 12.3, new Date(), 1);
+        Order order = new Order(1, 42, Side.BIDS, Instrument.TV);
+        order.setQuantity(5);
+        order.setPrice(123);
+        order.setStatus(Status.ACTIVE);
+        order.setSequence(42);
+        execReportResponse = new ExecReportResponse(order, ExecType.ADD);
+        buffer = ByteBuffer.allocateDirect(MessageCodec.MAX_SIZE);
+    }
+
+    @Benchmark
+    public Object codecNewOrderRequest() {
+        return codecRoundTrip(newOrderRequest);
+    }
+
+    @Benchmark
+    public Object codecExecReportResponse() {
+        return codecRoundTrip(execReportResponse);
+    }
+
+    @Benchmark
+    public Object javaNewOrderRequest() throws Exception {
+        return javaRoundTrip(newOrderRequest);
+    }
+
+    @Benchmark
+    public Object javaExecReportResponse() throws Exception {
+        return javaRoundTrip(execReportResponse);
+    }
+
+    private Object codecRoundTrip(Object message) {
+        buffer.clear();
+        MessageCodec.encode(message, buffer);
+        buffer.flip();
+        return MessageCodec.decode(buffer);
+    }
+
+    private static Object javaRoundTrip(Object message) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+
+}
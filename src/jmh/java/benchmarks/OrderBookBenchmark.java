@@ -0,0 +1,117 @@
+package benchmarks;
+
+import enums.Instrument;
+import enums.Side;
+import order.MEOrderBook;
+import order.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// operations on one MEOrderBook holding `depth` orders per side spread over `spread` price levels.
+// every benchmark puts the book back to the same depth, so the numbers don't drift with the iteration
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+
+    static final long MID_PRICE = 10_000;
+
+    @Param({"100", "1000", "10000"})
+    int depth;
+
+    @Param({"10", "100"})
+    int spread;
+
+    // only used by orderFlow, try others with -p cancelRatio=0.1,0.9
+    @Param({"0.5"})
+    double cancelRatio;
+
+    MEOrderBook book;
+    // live orders of each side, bids in the first half
+    int[] liveOrderIDs;
+    int numOfOrderID;
+    long numOfSequence;
+    SplittableRandom random;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        book = new MEOrderBook(Instrument.BAG);
+        liveOrderIDs = new int[2 * depth];
+        numOfOrderID = 0;
+        numOfSequence = 0;
+        random = new SplittableRandom(42);
+        for (int i = 0; i < depth; i++) {
+            liveOrderIDs[i] = addOrder(Side.BIDS);
+            liveOrderIDs[depth + i] = addOrder(Side.OFFERS);
+        }
+    }
+
+    //adds a new order at a random price, then takes it out again by its order ID
+    @Benchmark
+    public Order addOrder() {
+        Side side = random.nextBoolean() ? Side.BIDS : Side.OFFERS;
+        int orderID = addOrder(side);
+        Order best = book.getBids().getBest();
+        book.cancelOrder(orderID);
+        return best;
+    }
+
+    @Benchmark
+    public Order modifyOrder() {
+        int index = random.nextInt(liveOrderIDs.length);
+        Side side = index < depth ? Side.BIDS : Side.OFFERS;
+        if (book.modifyOrder(liveOrderIDs[index], 1 + random.nextInt(10), randomPrice(side), numOfSequence)) {
+            numOfSequence++;
+        }
+        return book.getBids().getBest();
+    }
+
+    //cancels a random resting order and adds its replacement at the same side
+    @Benchmark
+    public Order cancelOrder() {
+        int index = random.nextInt(liveOrderIDs.length);
+        Side side = index < depth ? Side.BIDS : Side.OFFERS;
+        book.cancelOrder(liveOrderIDs[index]);
+        liveOrderIDs[index] = addOrder(side);
+        return book.getOffers().getBest();
+    }
+
+    //part fills the best bid, as the matching loop does
+    @Benchmark
+    public Order partFillOrder() {
+        Order best = book.getBids().getBest();
+        int quantity = best.getQuantity() > 1 ? best.getQuantity() - 1 : 1_000_000;
+        book.partFillOrder(best.getOrderID(), quantity);
+        return best;
+    }
+
+    //cancelRatio of the operations cancel and replace an order, the rest modify one
+    @Benchmark
+    public Order orderFlow() {
+        if (random.nextDouble() < cancelRatio) {
+            return cancelOrder();
+        }
+        return modifyOrder();
+    }
+
+    private int addOrder(Side side) {
+        Order order = new Order(1, numOfOrderID++, side, Instrument.BAG);
+        order.setPrice(randomPrice(side));
+        order.setQuantity(1_000_000);
+        order.setSequence(numOfSequence++);
+        book.addOrder(order);
+        return order.getOrderID();
+    }
+
+    //bids below the mid price and offers above it, so the book never crosses
+    private long randomPrice(Side side) {
+        long offset = 1 + random.nextInt(spread);
+        return side == Side.BIDS ? MID_PRICE - offset : MID_PRICE + offset;
+    }
+
+}
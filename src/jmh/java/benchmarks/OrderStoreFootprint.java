@@ -0,0 +1,153 @@
+package benchmarks;
+
+import enums.Instrument;
+import enums.Side;
+import order.MEOrderBook;
+import order.Order;
+import order.OrderStore;
+import order.SlotOrderBook;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+
+// heap footprint and GC pauses of a book of Order objects against a SlotOrderBook over an OrderStore,
+// both holding the same resting orders. after the book is built the run churns it, canceling and adding
+// orders while allocating garbage like reports would, and times the young collections that happen and
+// a few full ones. JMH doesn't measure live heap, so this is a plain main.
+// run with: gradle footprint [-Pfootprint.args="[objects|slots] [orders]"], both modes and 5M orders by default
+public class OrderStoreFootprint {
+
+    static final long MID_PRICE = 100_000;
+    static final int SPREAD = 1_000;
+    static final int CHURN = 2_000_000;
+    static final int FULL_GCS = 3;
+
+    // the book under test, behind one interface so both modes run the same loop
+    interface Book {
+        void add(int orderID, Side side, long price, int quantity, long sequence);
+
+        void cancel(int orderID);
+    }
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "both";
+        int orders = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        if (!mode.equals("slots")) {
+            run("objects", orders, OrderStoreFootprint::objectBook);
+        }
+        if (!mode.equals("objects")) {
+            run("slots", orders, OrderStoreFootprint::slotBook);
+        }
+    }
+
+    private static Book objectBook(int orders) {
+        MEOrderBook book = new MEOrderBook(Instrument.BAG);
+        return new Book() {
+            @Override
+            public void add(int orderID, Side side, long price, int quantity, long sequence) {
+                Order order = new Order(1, orderID, side, Instrument.BAG);
+                order.setPrice(price);
+                order.setQuantity(quantity);
+                order.setSequence(sequence);
+                book.addOrder(order);
+            }
+
+            @Override
+            public void cancel(int orderID) {
+                book.cancelOrder(orderID);
+            }
+        };
+    }
+
+    private static Book slotBook(int orders) {
+        OrderStore store = new OrderStore(orders);
+        SlotOrderBook book = new SlotOrderBook(store, Instrument.BAG);
+        return new Book() {
+            @Override
+            public void add(int orderID, Side side, long price, int quantity, long sequence) {
+                book.addOrder(orderID, 1, side, quantity, price, sequence);
+            }
+
+            @Override
+            public void cancel(int orderID) {
+                int slot = store.slotOf(orderID);
+                book.cancelOrder(slot);
+                store.free(slot);
+            }
+        };
+    }
+
+    private static void run(String mode, int orders, IntFunction<Book> books) {
+        long baseline = usedHeapAfterGC();
+        Book book = books.apply(orders);
+        SplittableRandom random = new SplittableRandom(42);
+        // live order IDs, bids at even indexes, offers at odd ones
+        int[] liveOrderIDs = new int[orders];
+        int numOfOrderID = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < orders; i++) {
+            liveOrderIDs[i] = numOfOrderID;
+            add(book, random, numOfOrderID++, i);
+        }
+        double buildSeconds = (System.nanoTime() - start) / 1e9;
+        long footprint = usedHeapAfterGC() - baseline - (long) Integer.BYTES * orders;
+        System.out.printf("%s: %d resting orders built in %.2fs, %d MB live, %d bytes per order%n",
+                mode, orders, buildSeconds, footprint >> 20, footprint / orders);
+
+        // keeps the garbage from being optimized away and alive for a little while, like queued messages
+        byte[][] inFlight = new byte[1024][];
+        long[] before = gcTotals();
+        long garbage = 0;
+        for (int i = 0; i < CHURN; i++) {
+            int index = random.nextInt(orders);
+            book.cancel(liveOrderIDs[index]);
+            liveOrderIDs[index] = numOfOrderID;
+            add(book, random, numOfOrderID++, index);
+            // the reports of a cancel and an add, and the messages around them
+            inFlight[i & (inFlight.length - 1)] = new byte[512];
+            garbage += 512;
+        }
+        long[] after = gcTotals();
+        long collections = after[0] - before[0];
+        System.out.printf("%s: %d cancels and adds, %d MB of garbage, %d collections taking %d ms, %.1f ms on average%n",
+                mode, CHURN, garbage >> 20, collections, after[1] - before[1],
+                collections == 0 ? 0.0 : (double) (after[1] - before[1]) / collections);
+
+        long fullGCNanos = 0;
+        for (int i = 0; i < FULL_GCS; i++) {
+            long gcStart = System.nanoTime();
+            System.gc();
+            fullGCNanos += System.nanoTime() - gcStart;
+        }
+        System.out.printf("%s: full collection %.1f ms on average%n", mode, fullGCNanos / 1e6 / FULL_GCS);
+        // the book stays reachable up to here
+        book.cancel(liveOrderIDs[0]);
+    }
+
+    private static void add(Book book, SplittableRandom random, int orderID, int index) {
+        if (index % 2 == 0) {
+            book.add(orderID, Side.BIDS, MID_PRICE - 1 - random.nextInt(SPREAD), 1 + random.nextInt(100), orderID);
+        } else {
+            book.add(orderID, Side.OFFERS, MID_PRICE + 1 + random.nextInt(SPREAD), 1 + random.nextInt(100), orderID);
+        }
+    }
+
+    private static long usedHeapAfterGC() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    //collections and milliseconds spent in them so far, over every collector
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(collector.getCollectionCount(), 0);
+            totals[1] += Math.max(collector.getCollectionTime(), 0);
+        }
+        return totals;
+    }
+
+}
@@ -0,0 +1,241 @@
+package benchmarks;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import com.typesafe.config.ConfigFactory;
+import enums.Status;
+import journal.RequestCapture;
+import messages.*;
+import metrics.LatencyRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// replays a capture of engine.capture against a fresh engine in this JVM, every captured sender is one
+// trader actor. "paced" sends each request at its captured offset from the first, "fast" sends them
+// back to back. latency runs from when a request was due to its first answer. the answers every trader
+// got, with the wall-clock timestamps of execution reports zeroed, make the output, which "record" writes
+// to a file and "expect" compares byte for byte with one written before.
+// run with: gradle replay -Preplay.args="<capture file> [paced|fast] [record|expect <output file>]"
+// replayed traders don't subscribe, so they get their reports directly and no market data
+public class ReplayHarness {
+
+    public static void main(String[] args) throws Exception {
+        Path captureFile = Paths.get(args.length > 0 ? args[0] : "capture.dat");
+        boolean paced = args.length > 1 && args[1].equals("paced");
+        String outputMode = args.length > 3 ? args[2] : null;
+        Path outputFile = args.length > 3 ? Paths.get(args[3]) : null;
+
+        List<long[]> timing = new ArrayList<>();
+        List<Request> requests = new ArrayList<>();
+        RequestCapture.read(captureFile, (arrivalNanos, sender, request) -> {
+            timing.add(new long[]{arrivalNanos, sender});
+            requests.add(request);
+        });
+        if (requests.isEmpty()) throw new IllegalArgumentException("No requests in " + captureFile);
+
+        ActorSystem system = ActorSystem.create("replay", ConfigFactory.parseString(
+                "akka.loglevel = WARNING\n" +
+                "engine.journal.enabled = off\n" +
+                "engine.snapshot.enabled = off\n" +
+                "engine.capture.enabled = off").withFallback(ConfigFactory.load()));
+        // the engine lives in the default package
+        ActorRef engine = system.actorOf(Props.create(Class.forName("MatchEngine")), "engine");
+        List<Client> clients = new ArrayList<>();
+        for (long[] record : timing) {
+            while (clients.size() <= record[1]) {
+                Client client = new Client();
+                client.actor = system.actorOf(Props.create(ReplayClient.class, client), "trader" + clients.size());
+                clients.add(client);
+            }
+        }
+
+        long start = System.nanoTime();
+        long firstArrival = timing.get(0)[0];
+        for (int i = 0; i < requests.size(); i++) {
+            Client client = clients.get((int) timing.get(i)[1]);
+            long due = paced ? start + timing.get(i)[0] - firstArrival : System.nanoTime();
+            waitUntil(due);
+            client.sendTimes.add(due);
+            client.outstanding.incrementAndGet();
+            engine.tell(requests.get(i), client.actor);
+        }
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        for (Client client : clients) {
+            while (client.outstanding.get() > 0) {
+                if (System.nanoTime() > deadline) throw new IllegalStateException("Unanswered requests: " + client.outstanding.get());
+                Thread.sleep(1);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LatencyRecorder latencies = new LatencyRecorder(requests.size());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int sender = 0; sender < clients.size(); sender++) {
+            // asked after the last answer, so every answer of the engine is in the trader's mailbox before it
+            Result result = (Result) Patterns.ask(clients.get(sender).actor, new GetResult(), Duration.ofSeconds(5))
+                    .toCompletableFuture().get();
+            latencies.add(result.latencies);
+            output.write(ByteBuffer.allocate(8).putInt(sender).putInt(result.output.length).array());
+            output.write(result.output);
+        }
+        system.terminate();
+
+        System.out.printf("%d requests from %d traders in %.2fs, %.0f requests/s%n",
+                requests.size(), clients.size(), seconds, requests.size() / seconds);
+        System.out.println("latency from due time to first answer: " + latencies.summary());
+
+        byte[] outputBytes = output.toByteArray();
+        if ("record".equals(outputMode)) {
+            Files.write(outputFile, outputBytes);
+            System.out.println("output of " + outputBytes.length + " bytes written to " + outputFile);
+        } else if ("expect".equals(outputMode)) {
+            byte[] expected = Files.readAllBytes(outputFile);
+            int mismatch = Arrays.mismatch(expected, outputBytes);
+            if (mismatch >= 0) {
+                System.out.println("output differs from " + outputFile + " at byte " + mismatch
+                        + " (" + expected.length + " bytes expected, " + outputBytes.length + " bytes)");
+                System.exit(1);
+            }
+            System.out.println("output matches " + outputFile + ", " + outputBytes.length + " bytes");
+        }
+    }
+
+    //parks while the due time is far off and spins close to it
+    private static void waitUntil(long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            if (remaining > 100_000) {
+                LockSupport.parkNanos(remaining - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // what the driver shares with one trader actor
+    static final class Client {
+        final Queue<Long> sendTimes = new ConcurrentLinkedQueue<>();
+        // sent requests whose transaction hasn't completed yet
+        final AtomicInteger outstanding = new AtomicInteger();
+        ActorRef actor;
+    }
+
+    static final class GetResult {
+    }
+
+    static final class Result {
+        final LatencyRecorder latencies;
+        final byte[] output;
+
+        Result(LatencyRecorder latencies, byte[] output) {
+            this.latencies = latencies;
+            this.output = output;
+        }
+    }
+
+    // tells the answers to the trader's own requests from the fills other traders' requests cause.
+    // the engine sends each transaction's messages to a trader in one go: a rejection alone, or messages
+    // up to a TransactionComplete. the trader's own transaction starts with the report of its request, or
+    // with the TradeMessages of an immediate order's fills, while a fill of a resting order starts with
+    // the order's report and its TradeMessage
+    public static final class ReplayClient extends AbstractActor {
+        private final Client client;
+        private final LatencyRecorder latencies;
+        private final ByteArrayOutputStream output;
+        private boolean inTransaction;
+        private boolean ownTransaction;
+        // the transaction's first report arrived at firstArrival, the next message tells whose it is
+        private boolean classifying;
+        private long firstArrival;
+
+        public ReplayClient(Client client) {
+            this.client = client;
+            this.latencies = new LatencyRecorder();
+            this.output = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder().match(Response.class, this::onResponse
+            ).match(GetResult.class, m -> {
+                LatencyRecorder copy = new LatencyRecorder();
+                copy.add(latencies);
+                getSender().tell(new Result(copy, output.toByteArray()), getSelf());
+            }).build();
+        }
+
+        private void onResponse(Response response) {
+            long now = System.nanoTime();
+            write(response);
+
+            if (classifying) {
+                classifying = false;
+                ownTransaction = !(response instanceof TradeMessage);
+                if (ownTransaction) {
+                    answered(firstArrival);
+                }
+            } else if (!inTransaction) {
+                if (response instanceof ExecReportResponse && ((ExecReportResponse) response).getStatus() == Status.REJECTED) {
+                    answered(now);
+                    client.outstanding.decrementAndGet();
+                    return;
+                }
+                inTransaction = true;
+                if (response instanceof ExecReportResponse) {
+                    classifying = true;
+                    firstArrival = now;
+                    return;
+                }
+                // a BatchExecReportResponse only answers a request
+                ownTransaction = true;
+                answered(now);
+            }
+
+            if (response instanceof TransactionComplete) {
+                if (ownTransaction) {
+                    client.outstanding.decrementAndGet();
+                }
+                inTransaction = false;
+                ownTransaction = false;
+            }
+        }
+
+        private void answered(long arrival) {
+            Long due = client.sendTimes.poll();
+            if (due != null) {
+                latencies.record(arrival - due);
+            }
+        }
+
+        //appends the message's encoding with the reports' timestamps zeroed, they are the only wall-clock field
+        private void write(Response response) {
+            byte[] bytes = new byte[MessageCodec.encodedSize(response)];
+            MessageCodec.encode(response, ByteBuffer.wrap(bytes));
+            if (response instanceof ExecReportResponse) {
+                Arrays.fill(bytes, bytes.length - Long.BYTES, bytes.length, (byte) 0);
+            } else if (response instanceof BatchExecReportResponse) {
+                for (int end = MessageCodec.BATCH_HEADER_SIZE + MessageCodec.EXEC_REPORT_RESPONSE_SIZE; end <= bytes.length;
+                     end += MessageCodec.EXEC_REPORT_RESPONSE_SIZE) {
+                    Arrays.fill(bytes, end - Long.BYTES, end, (byte) 0);
+                }
+            }
+            output.write(bytes, 0, bytes.length);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+import akka.actor.AbstractActorWithStash;
+import akka.actor.ActorRef;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Props;
+import akka.cluster.ddata.DistributedData;
+import akka.cluster.ddata.Key;
+import akka.cluster.ddata.LWWRegister;
+import akka.cluster.ddata.LWWRegisterKey;
+import akka.cluster.ddata.Replicator;
+import akka.cluster.ddata.SelfUniqueAddress;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.serialization.Serialization;
+import enums.Instrument;
+import messages.BookSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// one instrument's book as a cluster sharding entity behind ClusterMatchEngine, named after the instrument.
+// it reads what the book's last incarnation handed off from distributed data, stashing requests meanwhile,
+// then starts the book's MatchEngine and forwards it everything. on hand off it writes the engine's state
+// back with majority consistency and stops once that is done
+public class BookEntity extends AbstractActorWithStash {
+
+    private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
+
+    private final Instrument instrument;
+    private final Key<LWWRegister<byte[]>> stateKey;
+    private final Duration timeout;
+    private ActorRef engine;
+
+    // the stop message of the entity, sent by sharding before the book moves to another node
+    static final class HandOff {
+    }
+
+    public BookEntity() {
+        instrument = Instrument.valueOf(getSelf().path().name());
+        stateKey = LWWRegisterKey.create("book-" + instrument.name());
+        timeout = getContext().getSystem().settings().config().getDuration("engine.cluster.state-timeout");
+    }
+
+    //actors under /system default to the internal dispatcher, the books shouldn't match on akka's own threads
+    public static Props props() {
+        return Props.create(BookEntity.class).withDispatcher("akka.actor.default-dispatcher");
+    }
+
+    @Override
+    public void preStart() {
+        replicator().tell(new Replicator.Get<>(stateKey, new Replicator.ReadMajority(timeout)), getSelf());
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder().match(Replicator.GetSuccess.class, response -> {
+            @SuppressWarnings("unchecked")
+            byte[] state = ((Replicator.GetSuccess<LWWRegister<byte[]>>) response).dataValue().getValue();
+            startEngine(state.length == 0 ? null : fromBytes(state));
+        }).match(Replicator.NotFound.class, response -> {
+            startEngine(null);
+        }).match(Replicator.GetFailure.class, response -> {
+            // failing lets the shard restart the entity and try again
+            throw new IllegalStateException("Can't read the state of " + instrument + ": " + response);
+        }).matchAny(m -> stash()).build();
+    }
+
+    private Receive running() {
+        return receiveBuilder().match(HandOff.class, m -> {
+            getContext().become(handingOff());
+            engine.tell(new MatchEngine.GetEntityState(), getSelf());
+        }).match(Replicator.UpdateResponse.class, response -> {
+            if (!(response instanceof Replicator.UpdateSuccess)) {
+                log.warning("Taken Over State Not Cleared: " + response);
+            }
+        }).matchAny(m -> engine.forward(m, getContext())).build();
+    }
+
+    //sharding buffers the book's requests until the next incarnation is up, nothing else arrives here
+    private Receive handingOff() {
+        return receiveBuilder().match(MatchEngine.EntityState.class, state -> {
+            log.info("Handing Off " + state.book.size() + " Orders Of " + instrument);
+            writeState(toBytes(state), true);
+        }).match(Replicator.UpdateResponse.class, response -> {
+            // the book's state is written, or as far as it got in time
+            if (!(response instanceof Replicator.UpdateSuccess)) {
+                log.warning("Hand Off State Not Written To A Majority: " + response);
+            }
+            if (response.getRequest().isPresent()) {
+                getContext().stop(getSelf());
+            }
+        }).build();
+    }
+
+    //the engine restores the state before the stashed requests, which is then cleared so a later crash
+    //can't bring back a stale book
+    private void startEngine(MatchEngine.EntityState state) {
+        engine = getContext().actorOf(MatchEngine.entityProps(instrument), "engine");
+        if (state != null) {
+            engine.tell(state, getSelf());
+            log.info("Took Over " + state.book.size() + " Orders Of " + instrument);
+            writeState(new byte[0], false);
+        }
+        getContext().become(running());
+        unstashAll();
+    }
+
+    //the entity stops when the write of its hand off is answered, the one after taking over isn't waited for
+    private void writeState(byte[] state, boolean handingOff) {
+        Optional<Object> request = handingOff ? Optional.of(getSelf()) : Optional.empty();
+        SelfUniqueAddress node = DistributedData.get(getContext().getSystem()).selfUniqueAddress();
+        replicator().tell(new Replicator.Update<>(stateKey, LWWRegister.create(node, state),
+                new Replicator.WriteMajority(timeout), request, register -> register.withValue(node, state)), getSelf());
+    }
+
+    //the order ID counter, the sequence, the traders with orders and the book
+    private static byte[] toBytes(MatchEngine.EntityState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(state.numOfOrderID);
+        out.writeLong(state.numOfSequence);
+        out.writeInt(state.traders.size());
+        for (Map.Entry<Integer, ActorRef> trader : state.traders.entrySet()) {
+            out.writeInt(trader.getKey());
+            out.writeUTF(Serialization.serializedActorPath(trader.getValue()));
+        }
+        state.book.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private MatchEngine.EntityState fromBytes(byte[] state) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+        int numOfOrderID = in.readInt();
+        long numOfSequence = in.readLong();
+        ExtendedActorSystem system = (ExtendedActorSystem) getContext().getSystem();
+        int numOfTraders = in.readInt();
+        Map<Integer, ActorRef> traders = new HashMap<>();
+        for (int i = 0; i < numOfTraders; i++) {
+            int traderID = in.readInt();
+            traders.put(traderID, system.provider().resolveActorRef(in.readUTF()));
+        }
+        return new MatchEngine.EntityState(numOfOrderID, numOfSequence, traders, BookSnapshot.readFrom(in));
+    }
+
+    private ActorRef replicator() {
+        return DistributedData.get(getContext().getSystem()).replicator();
+    }
+
+}
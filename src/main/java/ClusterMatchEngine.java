@@ -0,0 +1,207 @@
+import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.cluster.ddata.DistributedData;
+import akka.cluster.sharding.ClusterSharding;
+import akka.cluster.sharding.ClusterShardingSettings;
+import akka.cluster.sharding.ShardRegion;
+import collections.IntObjectMap;
+import enums.Instrument;
+import enums.RejectionReason;
+import messages.*;
+
+import java.util.*;
+
+// the engine of one cluster node, traders connect to whichever node they run on. every instrument's book
+// is a cluster sharding entity, a BookEntity that sharding places on some node whose MatchEngine answers
+// traders directly. each book is a shard of its own, so when nodes join or leave sharding moves books one by one
+// and the book hands its state to its next incarnation. books don't stream market data across nodes, so
+// subscriptions and depth subscriptions are rejected with UNSUPPORTED_REQUEST and traders learn their
+// orders from their reports
+public class ClusterMatchEngine extends AbstractLoggingActor {
+
+    static final String TYPE_NAME = "book";
+    private static final Instrument[] INSTRUMENTS = Instrument.values();
+
+    private final ActorRef region;
+    private final IntObjectMap<PendingMassCancel> pendingMassCancels;
+    private final IntObjectMap<PendingBatch> pendingBatches;
+    private int numOfMassCancelID;
+    private int numOfBatchID;
+
+    // a book's shard and entity are both named after its instrument
+    static final class BookExtractor implements ShardRegion.MessageExtractor {
+        @Override
+        public String entityId(Object message) {
+            Instrument instrument = instrumentOf(message);
+            return instrument == null ? null : instrument.name();
+        }
+
+        @Override
+        public Object entityMessage(Object message) {
+            return message;
+        }
+
+        @Override
+        public String shardId(Object message) {
+            return entityId(message);
+        }
+    }
+
+    public ClusterMatchEngine() {
+        // the replicator books hand off through starts with its extension, it must run on every node
+        DistributedData.get(getContext().getSystem());
+        ClusterSharding sharding = ClusterSharding.get(getContext().getSystem());
+        ClusterShardingSettings settings = ClusterShardingSettings.create(getContext().getSystem());
+        region = sharding.start(TYPE_NAME, BookEntity.props(), settings, new BookExtractor(),
+                sharding.defaultShardAllocationStrategy(settings), new BookEntity.HandOff());
+        pendingMassCancels = new IntObjectMap<>();
+        pendingBatches = new IntObjectMap<>();
+        numOfMassCancelID = 0;
+        numOfBatchID = 0;
+    }
+
+    //the router's mailbox applies engine.admission, the books behind it take what it admitted
+    public static Props props() {
+        return Props.create(ClusterMatchEngine.class).withMailbox("engine.admission");
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder().match(NewOrderRequest.class, request -> {
+            region.forward(request, getContext());
+        }).match(ModifyOrderRequest.class, request -> {
+            if (request.getOrderID() < 0) {
+                getSender().tell(new ExecReportResponse(request, RejectionReason.INVALID_ORDER_ID), getSelf());
+            } else {
+                region.forward(request, getContext());
+            }
+        }).match(CancelOrderRequest.class, request -> {
+            if (request.getOrderID() < 0) {
+                getSender().tell(new ExecReportResponse(request, RejectionReason.INVALID_ORDER_ID), getSelf());
+            } else {
+                region.forward(request, getContext());
+            }
+        }).match(MassCancelRequest.class, this::onMassCancelRequest
+        ).match(MatchEngine.ShardMassCanceled.class, this::onShardMassCanceled
+        ).match(BatchOrderRequest.class, this::onBatchOrderRequest
+        ).match(MatchEngine.ShardBatchAnswered.class, this::onShardBatchAnswered
+        ).match(SubscriptionRequest.class, request -> {
+            log().warning("Subscriptions Aren't Supported Across Nodes: " + getSender());
+            getSender().tell(new ExecReportResponse(request.getTraderID(), RejectionReason.UNSUPPORTED_REQUEST), getSelf());
+        }).match(DepthSubscriptionRequest.class, request -> {
+            log().warning("Depth Subscriptions Aren't Supported Across Nodes: " + getSender());
+            getSender().tell(new ExecReportResponse(request.getTraderID(), RejectionReason.UNSUPPORTED_REQUEST), getSelf());
+        }).build();
+    }
+
+    //goes to the instrument's book, or to every book, whose answers are sent to the trader as one
+    private void onMassCancelRequest(MassCancelRequest request) {
+        if (request.getInstrument() != null) {
+            region.forward(request, getContext());
+            return;
+        }
+        int massCancelID = numOfMassCancelID++;
+        pendingMassCancels.put(massCancelID, new PendingMassCancel(getSender(), INSTRUMENTS.length));
+        for (Instrument instrument : INSTRUMENTS) {
+            MassCancelRequest bookRequest = new MassCancelRequest(request.getTraderID(), instrument, request.getSide());
+            region.tell(new MatchEngine.RoutedMassCancel(massCancelID, bookRequest, getSelf()), getSender());
+        }
+    }
+
+    //the trader gets one BatchExecReportResponse with the REMOVE reports of every book, or a book's rejection
+    private void onShardMassCanceled(MatchEngine.ShardMassCanceled canceled) {
+        PendingMassCancel pending = pendingMassCancels.get(canceled.massCancelID);
+        if (pending == null || !pending.answer(canceled)) return;
+
+        pendingMassCancels.remove(canceled.massCancelID);
+        if (pending.getRejection() != null) {
+            pending.trader.tell(pending.getRejection(), getSelf());
+            return;
+        }
+        pending.trader.tell(pending.toResponse(), getSelf());
+        pending.trader.tell(new TransactionComplete(), getSelf());
+    }
+
+    //splits the batch by book, the routing rejections and the books' reports are answered as one
+    private void onBatchOrderRequest(BatchOrderRequest batch) {
+        Map<Instrument, List<Integer>> parts = new EnumMap<>(Instrument.class);
+        PendingBatch pending = new PendingBatch(getSender(), batch.size());
+        int numOfRejections = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            Instrument instrument = instrumentOf(request);
+            if (instrument == null) {
+                if (request instanceof ModifyOrderRequest) {
+                    pending.answer(i, new ExecReportResponse((ModifyOrderRequest) request, RejectionReason.INVALID_ORDER_ID));
+                } else {
+                    pending.answer(i, new ExecReportResponse((CancelOrderRequest) request, RejectionReason.INVALID_ORDER_ID));
+                }
+                numOfRejections++;
+                continue;
+            }
+            parts.computeIfAbsent(instrument, key -> new ArrayList<>()).add(i);
+        }
+
+        if (numOfRejections > 0) {
+            log().info("Batch Order Request Routing Rejections: " + numOfRejections);
+        }
+        if (parts.isEmpty()) {
+            completeBatch(pending);
+            return;
+        }
+        int batchID = numOfBatchID++;
+        pendingBatches.put(batchID, pending);
+        for (List<Integer> part : parts.values()) {
+            int[] positions = part.stream().mapToInt(Integer::intValue).toArray();
+            List<Request> requests = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                requests.add(batch.get(position));
+            }
+            // the books assign the order IDs, which carry their instrument
+            int partNumber = pending.addPart(positions);
+            region.tell(new MatchEngine.RoutedBatch(batchID, partNumber, null, new BatchOrderRequest(requests), getSelf()), getSender());
+        }
+    }
+
+    //the trader gets its reports once every book of the batch is done matching
+    private void onShardBatchAnswered(MatchEngine.ShardBatchAnswered answered) {
+        PendingBatch pending = pendingBatches.get(answered.batchID);
+        if (pending == null) return;
+
+        pending.answerPart(answered.part, answered.reports);
+        if (!pending.isAnswered()) return;
+
+        pendingBatches.remove(answered.batchID);
+        completeBatch(pending);
+    }
+
+    private void completeBatch(PendingBatch pending) {
+        pending.trader.tell(pending.toResponse(), getSelf());
+        pending.trader.tell(new TransactionComplete(), getSelf());
+    }
+
+    //the book a request goes to, order IDs carry their instrument. null for a request no book can take
+    static Instrument instrumentOf(Object message) {
+        if (message instanceof NewOrderRequest) {
+            return ((NewOrderRequest) message).getInstrument();
+        } else if (message instanceof ModifyOrderRequest) {
+            return instrumentOf(((ModifyOrderRequest) message).getOrderID());
+        } else if (message instanceof CancelOrderRequest) {
+            return instrumentOf(((CancelOrderRequest) message).getOrderID());
+        } else if (message instanceof MassCancelRequest) {
+            return ((MassCancelRequest) message).getInstrument();
+        } else if (message instanceof MatchEngine.RoutedMassCancel) {
+            return ((MatchEngine.RoutedMassCancel) message).request.getInstrument();
+        } else if (message instanceof MatchEngine.RoutedBatch && ((MatchEngine.RoutedBatch) message).batch.size() > 0) {
+            // ClusterMatchEngine only sends batches of one book
+            return instrumentOf(((MatchEngine.RoutedBatch) message).batch.get(0));
+        }
+        return null;
+    }
+
+    private static Instrument instrumentOf(int orderID) {
+        return orderID < 0 ? null : INSTRUMENTS[orderID % INSTRUMENTS.length];
+    }
+
+}
@@ -0,0 +1,283 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import com.typesafe.config.Config;
+import enums.RejectionReason;
+import messages.*;
+import scala.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// unbounded mailbox of MatchEngine, or of the ShardedMatchEngine and ClusterMatchEngine routers in front
+// of the books, with admission control, see engine.admission settings. requests are admitted when they are
+// enqueued, on the sender's thread, so a rejected one is answered with THROTTLED and a TransactionComplete
+// at once and never waits behind the queue or reaches the engine. a request is rejected while the queue
+// holds queue-watermark messages, or when its trader's token bucket can't pay for it, a batch costs a token
+// per request and is rejected whole. subscriptions and the engine's own messages always go in.
+// GetThrottleCounters is answered here too, so the counters can be read while the engine is flooded
+public class EngineMailbox implements MailboxType, ProducesMessageQueue<EngineMailbox.AdmissionQueue> {
+
+    public static final class GetThrottleCounters {
+    }
+
+    // rejections since the engine started, by trader ID
+    public static final class ThrottleCounters {
+        private final Map<Integer, Long> throttledByRate;
+        private final Map<Integer, Long> throttledByDepth;
+        private final int queueDepth;
+        private final int numOfTraders;
+
+        ThrottleCounters(Map<Integer, Long> throttledByRate, Map<Integer, Long> throttledByDepth, int queueDepth, int numOfTraders) {
+            this.throttledByRate = throttledByRate;
+            this.throttledByDepth = throttledByDepth;
+            this.queueDepth = queueDepth;
+            this.numOfTraders = numOfTraders;
+        }
+
+        //requests of the trader rejected because its bucket was empty
+        public long getThrottledByRate(int traderID) {
+            return throttledByRate.getOrDefault(traderID, 0L);
+        }
+
+        //requests of the trader rejected because the queue was at the watermark
+        public long getThrottledByDepth(int traderID) {
+            return throttledByDepth.getOrDefault(traderID, 0L);
+        }
+
+        public Map<Integer, Long> getThrottledByRate() {
+            return throttledByRate;
+        }
+
+        public Map<Integer, Long> getThrottledByDepth() {
+            return throttledByDepth;
+        }
+
+        //messages waiting in the mailbox when the counters were read
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        //traders the mailbox keeps a bucket for, see engine.admission.max-traders
+        public int getNumOfTraders() {
+            return numOfTraders;
+        }
+
+        @Override
+        public String toString() {
+            return "ThrottleCounters{" +
+                    "throttledByRate=" + throttledByRate +
+                    ", throttledByDepth=" + throttledByDepth +
+                    ", queueDepth=" + queueDepth +
+                    ", numOfTraders=" + numOfTraders +
+                    '}';
+        }
+    }
+
+    private final boolean enabled;
+    private final double tokensPerNano;
+    private final int burst;
+    private final int queueWatermark;
+    private final int maxTraders;
+    // time an empty bucket takes to fill up, a trader idle that long has the bucket of a new one
+    private final long refillNanos;
+
+    public EngineMailbox(ActorSystem.Settings settings, Config config) {
+        enabled = config.getBoolean("enabled");
+        tokensPerNano = config.getDouble("rate") / 1e9;
+        burst = config.getInt("burst");
+        queueWatermark = config.getInt("queue-watermark");
+        maxTraders = config.getInt("max-traders");
+        refillNanos = (long) Math.ceil(burst / tokensPerNano);
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        return new AdmissionQueue();
+    }
+
+    // one trader's token bucket and rejections, shared by the threads sending for the trader
+    private static final class TraderAdmission {
+        private double tokens;
+        private long lastRefill;
+        private long throttledByRate;
+        private long throttledByDepth;
+        // set when the bucket is dropped from traders, a sender still holding it takes a new one
+        private boolean evicted;
+
+        TraderAdmission(int burst) {
+            tokens = burst;
+            lastRefill = System.nanoTime();
+        }
+    }
+
+    public final class AdmissionQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+        private final Queue<Envelope> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final ConcurrentHashMap<Integer, TraderAdmission> traders = new ConcurrentHashMap<>();
+        // size of traders that makes the next new trader drop the idle ones
+        private final AtomicInteger evictAt = new AtomicInteger(maxTraders);
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            Object message = handle.message();
+            if (message instanceof GetThrottleCounters) {
+                handle.sender().tell(counters(), receiver);
+                return;
+            }
+            if (enabled && isOrderRequest(message) && !admit((Request) message)) {
+                handle.sender().tell(throttled((Request) message), receiver);
+                handle.sender().tell(new TransactionComplete(), receiver);
+                return;
+            }
+            depth.incrementAndGet();
+            queue.add(handle);
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope envelope = queue.poll();
+            if (envelope != null) {
+                depth.decrementAndGet();
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return depth.get();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            Envelope envelope;
+            while ((envelope = dequeue()) != null) {
+                deadLetters.enqueue(owner, envelope);
+            }
+        }
+
+        //the watermark is checked first, so a request shed for depth doesn't use up a token.
+        //a batch larger than burst is never admitted
+        private boolean admit(Request request) {
+            int cost = request instanceof BatchOrderRequest ? ((BatchOrderRequest) request).size() : 1;
+            boolean full = depth.get() >= queueWatermark;
+            while (true) {
+                TraderAdmission trader = trader(traderID(request));
+                synchronized (trader) {
+                    if (trader.evicted) continue;
+                    if (full) {
+                        trader.throttledByDepth += cost;
+                        return false;
+                    }
+                    long now = System.nanoTime();
+                    trader.tokens = Math.min(burst, trader.tokens + (now - trader.lastRefill) * tokensPerNano);
+                    trader.lastRefill = now;
+                    if (trader.tokens < cost) {
+                        trader.throttledByRate += cost;
+                        return false;
+                    }
+                    trader.tokens -= cost;
+                    return true;
+                }
+            }
+        }
+
+        private TraderAdmission trader(int traderID) {
+            TraderAdmission trader = traders.get(traderID);
+            if (trader != null) return trader;
+
+            trader = traders.computeIfAbsent(traderID, key -> new TraderAdmission(burst));
+            if (traders.size() > evictAt.get()) {
+                evictIdleTraders();
+            }
+            return trader;
+        }
+
+        //drops the traders idle long enough for a full bucket, which a new one gets anyway, with their
+        //counters. when too few are idle, the next sweep waits until traders has doubled
+        private void evictIdleTraders() {
+            long now = System.nanoTime();
+            for (Map.Entry<Integer, TraderAdmission> entry : traders.entrySet()) {
+                TraderAdmission trader = entry.getValue();
+                synchronized (trader) {
+                    if (now - trader.lastRefill >= refillNanos) {
+                        trader.evicted = true;
+                        traders.remove(entry.getKey(), trader);
+                    }
+                }
+            }
+            evictAt.set(Math.max(maxTraders, 2 * traders.size()));
+        }
+
+        private ThrottleCounters counters() {
+            Map<Integer, Long> byRate = new HashMap<>();
+            Map<Integer, Long> byDepth = new HashMap<>();
+            for (Map.Entry<Integer, TraderAdmission> entry : traders.entrySet()) {
+                synchronized (entry.getValue()) {
+                    if (entry.getValue().throttledByRate > 0) {
+                        byRate.put(entry.getKey(), entry.getValue().throttledByRate);
+                    }
+                    if (entry.getValue().throttledByDepth > 0) {
+                        byDepth.put(entry.getKey(), entry.getValue().throttledByDepth);
+                    }
+                }
+            }
+            return new ThrottleCounters(byRate, byDepth, depth.get(), traders.size());
+        }
+    }
+
+    //subscriptions and acks aren't throttled
+    private static boolean isOrderRequest(Object message) {
+        return message instanceof NewOrderRequest || message instanceof ModifyOrderRequest || message instanceof CancelOrderRequest
+                || message instanceof MassCancelRequest || message instanceof BatchOrderRequest;
+    }
+
+    //a batch's trader is the one of its first request
+    private static int traderID(Request request) {
+        if (request instanceof NewOrderRequest) {
+            return ((NewOrderRequest) request).getTraderID();
+        } else if (request instanceof ModifyOrderRequest) {
+            return ((ModifyOrderRequest) request).getTraderID();
+        } else if (request instanceof CancelOrderRequest) {
+            return ((CancelOrderRequest) request).getTraderID();
+        } else if (request instanceof MassCancelRequest) {
+            return ((MassCancelRequest) request).getTraderID();
+        } else if (request instanceof BatchOrderRequest && ((BatchOrderRequest) request).size() > 0) {
+            return traderID(((BatchOrderRequest) request).get(0));
+        }
+        return -1;
+    }
+
+    //the answer the engine would give if it rejected the request, a batch gets a rejection for each of its requests
+    private static Response throttled(Request request) {
+        if (request instanceof NewOrderRequest) {
+            return new ExecReportResponse((NewOrderRequest) request, RejectionReason.THROTTLED);
+        } else if (request instanceof ModifyOrderRequest) {
+            return new ExecReportResponse((ModifyOrderRequest) request, RejectionReason.THROTTLED);
+        } else if (request instanceof CancelOrderRequest) {
+            return new ExecReportResponse((CancelOrderRequest) request, RejectionReason.THROTTLED);
+        } else if (request instanceof MassCancelRequest) {
+            return new ExecReportResponse((MassCancelRequest) request, RejectionReason.THROTTLED);
+        }
+        BatchOrderRequest batch = (BatchOrderRequest) request;
+        ExecReportResponse[] responses = new ExecReportResponse[batch.size()];
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = (ExecReportResponse) throttled(batch.get(i));
+        }
+        return new BatchExecReportResponse(responses);
+    }
+
+}
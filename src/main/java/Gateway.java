@@ -0,0 +1,81 @@
+import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.io.Tcp;
+import akka.io.TcpMessage;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+// TCP order entry in front of the engine. Akka IO runs the NIO selectors, the gateway accepts
+// connections and hands each one to a GatewaySession, which acts as the trader towards the engine
+public class Gateway extends AbstractLoggingActor {
+
+    private final ActorRef engine;
+    private final InetSocketAddress bindAddress;
+    private InetSocketAddress localAddress;
+    private List<ActorRef> pendingAddressRequests;
+    private int numOfSessions;
+
+    public Gateway(ActorRef engine, InetSocketAddress bindAddress) {
+        this.engine = engine;
+        this.bindAddress = bindAddress;
+        pendingAddressRequests = new ArrayList<>();
+        numOfSessions = 0;
+    }
+
+    public static Props props(ActorRef engine, InetSocketAddress bindAddress) {
+        return Props.create(Gateway.class, engine, bindAddress);
+    }
+
+    @Override
+    public void preStart() {
+        Tcp.get(getContext().getSystem()).manager().tell(TcpMessage.bind(getSelf(), bindAddress, 1024), getSelf());
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder().match(Tcp.Bound.class, this::onBound
+        ).match(Tcp.CommandFailed.class, this::onCommandFailed
+        ).match(Tcp.Connected.class, connected -> {
+            onConnected(connected, getSender());
+        }).match(GetLocalAddress.class, request -> {
+            onGetLocalAddress(getSender());
+        }).build();
+    }
+
+    private void onBound(Tcp.Bound bound) {
+        localAddress = bound.localAddress();
+        log().info("Gateway Listening On: " + localAddress);
+        for (ActorRef requester : pendingAddressRequests) {
+            requester.tell(localAddress, getSelf());
+        }
+        pendingAddressRequests.clear();
+    }
+
+    //the only command the gateway sends itself is the bind
+    private void onCommandFailed(Tcp.CommandFailed failed) {
+        log().error("Gateway Could Not Bind To: " + bindAddress);
+        getContext().stop(getSelf());
+    }
+
+    private void onConnected(Tcp.Connected connected, ActorRef connection) {
+        log().info("Gateway Session Connected From: " + connected.remoteAddress());
+        ActorRef session = getContext().actorOf(GatewaySession.props(engine, connection), "session-" + numOfSessions++);
+        connection.tell(TcpMessage.register(session), getSelf());
+    }
+
+    //replies with the InetSocketAddress once the gateway is bound, useful when binding to port 0
+    private void onGetLocalAddress(ActorRef requester) {
+        if (localAddress != null) {
+            requester.tell(localAddress, getSelf());
+        } else {
+            pendingAddressRequests.add(requester);
+        }
+    }
+
+    public static final class GetLocalAddress {
+    }
+
+}
@@ -0,0 +1,135 @@
+import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.io.Tcp;
+import akka.io.TcpMessage;
+import akka.util.ByteString;
+import akka.util.ByteStringBuilder;
+import messages.*;
+
+import java.nio.ByteBuffer;
+
+// one TCP connection of the gateway. decodes the client's request frames and sends them to the engine
+// as if it was the trader, so the engine's replies and its cleanup on termination work unchanged.
+// replies are framed into a buffer and written once the previous write is acknowledged, so a burst of
+// reports goes out in one write instead of one per message
+public class GatewaySession extends AbstractLoggingActor {
+
+    private final ActorRef engine;
+    private final ActorRef connection;
+    private ByteString received;
+    private ByteBuffer frame;
+    private ByteStringBuilder pending;
+    private boolean writing;
+    private boolean flushScheduled;
+
+    public GatewaySession(ActorRef engine, ActorRef connection) {
+        this.engine = engine;
+        this.connection = connection;
+        received = ByteString.emptyByteString();
+        frame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+        pending = new ByteStringBuilder();
+        writing = false;
+        flushScheduled = false;
+    }
+
+    public static Props props(ActorRef engine, ActorRef connection) {
+        return Props.create(GatewaySession.class, engine, connection);
+    }
+
+    @Override
+    public void preStart() {
+        getContext().watch(connection);
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder().match(Tcp.Received.class, received -> {
+            onReceived(received.data());
+        }).match(ExecReportResponse.class, this::onResponse
+        ).match(TradeMessage.class, this::onResponse
+        ).match(TransactionComplete.class, this::onResponse
+        ).match(MarketDataBatch.class, this::onMarketDataBatch
+        ).match(BatchExecReportResponse.class, this::onBatchExecReportResponse
+        ).match(Flush.class, flush -> {
+            flushScheduled = false;
+            flush();
+        }).match(WriteAck.class, ack -> {
+            writing = false;
+            flush();
+        }).match(Tcp.CommandFailed.class, failed -> {
+            log().warning("Gateway Session Write Failed, Closing: " + failed.cmd());
+            connection.tell(TcpMessage.abort(), getSelf());
+        }).match(Tcp.ConnectionClosed.class, closed -> {
+            log().info("Gateway Session Closed: " + closed);
+            getContext().stop(getSelf());
+        }).match(Terminated.class, terminated -> {
+            getContext().stop(getSelf());
+        }).build();
+    }
+
+    //decodes every whole frame, a partial frame waits for the next read
+    private void onReceived(ByteString data) {
+        received = received.concat(data);
+        ByteBuffer buffer = received.asByteBuffer();
+        try {
+            Object message;
+            while ((message = MessageCodec.decodeFrame(buffer)) != null) {
+                if (!(message instanceof Request)) {
+                    throw new IllegalArgumentException("Not a request: " + message);
+                }
+                engine.tell(message, getSelf());
+            }
+        } catch (RuntimeException e) {
+            log().warning("Gateway Session Protocol Error, Closing: " + e.getMessage());
+            connection.tell(TcpMessage.close(), getSelf());
+            received = ByteString.emptyByteString();
+            return;
+        }
+        received = received.drop(buffer.position());
+    }
+
+    private void onResponse(Response response) {
+        frame.clear();
+        MessageCodec.encodeFrame(response, frame);
+        pending.putBytes(frame.array(), 0, frame.position());
+        scheduleFlush();
+    }
+
+    private void onMarketDataBatch(MarketDataBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            onResponse(batch.get(i));
+        }
+        onResponse(new TransactionComplete());
+    }
+
+    //a frame holds one message, so the reports of a mass cancel go out one by one
+    private void onBatchExecReportResponse(BatchExecReportResponse batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            onResponse(batch.get(i));
+        }
+    }
+
+    //the flush goes behind the replies already in the mailbox, so they share a write
+    private void scheduleFlush() {
+        if (!writing && !flushScheduled) {
+            flushScheduled = true;
+            getSelf().tell(new Flush(), getSelf());
+        }
+    }
+
+    private void flush() {
+        if (writing || pending.isEmpty()) return;
+        connection.tell(TcpMessage.write(pending.result(), new WriteAck()), getSelf());
+        pending = new ByteStringBuilder();
+        writing = true;
+    }
+
+    private static final class Flush {
+    }
+
+    private static final class WriteAck implements Tcp.Event {
+    }
+
+}
@@ -1,16 +1,79 @@
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import load.LoadProfile;
+import metrics.LatencyRecorder;
 
-import java.util.Date;
+import java.net.InetSocketAddress;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Main {
-    public static void main(String[] args) {
-        ActorSystem system = ActorSystem.create();
+    public static void main(String[] args) throws Exception {
+        // "clustered <port>" runs one node of a cluster sharding the books by instrument
+        boolean clustered = args.length > 1 && args[0].equals("clustered");
+        ActorSystem system = clustered ? ActorSystem.create("engine", clusterConfig(Integer.parseInt(args[1]))) : ActorSystem.create();
         int numOfTraderID = 0;
-        final ActorRef engine = system.actorOf(MatchEngine.props(), "engine");
+        // "sharded" runs one matching actor per instrument
+        boolean sharded = args.length > 0 && args[0].equals("sharded");
+        final ActorRef engine = system.actorOf(clustered ? ClusterMatchEngine.props()
+                : sharded ? ShardedMatchEngine.props() : MatchEngine.props(), "engine");
+
+        Config loadConfig = system.settings().config().getConfig("engine.load");
+        if (loadConfig.getBoolean("enabled")) {
+            runLoad(system, engine, LoadProfile.fromConfig(loadConfig));
+            return;
+        }
+
         final ActorRef trader1 = system.actorOf(Trader.props(engine, numOfTraderID++), "trader1");
         final ActorRef trader2 = system.actorOf(Trader.props(engine, numOfTraderID++), "trader2");
         final ActorRef trader3 = system.actorOf(Trader.props(engine, numOfTraderID++), "trader3");
+
+        Config gatewayConfig = system.settings().config().getConfig("engine.gateway");
+        if (gatewayConfig.getBoolean("enabled")) {
+            system.actorOf(Gateway.props(engine, new InetSocketAddress(gatewayConfig.getString("host"), gatewayConfig.getInt("port"))), "gateway");
+        }
+    }
+
+    //a cluster node on the port, joining engine.cluster.seed-nodes
+    private static Config clusterConfig(int port) {
+        Config config = ConfigFactory.load();
+        return config
+                .withValue("akka.actor.provider", ConfigValueFactory.fromAnyRef("cluster"))
+                .withValue("akka.remote.artery.canonical.hostname", ConfigValueFactory.fromAnyRef("127.0.0.1"))
+                .withValue("akka.remote.artery.canonical.port", ConfigValueFactory.fromAnyRef(port))
+                .withValue("akka.cluster.seed-nodes", config.getValue("engine.cluster.seed-nodes"));
+    }
+
+    //runs the load traders for the profile's duration, prints what they measured and stops the system
+    private static void runLoad(ActorSystem system, ActorRef engine, LoadProfile profile) throws Exception {
+        List<ActorRef> traders = new ArrayList<>();
+        for (int traderID = 0; traderID < profile.getTraders(); traderID++) {
+            traders.add(system.actorOf(Trader.props(engine, traderID, profile), "trader" + (traderID + 1)));
+        }
+        Thread.sleep(profile.getDuration().plus(profile.getDrain()).toMillis());
+
+        long sent = 0;
+        int outstanding = 0;
+        LatencyRecorder latencies = new LatencyRecorder();
+        for (ActorRef trader : traders) {
+            Trader.LoadResult result = (Trader.LoadResult) Patterns.ask(trader, new Trader.GetLoadResult(), Duration.ofSeconds(5))
+                    .toCompletableFuture().get();
+            sent += result.sent;
+            outstanding += result.outstanding;
+            latencies.add(result.latencies);
+        }
+        double seconds = profile.getDuration().toNanos() / 1e9;
+        System.out.printf("%d traders sent %d requests in %.1fs, %.0f requests/s offered, %.0f answered/s, %d unanswered%n",
+                traders.size(), sent, seconds, sent / seconds, latencies.getCount() / seconds, outstanding);
+        System.out.println("latency from intended send time: " + latencies.summary());
+        System.out.print(latencies.histogram());
+        system.terminate();
     }
 }
@@ -1,129 +1,502 @@
 
 import akka.actor.AbstractLoggingActor;
+import akka.actor.Cancellable;
 import akka.actor.Terminated;
+import collections.IntObjectMap;
+import com.typesafe.config.Config;
 import enums.Instrument;
 import enums.ExecType;
 import enums.RejectionReason;
-import enums.Status;
+import enums.Side;
+import enums.TimeInForce;
+import journal.EngineSnapshot;
+import journal.Journal;
+import journal.JournalListener;
+import journal.RequestCapture;
 import messages.*;
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import order.ObjectOrderMatcher;
 import order.Order;
-import order.MEOrderBook;
-
+import order.OrderMatcher;
+import order.OrderPool;
+import order.SlotOrderMatcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
-
-import static java.lang.Math.min;
+import java.util.concurrent.CompletableFuture;
 
 public class MatchEngine extends AbstractLoggingActor {
 
+    private static final Instrument[] INSTRUMENTS = Instrument.values();
 
-    private Map<Integer, ActorRef> subscribers;
-    private Map<Integer, ActorRef> nonSubscribers;
+
+    private IntObjectMap<ActorRef> subscribers;
+    private IntObjectMap<ActorRef> nonSubscribers;
     private ArrayList<ActorRef> nonSubscribersTonotify;
-    private Map<Integer, Order> orders;
-    private Map<Instrument, MEOrderBook> orderBooks;
-    private ArrayList<Response> reports;
+    // events of the current transaction, sent to subscribers as one MarketDataBatch
+    private ArrayList<Response> marketData;
+    // subscribers of aggregated depth, and the books the current transaction changed
+    private Map<ActorRef, DepthSubscription> depthSubscribers;
+    private EnumSet<Instrument> changedInstruments;
+    // set while the requests of a BatchOrderRequest are applied, matching waits for the batch's end
+    private boolean batching;
+    private EnumSet<Instrument> batchInstruments;
+    // answers of the batch's requests, null outside a batch and while replaying one
+    private ArrayList<ExecReportResponse> batchReports;
+    // the trader ID of each registered trader actor
+    private Map<ActorRef, Integer> traderIDs;
+    // the books and the matching on them, created in preStart with the order pool
+    private OrderMatcher matcher;
+    private OrderMatcher.TradeListener tradeListener;
+    private OrderMatcher.FillListener immediateFillListener;
+    // the non-subscriber whose immediate order is matching, it gets the TradeMessages of the fills
+    private ActorRef immediateTrader;
     private int numOfOrderID;
+    // set when the engine runs as one instrument's shard behind ShardedMatchEngine, or as a cluster entity
+    private Instrument shardInstrument;
+    // the book of a BookEntity, which hands its state to the book's next incarnation
+    private boolean clusterEntity;
+    // write-ahead journal of accepted requests, see engine.journal settings
+    private Journal journal;
+    private Cancellable journalSync;
+    private boolean replaying;
+    // traders whose orders were restored from the journal and who haven't connected yet
+    private Set<Integer> recoveredTraders;
+    // periodic snapshots of the books, see engine.snapshot settings
+    private Path snapshotDirectory;
+    private int snapshotRetain;
+    private Cancellable snapshotTimer;
+    private boolean snapshotInFlight;
+    private long snapshotRecords;
+    // inbound requests for replay, see engine.capture settings, and the number of each sender in it
+    private RequestCapture capture;
+    private Map<ActorRef, Integer> captureSenders;
+
+    private static final class SyncJournal {
+    }
+
+    // sent by the snapshot timer, tests send it to take a snapshot right away
+    static final class TakeSnapshot {
+    }
+
+    private static final class SnapshotWritten {
+        final Path path;
+        final Throwable error;
+
+        SnapshotWritten(Path path, Throwable error) {
+            this.path = path;
+            this.error = error;
+        }
+    }
+
+    // a depth subscriber has at most one MarketDepth to acknowledge, books that change
+    // meanwhile wait in dirty and are sent with their state at that time
+    private static final class DepthSubscription {
+        final int depth;
+        final ArrayDeque<Instrument> dirty;
+        final EnumMap<Instrument, MarketDepth> lastSent;
+        boolean inFlight;
+
+        DepthSubscription(int depth) {
+            this.depth = depth;
+            this.dirty = new ArrayDeque<>();
+            this.lastSent = new EnumMap<>(Instrument.class);
+        }
+
+        void markDirty(Instrument instrument) {
+            if (!dirty.contains(instrument)) {
+                dirty.add(instrument);
+            }
+        }
+    }
+
+    // new order forwarded by ShardedMatchEngine with the order ID it assigned
+    static final class RoutedNewOrder {
+        final int orderID;
+        final NewOrderRequest request;
+
+        RoutedNewOrder(int orderID, NewOrderRequest request) {
+            this.orderID = orderID;
+            this.request = request;
+        }
+    }
+
+    // the part of a batch ShardedMatchEngine or ClusterMatchEngine sends to a shard, with the order IDs the
+    // router assigned to its new orders, or null for the shard to assign them. the shard answers the router
+    // with a ShardBatchAnswered, which answers the trader for the whole batch
+    static final class RoutedBatch {
+        final int batchID;
+        final int part;
+        final int[] orderIDs;
+        final BatchOrderRequest batch;
+        final ActorRef router;
+
+        RoutedBatch(int batchID, int part, int[] orderIDs, BatchOrderRequest batch, ActorRef router) {
+            this.batchID = batchID;
+            this.part = part;
+            this.orderIDs = orderIDs;
+            this.batch = batch;
+            this.router = router;
+        }
+    }
+
+    // the shard's reports of a RoutedBatch in the order of its requests, sent once the shard's matching is done
+    static final class ShardBatchAnswered {
+        final int batchID;
+        final int part;
+        final ExecReportResponse[] reports;
+
+        ShardBatchAnswered(int batchID, int part, ExecReportResponse[] reports) {
+            this.batchID = batchID;
+            this.part = part;
+            this.reports = reports;
+        }
+    }
+
+    // a mass cancel of every instrument, sent by ShardedMatchEngine or ClusterMatchEngine to every book
+    // with the router to answer, which tells the trader the books' answers as one
+    static final class RoutedMassCancel {
+        final int massCancelID;
+        final MassCancelRequest request;
+        final ActorRef router;
+
+        RoutedMassCancel(int massCancelID, MassCancelRequest request, ActorRef router) {
+            this.massCancelID = massCancelID;
+            this.request = request;
+            this.router = router;
+        }
+    }
+
+    // the shard's answer to a RoutedMassCancel, the REMOVE reports of its orders or a rejection
+    static final class ShardMassCanceled {
+        final int massCancelID;
+        final ExecReportResponse[] responses;
+        final ExecReportResponse rejection;
+
+        ShardMassCanceled(int massCancelID, ExecReportResponse[] responses, ExecReportResponse rejection) {
+            this.massCancelID = massCancelID;
+            this.responses = responses;
+            this.rejection = rejection;
+        }
+    }
+
+    // asks the engine of a BookEntity for its EntityState
+    static final class GetEntityState {
+    }
+
+    // what a BookEntity hands off: the order ID counter, the sequence, the traders with orders and the book.
+    // the engine answers GetEntityState with it, and the engine of the next incarnation restores it
+    static final class EntityState {
+        final int numOfOrderID;
+        final long numOfSequence;
+        final Map<Integer, ActorRef> traders;
+        final BookSnapshot book;
+
+        EntityState(int numOfOrderID, long numOfSequence, Map<Integer, ActorRef> traders, BookSnapshot book) {
+            this.numOfOrderID = numOfOrderID;
+            this.numOfSequence = numOfSequence;
+            this.traders = traders;
+            this.book = book;
+        }
+    }
+
+    // tells ShardedMatchEngine that the shard has sent its snapshot to the subscriber
+    static final class ShardSubscribed {
+        final ActorRef subscriber;
+
+        ShardSubscribed(ActorRef subscriber) {
+            this.subscriber = subscriber;
+        }
+    }
 
     public MatchEngine() {
-        subscribers = new HashMap<>();
-        nonSubscribers = new HashMap<>();
+        this(null);
+    }
+
+    public MatchEngine(Instrument shardInstrument) {
+        this.shardInstrument = shardInstrument;
+        subscribers = new IntObjectMap<>();
+        nonSubscribers = new IntObjectMap<>();
         nonSubscribersTonotify = new ArrayList<>();
-        orders = new HashMap<>();
-        orderBooks = new HashMap<>();
-        reports = new ArrayList<>();
+        marketData = new ArrayList<>();
+        depthSubscribers = new HashMap<>();
+        changedInstruments = EnumSet.noneOf(Instrument.class);
+        batchInstruments = EnumSet.noneOf(Instrument.class);
+        traderIDs = new HashMap<>();
+        tradeListener = this::onTrade;
+        immediateFillListener = this::onImmediateFill;
         numOfOrderID = 0;
+        recoveredTraders = new HashSet<>();
+    }
+
+    //the book of a BookEntity
+    public MatchEngine(Instrument shardInstrument, boolean clusterEntity) {
+        this(shardInstrument);
+        this.clusterEntity = clusterEntity;
     }
 
+    //the engine's mailbox applies engine.admission
     public static Props props() {
-        return Props.create(MatchEngine.class);
+        return Props.create(MatchEngine.class).withMailbox("engine.admission");
+    }
+
+    //the router of a shard applies engine.admission, before it wraps requests for the shard
+    public static Props props(Instrument shardInstrument) {
+        return Props.create(MatchEngine.class, shardInstrument);
+    }
+
+    //actors under /system default to the internal dispatcher, the books shouldn't match on akka's own threads
+    public static Props entityProps(Instrument instrument) {
+        return Props.create(MatchEngine.class, instrument, true).withDispatcher("akka.actor.default-dispatcher");
+    }
+
+    @Override
+    public void preStart() throws Exception {
+        // recycles orders that left the book, see engine.order-pool settings
+        Config orderPoolConfig = getContext().getSystem().settings().config().getConfig("engine.order-pool");
+        OrderPool orderPool = orderPoolConfig.getBoolean("enabled") ? new OrderPool(orderPoolConfig.getInt("size")) : null;
+        // keeps the resting orders as objects or in the columns of an OrderStore, see engine.order-store settings
+        Config orderStoreConfig = getContext().getSystem().settings().config().getConfig("engine.order-store");
+        switch (orderStoreConfig.getString("type")) {
+            case "objects":
+                matcher = new ObjectOrderMatcher(orderPool);
+                break;
+            case "slots":
+                matcher = new SlotOrderMatcher(orderPool, orderStoreConfig.getInt("initial-capacity"));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine.order-store.type: " + orderStoreConfig.getString("type"));
+        }
+
+        Config captureConfig = getContext().getSystem().settings().config().getConfig("engine.capture");
+        if (captureConfig.getBoolean("enabled") && shardInstrument == null) {
+            capture = new RequestCapture(Paths.get(captureConfig.getString("file")), (int) (long) captureConfig.getBytes("buffer-size"));
+            captureSenders = new HashMap<>();
+        }
+
+        Config journalConfig = getContext().getSystem().settings().config().getConfig("engine.journal");
+        // shards don't journal, their order IDs come from ShardedMatchEngine
+        if (!journalConfig.getBoolean("enabled") || shardInstrument != null) return;
+
+        journal = new Journal(Paths.get(journalConfig.getString("directory")),
+                (int) (long) journalConfig.getBytes("segment-size"),
+                journalConfig.getInt("sync-batch-size"));
+
+        // snapshots only make sense on top of the journal, which holds the input after them
+        Config snapshotConfig = getContext().getSystem().settings().config().getConfig("engine.snapshot");
+        EngineSnapshot snapshot = null;
+        if (snapshotConfig.getBoolean("enabled")) {
+            snapshotDirectory = Paths.get(snapshotConfig.getString("directory"));
+            snapshotRetain = snapshotConfig.getInt("retain");
+            snapshot = loadSnapshot();
+        }
+        if (snapshot == null) {
+            replayJournal(0, 0);
+        } else {
+            replayJournal(snapshot.getJournalSegment(), snapshot.getJournalPosition());
+            for (int subscriberID : snapshot.getSubscriberIDs()) {
+                recoveredTraders.add(subscriberID);
+            }
+        }
+
+        Duration syncInterval = journalConfig.getDuration("sync-interval");
+        journalSync = getContext().getSystem().scheduler().scheduleWithFixedDelay(syncInterval, syncInterval,
+                getSelf(), new SyncJournal(), getContext().getDispatcher(), ActorRef.noSender());
+        if (snapshotDirectory != null) {
+            Duration snapshotInterval = snapshotConfig.getDuration("interval");
+            snapshotTimer = getContext().getSystem().scheduler().scheduleWithFixedDelay(snapshotInterval, snapshotInterval,
+                    getSelf(), new TakeSnapshot(), getContext().getDispatcher(), ActorRef.noSender());
+        }
+    }
+
+    @Override
+    public void postStop() throws Exception {
+        if (capture != null) {
+            log().info("Captured " + capture.getNumOfRecords() + " Requests");
+            capture.close();
+        }
+        if (snapshotTimer != null) {
+            snapshotTimer.cancel();
+        }
+        if (journal != null) {
+            journalSync.cancel();
+            journal.close();
+        }
     }
 
     @Override
     public Receive createReceive() {
         return receiveBuilder().match(NewOrderRequest.class, request -> {
-            onNewOrderRequest(request, getSender());
+            capture(request);
+            onNewOrderRequest(request, nextOrderID(), getSender());
+        }).match(RoutedNewOrder.class, routed -> {
+            onNewOrderRequest(routed.request, routed.orderID, getSender());
         }).match(ModifyOrderRequest.class, request -> {
+            capture(request);
             onModifyOrderRequest(request, getSender());
         }).match(CancelOrderRequest.class, request -> {
+            capture(request);
             onCancelOrderRequest(request, getSender());
+        }).match(MassCancelRequest.class, request -> {
+            capture(request);
+            onMassCancelRequest(request, getSender(), null);
+        }).match(RoutedMassCancel.class, routed -> {
+            onMassCancelRequest(routed.request, getSender(), routed);
+        }).match(BatchOrderRequest.class, batch -> {
+            capture(batch);
+            onBatchOrderRequest(batch, null, getSender());
+        }).match(RoutedBatch.class, routed -> {
+            onBatchOrderRequest(routed.batch, routed, getSender());
         }).match(SubscriptionRequest.class, request -> {
             onSubscriptionRequest(getSender(), request);
-        }).match(Terminated.class, this::onTerminationMessage).build();
+        }).match(DepthSubscriptionRequest.class, request -> {
+            onDepthSubscriptionRequest(getSender(), request);
+        }).match(MarketDepthAck.class, m -> {
+            onMarketDepthAck(getSender());
+        }).match(SyncJournal.class, m -> {
+            journal.sync();
+        }).match(TakeSnapshot.class, m -> {
+            takeSnapshot();
+        }).match(SnapshotWritten.class, this::onSnapshotWritten
+        ).match(GetEntityState.class, m -> {
+            getSender().tell(new EntityState(numOfOrderID, matcher.getNumOfSequence(),
+                    new HashMap<>(nonSubscribers), matcher.snapshot(shardInstrument)), getSelf());
+        }).match(EntityState.class, this::restoreEntityState
+        ).match(Terminated.class, this::onTerminationMessage).build();
+    }
+
+    //order IDs of a cluster entity carry its instrument like those of ShardedMatchEngine, so every node's
+    //ClusterMatchEngine routes modify and cancel requests without a lookup
+    private int nextOrderID() {
+        if (clusterEntity) {
+            return numOfOrderID * INSTRUMENTS.length + shardInstrument.ordinal();
+        }
+        return numOfOrderID;
+    }
+
+    //the state the BookEntity read, before any request of the book
+    private void restoreEntityState(EntityState state) {
+        numOfOrderID = state.numOfOrderID;
+        matcher.setNumOfSequence(state.numOfSequence);
+        for (Map.Entry<Integer, ActorRef> trader : state.traders.entrySet()) {
+            addTrader(nonSubscribers, trader.getKey(), trader.getValue());
+            context().watch(trader.getValue());
+        }
+        matcher.openBook(shardInstrument);
+        for (int i = 0; i < state.book.size(); i++) {
+            matcher.restoreOrder(state.book.toOrder(i));
+        }
     }
 
-    private void onNewOrderRequest(NewOrderRequest request, ActorRef trader) {
+    //records the request with its arrival time and the sender it came from
+    private void capture(Request request) {
+        if (capture == null) return;
+        Integer sender = captureSenders.get(getSender());
+        if (sender == null) {
+            sender = captureSenders.size();
+            captureSenders.put(getSender(), sender);
+        }
+        capture.append(System.nanoTime(), sender, request);
+    }
+
+    private void onNewOrderRequest(NewOrderRequest request, int orderID, ActorRef trader) {
         log().info("Received New Order Request: " + request.toString());
         ExecReportResponse response;
 
 
         // if NOR is valid, ME creates NO, adds NO and tries to match the best orders
-        RejectionReason rejectionReason = newOrderRequestRejectionReason(request);
+        RejectionReason rejectionReason = replaying ? null : matcher.newOrderRejectionReason(request);
         if (rejectionReason == null) {
+            boolean immediate = request.getTimeInForce().isImmediate();
+            if (journal != null && !replaying) {
+                if (immediate) {
+                    journal.appendImmediateOrder(orderID, request.getTraderID(), request.getSide(), request.getInstrument(),
+                            request.getQuantity(), request.getInstrument().toTicks(request.getPrice()), request.getTimeInForce());
+                } else {
+                    journal.appendNewOrder(orderID, request.getTraderID(), request.getSide(), request.getInstrument(),
+                            request.getQuantity(), request.getInstrument().toTicks(request.getPrice()));
+                }
+            }
+            recoveredTraders.remove(request.getTraderID());
 
-            if (!subscribers.containsKey(request.getTraderID()) && !nonSubscribers.containsKey(request.getTraderID())) {
-                nonSubscribers.put(request.getTraderID(), trader);
+            if (!replaying && !subscribers.containsKey(request.getTraderID()) && !nonSubscribers.containsKey(request.getTraderID())) {
+                addTrader(nonSubscribers, request.getTraderID(), trader);
                 context().watch(trader);
             }
 
-            Order newOrder = generateNewOrder(request);
-            addNewOrder(newOrder);
+            if (immediate) {
+                executeImmediateOrder(request, orderID);
+                return;
+            }
+
+            Order newOrder = matcher.addOrder(request, orderID);
+            numOfOrderID++;
 
             response = new ExecReportResponse(newOrder, ExecType.ADD);
             log().info("Distributing Execution Report: " + response.toString() + " To " + subscribers.size() + " Subscribers");
-            reports.add(response);
 
             if (nonSubscribers.containsKey(request.getTraderID())) {
-                nonSubscribersTonotify.add(nonSubscribers.get(request.getTraderID()));
-                trader.tell(response, getSelf());
+                notifyAtTransactionEnd(nonSubscribers.get(request.getTraderID()));
+                reply(trader, response);
+            } else {
+                replyInBatch(response);
             }
             notifySubscribers(response);
             matchOrders(request.getInstrument());
         } else {
             log().info("New Order Request Rejection Reason: " + rejectionReason.name());
             response = new ExecReportResponse(request, rejectionReason);
-            trader.tell(response, getSelf());
+            reply(trader, response);
         }
     }
 
-    //checks whether NOR is valid
-    private RejectionReason newOrderRequestRejectionReason(NewOrderRequest request) {
-        if (request.getPrice() <= 0) {
-            return RejectionReason.INVALID_PRICE;
-        }
+    //matches an IOC or FOK order against the book and drops what is left of it. a non-subscriber gets the
+    //TradeMessages of its fills, then one final report with the quantity left, then a TransactionComplete
+    private void executeImmediateOrder(NewOrderRequest request, int orderID) {
+        // a fill against the trader's own last order may unregister it, so it is looked up before matching
+        ActorRef trader = nonSubscribers.get(request.getTraderID());
+        immediateTrader = trader;
+        Order order = matcher.matchImmediate(request, orderID, immediateFillListener);
+        immediateTrader = null;
+        numOfOrderID++;
 
-        if (request.getQuantity() <= 0) {
-            return RejectionReason.INVALID_QUANTITY;
+        ExecReportResponse response = new ExecReportResponse(order, ExecType.REMOVE);
+        matcher.release(order);
+        log().info("Immediate Order " + response.getStatus() + " With " + response.getQuantity() + " Left");
+        if (trader != null) {
+            notifyAtTransactionEnd(trader);
+            reply(trader, response);
+        }
+        notifySubscribers(response);
+        publishMarketData();
+        tellTCToNonSubscribers(new TransactionComplete());
+        if (nonSubscribers.containsKey(request.getTraderID())) {
+            tryRemovingTrader(request.getTraderID());
         }
-
-        return null;
-    }
-
-    //generates NO according to NOR
-    private Order generateNewOrder(NewOrderRequest newRequest) {
-
-        Order newOrder = new Order(newRequest.getTraderID(), numOfOrderID, newRequest.getSide(), newRequest.getInstrument());
-        newOrder.setPrice(newRequest.getPrice());
-        newOrder.setOrderDate(newRequest.getDate());
-        newOrder.setQuantity(newRequest.getQuantity());
-        newOrder.setStatus(Status.ACTIVE);
-        return newOrder;
     }
 
-    //adds NO to order books
-    private void addNewOrder(Order newOrder) {
-
-        orders.put(numOfOrderID, newOrder);
-        numOfOrderID++;
-
+    //routes the resting order's side of an immediate order's fill, the aggressor's report comes at the end
+    private void onImmediateFill(ExecReportResponse restingResponse, TradeMessage tradeMessage) {
+        tellTradeResponseToNonSubscriber(restingResponse);
+        notifySubscribers(restingResponse);
 
-        // Case of new Instrument
-        if (!orderBooks.containsKey(newOrder.getInstrument())) {
-            orderBooks.put(newOrder.getInstrument(), new MEOrderBook(newOrder.getInstrument()));
+        if (nonSubscribers.containsKey(restingResponse.getTraderID())) {
+            nonSubscribers.get(restingResponse.getTraderID()).tell(tradeMessage, getSelf());
+            if (restingResponse.getExecType() == ExecType.REMOVE) {
+                tryRemovingTrader(restingResponse.getTraderID());
+            }
+        }
+        if (immediateTrader != null) {
+            immediateTrader.tell(tradeMessage, getSelf());
         }
+        notifySubscribers(tradeMessage);
 
-        orderBooks.get(newOrder.getInstrument()).addOrder(newOrder);
+        log().debug("Trade Completed: {}", tradeMessage);
     }
 
     private void onModifyOrderRequest(ModifyOrderRequest request, ActorRef trader) {
@@ -131,34 +504,39 @@ public class MatchEngine extends AbstractLoggingActor {
         ExecReportResponse response;
 
         // if MOR is valid, ME modifies order and tries to match the best orders
-        RejectionReason rejectionReason = modifyOrderRequestRejectionReason(request, trader);
+        RejectionReason rejectionReason = replaying ? null : modifyOrderRequestRejectionReason(request, trader);
         if (rejectionReason == null) {
-            Order modifiedOrder = orders.get(request.getOrderID());
-            orderBooks.get(modifiedOrder.getInstrument()).modifyOrder(request);
+            if (journal != null && !replaying) {
+                Instrument instrument = matcher.getInstrument(request.getOrderID());
+                journal.appendModifyOrder(request.getOrderID(), request.getTraderID(), request.getQuantity(), instrument.toTicks(request.getPrice()));
+            }
+            Order modifiedOrder = matcher.modifyOrder(request);
 
             response = new ExecReportResponse(modifiedOrder, ExecType.UPDATE);
-            reports.add(response);
             log().info("Distributing Execution Report: " + response.toString() + " To " + subscribers.size() + " Subscribers");
 
             if (nonSubscribers.containsKey(request.getTraderID())) {
-                nonSubscribersTonotify.add(nonSubscribers.get(request.getTraderID()));
-                trader.tell(response, getSelf());
+                notifyAtTransactionEnd(nonSubscribers.get(request.getTraderID()));
+                reply(trader, response);
+            } else {
+                replyInBatch(response);
             }
             notifySubscribers(response);
             matchOrders(modifiedOrder.getInstrument());
         } else {
             log().info("Modify Order Request Rejection Reason: " + rejectionReason.name());
             response = new ExecReportResponse(request, rejectionReason);
-            trader.tell(response, getSelf());
+            reply(trader, response);
         }
 
     }
 
     //checks whether MOR is valid
     private RejectionReason modifyOrderRequestRejectionReason(ModifyOrderRequest request, ActorRef trader) {
+        claimRecoveredTrader(request.getTraderID(), trader);
 
-
-        if (!subscribers.containsKey(request.getTraderID()) && !nonSubscribers.containsKey(request.getTraderID())) {
+        // shards leave trader identity to ShardedMatchEngine, a trader may have no orders on this shard yet
+        if (shardInstrument == null && !subscribers.containsKey(request.getTraderID()) && !nonSubscribers.containsKey(request.getTraderID())) {
             return RejectionReason.INVALID_TRADER_ID;
         }
 
@@ -174,21 +552,7 @@ public class MatchEngine extends AbstractLoggingActor {
             return RejectionReason.INVALID_TRADER_ID;
         }
 
-        if (!orders.containsKey(request.getOrderID()) ||
-                orders.get(request.getOrderID()).getTraderID() != request.getTraderID()
-        ) {
-            return RejectionReason.INVALID_ORDER_ID;
-        }
-
-        if (request.getPrice() <= 0) {
-            return RejectionReason.INVALID_PRICE;
-        }
-
-        if (request.getQuantity() <= 0) {
-            return RejectionReason.INVALID_QUANTITY;
-        }
-
-        return null;
+        return matcher.modifyOrderRejectionReason(request);
     }
 
     private void onCancelOrderRequest(CancelOrderRequest request, ActorRef trader) {
@@ -196,54 +560,218 @@ public class MatchEngine extends AbstractLoggingActor {
 
         ExecReportResponse response;
 
-        RejectionReason rejectionReason = cancelOrderRequestRejectionReason(request, trader);
+        RejectionReason rejectionReason = replaying ? null : cancelOrderRequestRejectionReason(request, trader);
         //if COR is valid, ME cancels order
         if (rejectionReason == null) {
-            Order canceledOrder = orders.get(request.getOrderID());
-            canceledOrder.setStatus(Status.CANCELED);
-            orderBooks.get(canceledOrder.getInstrument()).cancelOrder(request.getOrderID());
-            orders.remove(request.getOrderID());
-
+            if (journal != null && !replaying) {
+                journal.appendCancelOrder(request.getOrderID(), request.getTraderID());
+            }
+            Order canceledOrder = matcher.cancelOrder(request.getOrderID());
             response = new ExecReportResponse(canceledOrder, ExecType.REMOVE);
-            TransactionComplete transactionComplete = new TransactionComplete();
-            reports.add(response);
-            reports.add(transactionComplete);
+            matcher.release(canceledOrder);
             log().info("Distributing Execution Report: " + response.toString() + " To " + subscribers.size() + " Subscribers");
 
             if (nonSubscribers.containsKey(request.getTraderID())) {
-                trader.tell(response, getSelf());
-                trader.tell(transactionComplete, getSelf());
+                reply(trader, response);
+                if (!batching) {
+                    trader.tell(new TransactionComplete(), getSelf());
+                }
                 tryRemovingTrader(request.getTraderID());
+            } else {
+                replyInBatch(response);
             }
             notifySubscribers(response);
-            notifySubscribers(transactionComplete);
+            if (!batching) {
+                publishMarketData();
+            }
         } else {
             log().info("Cancel Order Request Rejection Reason: " + rejectionReason.name());
             response = new ExecReportResponse(request, rejectionReason);
+            reply(trader, response);
+        }
+
+    }
+
+    //cancels the trader's orders that match the request in one pass, the trader gets their REMOVE reports
+    //in one BatchExecReportResponse and subscribers get them in one MarketDataBatch
+    //the answer to a RoutedMassCancel goes to its router instead
+    private void onMassCancelRequest(MassCancelRequest request, ActorRef trader, RoutedMassCancel routed) {
+        log().info("Received Mass Cancel Request: " + request.toString());
+
+        RejectionReason rejectionReason = replaying ? null : massCancelRequestRejectionReason(request, trader);
+        if (rejectionReason != null) {
+            log().info("Mass Cancel Request Rejection Reason: " + rejectionReason.name());
+            ExecReportResponse rejection = new ExecReportResponse(request, rejectionReason);
+            if (routed == null) {
+                trader.tell(rejection, getSelf());
+            } else {
+                routed.router.tell(new ShardMassCanceled(routed.massCancelID, null, rejection), getSelf());
+            }
+            return;
+        }
+
+        if (journal != null && !replaying) {
+            journal.appendMassCancel(request.getTraderID(), request.getInstrument(), request.getSide());
+        }
+        ExecReportResponse[] responses = cancelOrders(request.getTraderID(), request.getInstrument(), request.getSide());
+        log().info("Distributing " + responses.length + " Execution Reports To " + subscribers.size() + " Subscribers");
+        publishMarketData();
+        if (replaying) return;
+
+        if (routed != null) {
+            routed.router.tell(new ShardMassCanceled(routed.massCancelID, responses, null), getSelf());
+        } else {
+            trader.tell(new BatchExecReportResponse(responses), getSelf());
+            if (!isSubscriber(trader)) {
+                trader.tell(new TransactionComplete(), getSelf());
+            }
+        }
+        if (nonSubscribers.containsKey(request.getTraderID())) {
+            tryRemovingTrader(request.getTraderID());
+        }
+    }
+
+    //a trader may only cancel their own orders, a trader without any gets an empty answer
+    private RejectionReason massCancelRequestRejectionReason(MassCancelRequest request, ActorRef trader) {
+        claimRecoveredTrader(request.getTraderID(), trader);
+
+        if (subscribers.containsKey(request.getTraderID()) && !subscribers.get(request.getTraderID()).equals(trader)) {
+            return RejectionReason.INVALID_TRADER_ID;
+        }
+
+        if (nonSubscribers.containsKey(request.getTraderID()) && !nonSubscribers.get(request.getTraderID()).equals(trader)) {
+            return RejectionReason.INVALID_TRADER_ID;
+        }
+
+        return null;
+    }
+
+    //takes the matching orders out of the books and queues their REMOVE reports for subscribers,
+    //null instrument or side matches any. market data is left to the caller
+    private ExecReportResponse[] cancelOrders(int traderID, Instrument instrument, Side side) {
+        List<Order> canceledOrders = new ArrayList<>();
+        matcher.cancelOrders(traderID, instrument, side, canceledOrders);
+        ExecReportResponse[] responses = new ExecReportResponse[canceledOrders.size()];
+        for (int i = 0; i < responses.length; i++) {
+            Order order = canceledOrders.get(i);
+            responses[i] = new ExecReportResponse(order, ExecType.REMOVE);
+            notifySubscribers(responses[i]);
+            matcher.release(order);
+        }
+        return responses;
+    }
+
+    //applies the requests of the batch in order and matches the instruments they touched once at the end.
+    //the reports of a RoutedBatch go to its router, which also completes the trader's transaction
+    private void onBatchOrderRequest(BatchOrderRequest batch, RoutedBatch routed, ActorRef trader) {
+        int[] orderIDs = routed == null ? null : routed.orderIDs;
+        log().info("Received Batch Order Request With " + batch.size() + " Requests");
+        beginBatch();
+        batchReports = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            if (request instanceof NewOrderRequest && ((NewOrderRequest) request).getTimeInForce().isImmediate()) {
+                // an immediate order has to match where it stands, which the batch's deferred matching can't do
+                log().info("New Order Request Rejection Reason: " + RejectionReason.INVALID_TIME_IN_FORCE.name());
+                reply(trader, new ExecReportResponse((NewOrderRequest) request, RejectionReason.INVALID_TIME_IN_FORCE));
+            } else if (request instanceof NewOrderRequest) {
+                onNewOrderRequest((NewOrderRequest) request, orderIDs == null ? nextOrderID() : orderIDs[i], trader);
+            } else if (request instanceof ModifyOrderRequest) {
+                onModifyOrderRequest((ModifyOrderRequest) request, trader);
+            } else {
+                onCancelOrderRequest((CancelOrderRequest) request, trader);
+            }
+        }
+        ExecReportResponse[] reports = batchReports.toArray(new ExecReportResponse[0]);
+        batchReports = null;
+        if (routed == null) {
+            trader.tell(new BatchExecReportResponse(reports), getSelf());
+            endBatch(trader, false);
+        } else {
+            endBatch(trader, true);
+            routed.router.tell(new ShardBatchAnswered(routed.batchID, routed.part, reports), getSelf());
+        }
+    }
+
+    private void beginBatch() {
+        if (journal != null && !replaying) {
+            journal.appendBatchStart();
+        }
+        batching = true;
+    }
+
+    //matches the instruments the batch touched and completes the transaction, the requester gets a
+    //TransactionComplete unless it is a subscriber or the router of a RoutedBatch sends it one
+    private void endBatch(ActorRef requester, boolean routed) {
+        if (journal != null && !replaying) {
+            journal.appendBatchEnd();
+        }
+        batching = false;
+        for (Instrument instrument : batchInstruments) {
+            matcher.match(instrument, tradeListener);
+        }
+        batchInstruments.clear();
+        publishMarketData();
+        if (routed) {
+            nonSubscribersTonotify.remove(requester);
+        } else if (requester != null && !isSubscriber(requester)) {
+            notifyAtTransactionEnd(requester);
+        }
+        tellTCToNonSubscribers(new TransactionComplete());
+    }
+
+    private boolean isSubscriber(ActorRef trader) {
+        Integer traderID = traderIDs.get(trader);
+        return traderID != null && trader.equals(subscribers.get((int) traderID));
+    }
+
+    //answers a request, in a batch the answer waits for the batch's BatchExecReportResponse
+    private void reply(ActorRef trader, ExecReportResponse response) {
+        if (batchReports != null) {
+            batchReports.add(response);
+        } else {
             trader.tell(response, getSelf());
         }
+    }
 
+    //subscribers get their reports with the market data, but a batch answers each of its requests
+    private void replyInBatch(ExecReportResponse response) {
+        if (batchReports != null) {
+            batchReports.add(response);
+        }
     }
 
     private void tryRemovingTrader(int traderID) {
         if (hasNoOrders(traderID)) {
-            context().unwatch(nonSubscribers.get(traderID));
-            nonSubscribers.remove(traderID);
+            // a depth subscriber is still watched for its subscription
+            if (!depthSubscribers.containsKey(nonSubscribers.get(traderID))) {
+                context().unwatch(nonSubscribers.get(traderID));
+            }
+            removeTrader(nonSubscribers, traderID);
         }
     }
 
     private boolean hasNoOrders(int traderID) {
-        for (int orderID : orders.keySet()) {
-            if (orders.get(orderID).getTraderID() == traderID) {
-                return false;
-            }
+        return !matcher.hasOrders(traderID);
+    }
+
+    //registers the trader in subscribers or nonSubscribers
+    private void addTrader(IntObjectMap<ActorRef> traders, int traderID, ActorRef trader) {
+        traders.put(traderID, trader);
+        traderIDs.put(trader, traderID);
+    }
+
+    private void removeTrader(IntObjectMap<ActorRef> traders, int traderID) {
+        ActorRef trader = traders.remove(traderID);
+        if (trader != null) {
+            traderIDs.remove(trader, traderID);
         }
-        return true;
     }
 
     private RejectionReason cancelOrderRequestRejectionReason(CancelOrderRequest request, ActorRef trader) {
+        claimRecoveredTrader(request.getTraderID(), trader);
 
-        if (!subscribers.containsKey(request.getTraderID()) && !nonSubscribers.containsKey(request.getTraderID())) {
+        if (shardInstrument == null && !subscribers.containsKey(request.getTraderID()) && !nonSubscribers.containsKey(request.getTraderID())) {
             return RejectionReason.INVALID_TRADER_ID;
         }
 
@@ -255,111 +783,258 @@ public class MatchEngine extends AbstractLoggingActor {
             return RejectionReason.INVALID_TRADER_ID;
         }
 
-        if (!orders.containsKey(request.getOrderID()) || orders.get(request.getOrderID()).getTraderID() != request.getTraderID()) {
-            return RejectionReason.INVALID_ORDER_ID;
+        return matcher.cancelOrderRejectionReason(request);
+    }
+
+    //restores the books from the newest snapshot, returns null if there is none
+    private EngineSnapshot loadSnapshot() throws IOException {
+        List<Path> snapshots = EngineSnapshot.list(snapshotDirectory);
+        if (snapshots.isEmpty()) return null;
+
+        Path path = snapshots.get(snapshots.size() - 1);
+        EngineSnapshot snapshot = EngineSnapshot.read(path);
+        numOfOrderID = snapshot.getNumOfOrderID();
+        matcher.setNumOfSequence(snapshot.getNumOfSequence());
+        for (BookSnapshot book : snapshot.getBooks()) {
+            matcher.openBook(book.getInstrument());
+            for (int i = 0; i < book.size(); i++) {
+                matcher.restoreOrder(book.toOrder(i));
+            }
+        }
+        log().info("Loaded Snapshot " + path + ", " + matcher.getNumOfOrders() + " Live Orders");
+        return snapshot;
+    }
+
+    //copies the books on the actor, the file is written on the blocking io dispatcher
+    private void takeSnapshot() {
+        if (snapshotInFlight || journal.getNumOfRecords() == snapshotRecords) return;
+
+        List<BookSnapshot> books = new ArrayList<>();
+        for (Instrument instrument : matcher.getInstruments()) {
+            books.add(matcher.snapshot(instrument));
+        }
+        int[] subscriberIDs = subscribers.keySet().stream().mapToInt(Integer::intValue).toArray();
+        EngineSnapshot snapshot = new EngineSnapshot(journal.getSegmentIndex(), journal.getSegmentPosition(),
+                numOfOrderID, matcher.getNumOfSequence(), subscriberIDs, books);
+        snapshotInFlight = true;
+        snapshotRecords = journal.getNumOfRecords();
+
+        Path directory = snapshotDirectory;
+        int retain = snapshotRetain;
+        ActorRef self = getSelf();
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                Path path = snapshot.write(directory);
+                EngineSnapshot.deleteOld(directory, retain);
+                return path;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, getContext().getSystem().dispatchers().lookup("akka.actor.default-blocking-io-dispatcher"))
+                .whenComplete((path, error) -> self.tell(new SnapshotWritten(path, error), ActorRef.noSender()));
+    }
+
+    private void onSnapshotWritten(SnapshotWritten written) {
+        snapshotInFlight = false;
+        if (written.error != null) {
+            log().error(written.error, "Writing Snapshot Failed");
+            // try again on the next tick
+            snapshotRecords = -1;
+        } else {
+            log().info("Snapshot Written: " + written.path);
+        }
+    }
+
+    //rebuilds the books from the journal, replayed requests were accepted before, so they skip validation
+    private void replayJournal(int fromSegment, int fromPosition) throws IOException {
+        ActorRef noTrader = getContext().getSystem().deadLetters();
+        replaying = true;
+        long replayed = journal.replay(new JournalListener() {
+            @Override
+            public void onNewOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price) {
+                onNewOrderRequest(new NewOrderRequest(side, instrument, quantity, instrument.toPrice(price), null, traderID), orderID, noTrader);
+            }
+
+            @Override
+            public void onImmediateOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price, TimeInForce timeInForce) {
+                onNewOrderRequest(new NewOrderRequest(side, instrument, quantity, instrument.toPrice(price), null, traderID, timeInForce), orderID, noTrader);
+            }
+
+            @Override
+            public void onModifyOrder(int orderID, int traderID, int quantity, long price) {
+                Instrument instrument = matcher.getInstrument(orderID);
+                onModifyOrderRequest(new ModifyOrderRequest(orderID, traderID, quantity, instrument.toPrice(price)), noTrader);
+            }
+
+            @Override
+            public void onCancelOrder(int orderID, int traderID) {
+                onCancelOrderRequest(new CancelOrderRequest(orderID, traderID), noTrader);
+            }
+
+            @Override
+            public void onMassCancel(int traderID, Instrument instrument, Side side) {
+                onMassCancelRequest(new MassCancelRequest(traderID, instrument, side), noTrader, null);
+            }
+
+            @Override
+            public void onBatchStart() {
+                beginBatch();
+            }
+
+            @Override
+            public void onBatchEnd() {
+                endBatch(null, false);
+            }
+        }, fromSegment, fromPosition);
+        // the journal ends inside a batch that was cut short
+        if (batching) {
+            endBatch(null, false);
+        }
+        replaying = false;
+
+        recoveredTraders.addAll(matcher.getTraderIDs());
+        log().info("Replayed " + replayed + " Journal Records, " + matcher.getNumOfOrders() + " Live Orders");
+    }
+
+    //the first trader to use the ID of a recovered trader takes it over
+    private void claimRecoveredTrader(int traderID, ActorRef trader) {
+        if (recoveredTraders.remove(traderID) && !subscribers.containsKey(traderID) && !nonSubscribers.containsKey(traderID)) {
+            addTrader(nonSubscribers, traderID, trader);
+            context().watch(trader);
         }
-        return null;
     }
 
     private void onSubscriptionRequest(ActorRef trader, SubscriptionRequest request) {
 
         log().info("Subscription Request Received From: " + trader);
-        subscribers.put(request.getTraderID(), trader);
+        removeTrader(nonSubscribers, request.getTraderID());
+        addTrader(subscribers, request.getTraderID(), trader);
 
-        if (nonSubscribers.containsKey(request.getTraderID())) {
-            nonSubscribers.remove(request.getTraderID());
+        context().watch(trader);
+        sendSnapshotsToTrader(trader);
+    }
+
+    private void onDepthSubscriptionRequest(ActorRef subscriber, DepthSubscriptionRequest request) {
+        log().info("Depth Subscription Request Received From: " + subscriber);
+        DepthSubscription subscription = new DepthSubscription(Math.max(1, request.getDepth()));
+        depthSubscribers.put(subscriber, subscription);
+        context().watch(subscriber);
+
+        for (Instrument instrument : matcher.getInstruments()) {
+            subscription.markDirty(instrument);
+        }
+        sendDepth(subscriber, subscription);
+        if (shardInstrument != null) {
+            getContext().getParent().tell(new ShardSubscribed(subscriber), getSelf());
+        } else {
+            subscriber.tell(new SubscriptionResponse(), getSelf());
         }
+    }
 
-        context().watch(trader);
-        sendReportsToTrader(trader);
+    private void onMarketDepthAck(ActorRef subscriber) {
+        DepthSubscription subscription = depthSubscribers.get(subscriber);
+        if (subscription == null) return;
+        subscription.inFlight = false;
+        sendDepth(subscriber, subscription);
     }
 
-    private void sendReportsToTrader(ActorRef trader) {
-        for (Response response : reports) {
-            trader.tell(response, getSelf());
+    //sends the next changed book, unless the subscriber hasn't acknowledged the last one yet
+    private void sendDepth(ActorRef subscriber, DepthSubscription subscription) {
+        while (!subscription.inFlight && !subscription.dirty.isEmpty()) {
+            Instrument instrument = subscription.dirty.poll();
+            MarketDepth depth = matcher.depth(instrument, subscription.depth);
+            // changes below the subscribed depth don't make an update
+            MarketDepth lastSent = subscription.lastSent.get(instrument);
+            if (lastSent != null && lastSent.sameLevels(depth)) continue;
+
+            subscription.lastSent.put(instrument, depth);
+            subscription.inFlight = true;
+            subscriber.tell(depth, getSelf());
+        }
+    }
+
+    //sends the live resting orders of every book, later reports are deltas on top of them
+    private void sendSnapshotsToTrader(ActorRef trader) {
+        for (Instrument instrument : matcher.getInstruments()) {
+            trader.tell(matcher.snapshot(instrument), getSelf());
+        }
+        if (shardInstrument != null) {
+            getContext().getParent().tell(new ShardSubscribed(trader), getSelf());
+        } else {
+            trader.tell(new SubscriptionResponse(), getSelf());
         }
-        trader.tell(new SubscriptionResponse(), getSelf());
     }
 
+    //cancels orders of the terminated trader and tells subscribers about it
     private void onTerminationMessage(Terminated terminated) {
+        depthSubscribers.remove(terminated.actor());
         int traderID = retrieveTraderID(terminated.actor());
-        for (int orderID : orders.keySet()) {
-            Order order = orders.get(orderID);
-            if (order.getTraderID() == traderID) {
-                orderBooks.get(order.getInstrument()).cancelOrder(order.getOrderID());
-                ExecReportResponse response = new ExecReportResponse(order, ExecType.REMOVE);
-                reports.add(response);
-                reports.add(new TransactionComplete());
-            }
+        removeTrader(subscribers, traderID);
+        removeTrader(nonSubscribers, traderID);
+
+        // journaled as a mass cancel of every order of the trader, or replay would bring the orders back
+        if (journal != null && !replaying && traderID != -1) {
+            journal.appendMassCancel(traderID, null, null);
         }
+        cancelOrders(traderID, null, null);
+        publishMarketData();
     }
 
     private int retrieveTraderID(ActorRef trader) {
-        for (int traderID : subscribers.keySet()) {
-            if (subscribers.get(traderID) == trader) {
-                return traderID;
-            }
-        }
-        for (int traderID : nonSubscribers.keySet()) {
-            if (nonSubscribers.get(traderID) == trader) {
-                return traderID;
-            }
-        }
-        return -1;
+        Integer traderID = traderIDs.get(trader);
+        return traderID == null ? -1 : traderID;
     }
 
-    //if the state of order books is changed, all the traders get notified
+    //if the state of order books is changed, all the traders get notified at the end of the transaction
     private void notifySubscribers(Response response) {
-        for (int traderID : subscribers.keySet()) {
-            subscribers.get(traderID).tell(response, getSelf());
+        if (!subscribers.isEmpty()) {
+            marketData.add(response);
         }
     }
 
-    //tries to match the best orders
-    private void matchOrders(Instrument instrument) {
-        while (true) {
-            //at the beginning, there might be no best orders in any of sides
-            if (orderBooks.get(instrument).getBids().size() == 0 || orderBooks.get(instrument).getOffers().size() == 0) {
-                break;
-            }
-            Order bid = orderBooks.get(instrument).getBids().get(0);
-            Order offer = orderBooks.get(instrument).getOffers().get(0);
+    private void notifySubscribers(ExecReportResponse response) {
+        if (!depthSubscribers.isEmpty()) {
+            changedInstruments.add(response.getInstrument());
+        }
+        notifySubscribers((Response) response);
+    }
 
-            log().info("Matching " + bid.toString());
-            log().info("And " + offer.toString());
+    //sends the events of the transaction to every subscriber in one message
+    private void publishMarketData() {
+        publishDepth();
+        if (marketData.isEmpty()) return;
+        MarketDataBatch batch = new MarketDataBatch(marketData.toArray(new Response[0]));
+        marketData.clear();
+        for (ActorRef subscriber : subscribers.values()) {
+            subscriber.tell(batch, getSelf());
+        }
+    }
 
-            if (checkOrderMatching(bid, offer)) {
-                executeTransaction(bid, offer);
-            } else {
-                break;
+    //marks the changed books for every depth subscriber and sends to those who are ready
+    private void publishDepth() {
+        if (changedInstruments.isEmpty()) return;
+        for (Map.Entry<ActorRef, DepthSubscription> depthSubscriber : depthSubscribers.entrySet()) {
+            for (Instrument instrument : changedInstruments) {
+                depthSubscriber.getValue().markDirty(instrument);
             }
+            sendDepth(depthSubscriber.getKey(), depthSubscriber.getValue());
         }
-
-        TransactionComplete transactionComplete = new TransactionComplete();
-        reports.add(transactionComplete);
-        notifySubscribers(transactionComplete);
-        tellTCToNonSubscribers();
-        return;
+        changedInstruments.clear();
     }
 
-    // checks whether the two orders match
-    private boolean checkOrderMatching(Order bid, Order offer) {
-        if (bid.getPrice() >= offer.getPrice()) {
-            return true;
+    //tries to match the best orders, a fill allocates nothing but the reports it sends
+    private void matchOrders(Instrument instrument) {
+        if (batching) {
+            batchInstruments.add(instrument);
+            return;
         }
-        return false;
+        matcher.match(instrument, tradeListener);
+        publishMarketData();
+        tellTCToNonSubscribers(new TransactionComplete());
     }
 
-    //if two orders match, transaction is being executed
-    private void executeTransaction(Order bid, Order offer) {
-
-        int tradeQuantity = min(bid.getQuantity(), offer.getQuantity());
-        double tradePrice = getTradePrice(bid, offer);
-        TradeMessage tradeMessage = new TradeMessage(bid.getOrderID(), offer.getOrderID(), tradePrice, tradeQuantity, bid.getInstrument());
-        reports.add(tradeMessage);
-        ExecReportResponse bidResponse = updateMatchedOrder(bid, tradeQuantity);
-        ExecReportResponse offerResponse = updateMatchedOrder(offer, tradeQuantity);
-
+    //routes the reports of one fill
+    private void onTrade(ExecReportResponse bidResponse, ExecReportResponse offerResponse, TradeMessage tradeMessage) {
         tellTradeResponseToNonSubscriber(bidResponse);
         tellTradeResponseToNonSubscriber(offerResponse);
         notifySubscribers(bidResponse);
@@ -379,49 +1054,25 @@ public class MatchEngine extends AbstractLoggingActor {
         }
         notifySubscribers(tradeMessage);
 
-        log().info("Trade Completed: " + tradeMessage.toString());
+        log().debug("Trade Completed: {}", tradeMessage);
     }
 
     private void tellTradeResponseToNonSubscriber(ExecReportResponse response) {
         if (nonSubscribers.containsKey(response.getTraderID())) {
-            if (!nonSubscribersTonotify.contains(nonSubscribers.get(response.getTraderID()))) {
-                nonSubscribersTonotify.add(nonSubscribers.get(response.getTraderID()));
-            }
+            notifyAtTransactionEnd(nonSubscribers.get(response.getTraderID()));
             nonSubscribers.get(response.getTraderID()).tell(response, getSelf());
         }
     }
 
-    //sets the trade price according to the state of orders
-    private double getTradePrice(Order bid, Order offer) {
-        if (bid.getPrice() == offer.getPrice()) {
-            return bid.getPrice();
-        }
-
-        if (offer.getOrderID() > bid.getOrderID()) {
-            return bid.getPrice();
-        } else {
-            return offer.getPrice();
-        }
-    }
-
-    private ExecReportResponse updateMatchedOrder(Order order, int tradeQuantity) {
-        if (order.getQuantity() > tradeQuantity) {
-            orderBooks.get(order.getInstrument()).partFillOrder(order.getOrderID(), order.getQuantity() - tradeQuantity);
-            ExecReportResponse response = new ExecReportResponse(order, ExecType.UPDATE);
-            reports.add(response);
-            return response;
-        } else {
-            orderBooks.get(order.getInstrument()).fullyExecuteOrder(order.getOrderID());
-            ExecReportResponse response = new ExecReportResponse(order, ExecType.REMOVE);
-            reports.add(response);
-            orders.remove(order.getOrderID());
-            return response;
+    private void notifyAtTransactionEnd(ActorRef trader) {
+        if (!nonSubscribersTonotify.contains(trader)) {
+            nonSubscribersTonotify.add(trader);
         }
     }
 
-    private void tellTCToNonSubscribers() {
+    private void tellTCToNonSubscribers(TransactionComplete transactionComplete) {
         for (ActorRef trader : nonSubscribersTonotify) {
-            trader.tell(new TransactionComplete(), getSelf());
+            trader.tell(transactionComplete, getSelf());
         }
         nonSubscribersTonotify.clear();
     }
@@ -0,0 +1,50 @@
+import akka.actor.ActorRef;
+import messages.BatchExecReportResponse;
+import messages.ExecReportResponse;
+
+// a batch a router split by shard, waiting for the shards' answers. every part remembers the places its
+// requests had in the batch, so the trader gets one BatchExecReportResponse in the order of the batch
+final class PendingBatch {
+
+    final ActorRef trader;
+    private final ExecReportResponse[] reports;
+    private final int[][] parts;
+    private int numOfParts;
+    private int remaining;
+
+    PendingBatch(ActorRef trader, int size) {
+        this.trader = trader;
+        this.reports = new ExecReportResponse[size];
+        this.parts = new int[size][];
+    }
+
+    //the router's own answer to the request at the position, e.g. a routing rejection
+    void answer(int position, ExecReportResponse report) {
+        reports[position] = report;
+    }
+
+    //adds a part sent to a shard with the positions of its requests, returns the part's number
+    int addPart(int[] positions) {
+        parts[numOfParts] = positions;
+        remaining++;
+        return numOfParts++;
+    }
+
+    //puts the shard's reports at the places of the part's requests
+    void answerPart(int part, ExecReportResponse[] partReports) {
+        int[] positions = parts[part];
+        for (int i = 0; i < positions.length; i++) {
+            reports[positions[i]] = partReports[i];
+        }
+        remaining--;
+    }
+
+    boolean isAnswered() {
+        return remaining == 0;
+    }
+
+    BatchExecReportResponse toResponse() {
+        return new BatchExecReportResponse(reports);
+    }
+
+}
@@ -0,0 +1,42 @@
+import akka.actor.ActorRef;
+import messages.BatchExecReportResponse;
+import messages.ExecReportResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// a mass cancel of every instrument a router sent to every book, waiting for the books' answers. the trader
+// gets one BatchExecReportResponse with the REMOVE reports of every book, or a book's rejection
+final class PendingMassCancel {
+
+    final ActorRef trader;
+    private final List<ExecReportResponse> responses = new ArrayList<>();
+    private ExecReportResponse rejection;
+    private int remaining;
+
+    PendingMassCancel(ActorRef trader, int remaining) {
+        this.trader = trader;
+        this.remaining = remaining;
+    }
+
+    //adds a book's answer, returns whether it was the last one
+    boolean answer(MatchEngine.ShardMassCanceled canceled) {
+        if (canceled.rejection != null) {
+            rejection = canceled.rejection;
+        } else {
+            responses.addAll(Arrays.asList(canceled.responses));
+        }
+        return --remaining == 0;
+    }
+
+    //null unless a book rejected the request
+    ExecReportResponse getRejection() {
+        return rejection;
+    }
+
+    BatchExecReportResponse toResponse() {
+        return new BatchExecReportResponse(responses.toArray(new ExecReportResponse[0]));
+    }
+
+}
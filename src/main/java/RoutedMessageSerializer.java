@@ -0,0 +1,157 @@
+import akka.actor.ActorRef;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.Serialization;
+import akka.serialization.SerializerWithStringManifest;
+import messages.BatchExecReportResponse;
+import messages.BatchOrderRequest;
+import messages.ExecReportResponse;
+import messages.MassCancelRequest;
+import messages.MessageCodec;
+
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Akka serializer for the messages ClusterMatchEngine and the books exchange about a batch or mass cancel
+// it split between books, bound to them in reference.conf. the requests and reports in them are encoded by
+// MessageCodec, the router by its serialized actor path
+public class RoutedMessageSerializer extends SerializerWithStringManifest {
+
+    public static final int IDENTIFIER = 7302;
+
+    private static final String ROUTED_BATCH = "RB";
+    private static final String SHARD_BATCH_ANSWERED = "SBA";
+    private static final String ROUTED_MASS_CANCEL = "RMC";
+    private static final String SHARD_MASS_CANCELED = "SMC";
+
+    private final ExtendedActorSystem system;
+
+    public RoutedMessageSerializer(ExtendedActorSystem system) {
+        this.system = system;
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object message) {
+        if (message instanceof MatchEngine.RoutedBatch) return ROUTED_BATCH;
+        if (message instanceof MatchEngine.ShardBatchAnswered) return SHARD_BATCH_ANSWERED;
+        if (message instanceof MatchEngine.RoutedMassCancel) return ROUTED_MASS_CANCEL;
+        if (message instanceof MatchEngine.ShardMassCanceled) return SHARD_MASS_CANCELED;
+        throw new IllegalArgumentException("Can't serialize " + message.getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object message) {
+        if (message instanceof MatchEngine.RoutedBatch) {
+            MatchEngine.RoutedBatch routed = (MatchEngine.RoutedBatch) message;
+            byte[] router = path(routed.router);
+            int numOfOrderIDs = routed.orderIDs == null ? 0 : routed.orderIDs.length;
+            ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4 + 4 * numOfOrderIDs + MessageCodec.encodedSize(routed.batch) + 4 + router.length);
+            buffer.putInt(routed.batchID);
+            buffer.putInt(routed.part);
+            // -1 for a batch whose order IDs the book assigns
+            buffer.putInt(routed.orderIDs == null ? -1 : numOfOrderIDs);
+            for (int i = 0; i < numOfOrderIDs; i++) {
+                buffer.putInt(routed.orderIDs[i]);
+            }
+            MessageCodec.encode(routed.batch, buffer);
+            putBytes(buffer, router);
+            return buffer.array();
+        }
+        if (message instanceof MatchEngine.ShardBatchAnswered) {
+            MatchEngine.ShardBatchAnswered answered = (MatchEngine.ShardBatchAnswered) message;
+            BatchExecReportResponse reports = new BatchExecReportResponse(answered.reports);
+            ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + MessageCodec.encodedSize(reports));
+            buffer.putInt(answered.batchID);
+            buffer.putInt(answered.part);
+            MessageCodec.encode(reports, buffer);
+            return buffer.array();
+        }
+        if (message instanceof MatchEngine.RoutedMassCancel) {
+            MatchEngine.RoutedMassCancel routed = (MatchEngine.RoutedMassCancel) message;
+            byte[] router = path(routed.router);
+            ByteBuffer buffer = ByteBuffer.allocate(4 + MessageCodec.encodedSize(routed.request) + 4 + router.length);
+            buffer.putInt(routed.massCancelID);
+            MessageCodec.encode(routed.request, buffer);
+            putBytes(buffer, router);
+            return buffer.array();
+        }
+        if (message instanceof MatchEngine.ShardMassCanceled) {
+            MatchEngine.ShardMassCanceled canceled = (MatchEngine.ShardMassCanceled) message;
+            // the rejection, or the REMOVE reports as a batch
+            Object answer = canceled.rejection != null ? canceled.rejection : new BatchExecReportResponse(canceled.responses);
+            ByteBuffer buffer = ByteBuffer.allocate(4 + MessageCodec.encodedSize(answer));
+            buffer.putInt(canceled.massCancelID);
+            MessageCodec.encode(answer, buffer);
+            return buffer.array();
+        }
+        throw new IllegalArgumentException("Can't serialize " + message.getClass().getName());
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        switch (manifest) {
+            case ROUTED_BATCH: {
+                int batchID = buffer.getInt();
+                int part = buffer.getInt();
+                int numOfOrderIDs = buffer.getInt();
+                int[] orderIDs = numOfOrderIDs < 0 ? null : new int[numOfOrderIDs];
+                for (int i = 0; i < numOfOrderIDs; i++) {
+                    orderIDs[i] = buffer.getInt();
+                }
+                BatchOrderRequest batch = (BatchOrderRequest) MessageCodec.decode(buffer);
+                return new MatchEngine.RoutedBatch(batchID, part, orderIDs, batch, actorRef(buffer));
+            }
+            case SHARD_BATCH_ANSWERED: {
+                int batchID = buffer.getInt();
+                int part = buffer.getInt();
+                BatchExecReportResponse reports = (BatchExecReportResponse) MessageCodec.decode(buffer);
+                return new MatchEngine.ShardBatchAnswered(batchID, part, toArray(reports));
+            }
+            case ROUTED_MASS_CANCEL: {
+                int massCancelID = buffer.getInt();
+                MassCancelRequest request = (MassCancelRequest) MessageCodec.decode(buffer);
+                return new MatchEngine.RoutedMassCancel(massCancelID, request, actorRef(buffer));
+            }
+            case SHARD_MASS_CANCELED: {
+                int massCancelID = buffer.getInt();
+                Object answer = MessageCodec.decode(buffer);
+                if (answer instanceof ExecReportResponse) {
+                    return new MatchEngine.ShardMassCanceled(massCancelID, null, (ExecReportResponse) answer);
+                }
+                return new MatchEngine.ShardMassCanceled(massCancelID, toArray((BatchExecReportResponse) answer), null);
+            }
+            default:
+                throw new NotSerializableException("Unknown manifest: " + manifest);
+        }
+    }
+
+    private static byte[] path(ActorRef ref) {
+        return Serialization.serializedActorPath(ref).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private ActorRef actorRef(ByteBuffer buffer) {
+        byte[] path = new byte[buffer.getInt()];
+        buffer.get(path);
+        return system.provider().resolveActorRef(new String(path, StandardCharsets.UTF_8));
+    }
+
+    private static ExecReportResponse[] toArray(BatchExecReportResponse reports) {
+        ExecReportResponse[] array = new ExecReportResponse[reports.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = reports.get(i);
+        }
+        return array;
+    }
+
+}
@@ -0,0 +1,305 @@
+import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import collections.IntObjectMap;
+import enums.Instrument;
+import enums.RejectionReason;
+import messages.*;
+
+import java.util.*;
+
+// routes requests to one MatchEngine shard per instrument, so every instrument
+// has its own mailbox and matching loop. shards tell market data to traders directly.
+public class ShardedMatchEngine extends AbstractLoggingActor {
+
+    private final Instrument[] instruments;
+    private Map<Instrument, ActorRef> shards;
+    private IntObjectMap<ActorRef> traders;
+    // the trader IDs of each trader actor, so a terminated one is removed without scanning traders
+    private Map<ActorRef, Set<Integer>> traderIDs;
+    private Map<ActorRef, Integer> pendingSubscriptions;
+    // traders subscribed through the router, they get their TransactionComplete with the market data
+    private Set<ActorRef> subscribers;
+    private IntObjectMap<PendingMassCancel> pendingMassCancels;
+    private IntObjectMap<PendingBatch> pendingBatches;
+    private int numOfOrderID;
+    private int numOfMassCancelID;
+    private int numOfBatchID;
+
+    public ShardedMatchEngine() {
+        instruments = Instrument.values();
+        shards = new EnumMap<>(Instrument.class);
+        traders = new IntObjectMap<>();
+        traderIDs = new HashMap<>();
+        pendingSubscriptions = new HashMap<>();
+        subscribers = new HashSet<>();
+        pendingMassCancels = new IntObjectMap<>();
+        pendingBatches = new IntObjectMap<>();
+        numOfOrderID = 0;
+        numOfMassCancelID = 0;
+        numOfBatchID = 0;
+
+        for (Instrument instrument : instruments) {
+            shards.put(instrument, getContext().actorOf(MatchEngine.props(instrument), "shard-" + instrument.name()));
+        }
+    }
+
+    //the router's mailbox applies engine.admission, the books behind it take what it admitted
+    public static Props props() {
+        return Props.create(ShardedMatchEngine.class).withMailbox("engine.admission");
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder().match(NewOrderRequest.class, request -> {
+            onNewOrderRequest(request, getSender());
+        }).match(ModifyOrderRequest.class, request -> {
+            onModifyOrderRequest(request, getSender());
+        }).match(CancelOrderRequest.class, request -> {
+            onCancelOrderRequest(request, getSender());
+        }).match(MassCancelRequest.class, request -> {
+            onMassCancelRequest(request, getSender());
+        }).match(BatchOrderRequest.class, batch -> {
+            onBatchOrderRequest(batch, getSender());
+        }).match(SubscriptionRequest.class, request -> {
+            onSubscriptionRequest(request, getSender());
+        }).match(DepthSubscriptionRequest.class, request -> {
+            onDepthSubscriptionRequest(request, getSender());
+        }).match(MatchEngine.ShardSubscribed.class, this::onShardSubscribed
+        ).match(MatchEngine.ShardMassCanceled.class, this::onShardMassCanceled
+        ).match(MatchEngine.ShardBatchAnswered.class, this::onShardBatchAnswered
+        ).match(Terminated.class, this::onTerminationMessage).build();
+    }
+
+    private void onNewOrderRequest(NewOrderRequest request, ActorRef trader) {
+        registerTrader(request.getTraderID(), trader);
+        shards.get(request.getInstrument()).forward(new MatchEngine.RoutedNewOrder(nextOrderID(request.getInstrument()), request), getContext());
+    }
+
+    private void onModifyOrderRequest(ModifyOrderRequest request, ActorRef trader) {
+        RejectionReason rejectionReason = routingRejectionReason(request.getTraderID(), request.getOrderID(), trader);
+        if (rejectionReason == null) {
+            shardOf(request.getOrderID()).forward(request, getContext());
+        } else {
+            log().info("Modify Order Request Rejection Reason: " + rejectionReason.name());
+            trader.tell(new ExecReportResponse(request, rejectionReason), getSelf());
+        }
+    }
+
+    private void onCancelOrderRequest(CancelOrderRequest request, ActorRef trader) {
+        RejectionReason rejectionReason = routingRejectionReason(request.getTraderID(), request.getOrderID(), trader);
+        if (rejectionReason == null) {
+            shardOf(request.getOrderID()).forward(request, getContext());
+        } else {
+            log().info("Cancel Order Request Rejection Reason: " + rejectionReason.name());
+            trader.tell(new ExecReportResponse(request, rejectionReason), getSelf());
+        }
+    }
+
+    //goes to the instrument's shard, or to every shard, whose answers are sent to the trader as one
+    private void onMassCancelRequest(MassCancelRequest request, ActorRef trader) {
+        ActorRef owner = traders.get(request.getTraderID());
+        if (owner == null) {
+            // a trader the router doesn't know has no orders on any shard
+            trader.tell(new BatchExecReportResponse(new ExecReportResponse[0]), getSelf());
+            trader.tell(new TransactionComplete(), getSelf());
+        } else if (!owner.equals(trader)) {
+            log().info("Mass Cancel Request Rejection Reason: " + RejectionReason.INVALID_TRADER_ID.name());
+            trader.tell(new ExecReportResponse(request, RejectionReason.INVALID_TRADER_ID), getSelf());
+        } else if (request.getInstrument() != null) {
+            shards.get(request.getInstrument()).forward(request, getContext());
+        } else {
+            int massCancelID = numOfMassCancelID++;
+            pendingMassCancels.put(massCancelID, new PendingMassCancel(trader, shards.size()));
+            for (ActorRef shard : shards.values()) {
+                shard.forward(new MatchEngine.RoutedMassCancel(massCancelID, request, getSelf()), getContext());
+            }
+        }
+    }
+
+    //the trader gets one BatchExecReportResponse with the REMOVE reports of every shard, or a shard's rejection
+    private void onShardMassCanceled(MatchEngine.ShardMassCanceled canceled) {
+        PendingMassCancel pending = pendingMassCancels.get(canceled.massCancelID);
+        if (pending == null || !pending.answer(canceled)) return;
+
+        pendingMassCancels.remove(canceled.massCancelID);
+        if (pending.getRejection() != null) {
+            pending.trader.tell(pending.getRejection(), getSelf());
+            return;
+        }
+        pending.trader.tell(pending.toResponse(), getSelf());
+        if (!subscribers.contains(pending.trader)) {
+            pending.trader.tell(new TransactionComplete(), getSelf());
+        }
+    }
+
+    //splits the batch by shard, the routing rejections and the shards' reports are answered as one
+    private void onBatchOrderRequest(BatchOrderRequest batch, ActorRef trader) {
+        Map<ActorRef, List<Integer>> parts = new LinkedHashMap<>();
+        int[] orderIDs = new int[batch.size()];
+        PendingBatch pending = new PendingBatch(trader, batch.size());
+        int numOfRejections = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            ActorRef shard;
+            orderIDs[i] = -1;
+            if (request instanceof NewOrderRequest) {
+                NewOrderRequest newOrderRequest = (NewOrderRequest) request;
+                registerTrader(newOrderRequest.getTraderID(), trader);
+                shard = shards.get(newOrderRequest.getInstrument());
+                orderIDs[i] = nextOrderID(newOrderRequest.getInstrument());
+            } else if (request instanceof ModifyOrderRequest) {
+                ModifyOrderRequest modifyOrderRequest = (ModifyOrderRequest) request;
+                RejectionReason rejectionReason = routingRejectionReason(modifyOrderRequest.getTraderID(), modifyOrderRequest.getOrderID(), trader);
+                if (rejectionReason != null) {
+                    pending.answer(i, new ExecReportResponse(modifyOrderRequest, rejectionReason));
+                    numOfRejections++;
+                    continue;
+                }
+                shard = shardOf(modifyOrderRequest.getOrderID());
+            } else {
+                CancelOrderRequest cancelOrderRequest = (CancelOrderRequest) request;
+                RejectionReason rejectionReason = routingRejectionReason(cancelOrderRequest.getTraderID(), cancelOrderRequest.getOrderID(), trader);
+                if (rejectionReason != null) {
+                    pending.answer(i, new ExecReportResponse(cancelOrderRequest, rejectionReason));
+                    numOfRejections++;
+                    continue;
+                }
+                shard = shardOf(cancelOrderRequest.getOrderID());
+            }
+            parts.computeIfAbsent(shard, s -> new ArrayList<>()).add(i);
+        }
+
+        if (numOfRejections > 0) {
+            log().info("Batch Order Request Routing Rejections: " + numOfRejections);
+        }
+        if (parts.isEmpty()) {
+            completeBatch(pending);
+            return;
+        }
+        int batchID = numOfBatchID++;
+        pendingBatches.put(batchID, pending);
+        for (Map.Entry<ActorRef, List<Integer>> part : parts.entrySet()) {
+            int[] positions = part.getValue().stream().mapToInt(Integer::intValue).toArray();
+            List<Request> requests = new ArrayList<>(positions.length);
+            int[] partOrderIDs = new int[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                requests.add(batch.get(positions[i]));
+                partOrderIDs[i] = orderIDs[positions[i]];
+            }
+            int partNumber = pending.addPart(positions);
+            part.getKey().tell(new MatchEngine.RoutedBatch(batchID, partNumber, partOrderIDs, new BatchOrderRequest(requests), getSelf()), trader);
+        }
+    }
+
+    //the trader gets its reports once every shard of the batch is done matching
+    private void onShardBatchAnswered(MatchEngine.ShardBatchAnswered answered) {
+        PendingBatch pending = pendingBatches.get(answered.batchID);
+        if (pending == null) return;
+
+        pending.answerPart(answered.part, answered.reports);
+        if (!pending.isAnswered()) return;
+
+        pendingBatches.remove(answered.batchID);
+        completeBatch(pending);
+    }
+
+    private void completeBatch(PendingBatch pending) {
+        pending.trader.tell(pending.toResponse(), getSelf());
+        if (!subscribers.contains(pending.trader)) {
+            pending.trader.tell(new TransactionComplete(), getSelf());
+        }
+    }
+
+    //checks trader identity here, the order itself is checked by its shard
+    private RejectionReason routingRejectionReason(int traderID, int orderID, ActorRef trader) {
+        if (!traders.containsKey(traderID) || !traders.get(traderID).equals(trader)) {
+            return RejectionReason.INVALID_TRADER_ID;
+        }
+
+        if (orderID < 0) {
+            return RejectionReason.INVALID_ORDER_ID;
+        }
+        return null;
+    }
+
+    private void onSubscriptionRequest(SubscriptionRequest request, ActorRef trader) {
+        log().info("Subscription Request Received From: " + trader);
+        addTrader(request.getTraderID(), trader);
+        subscribers.add(trader);
+        getContext().watch(trader);
+
+        pendingSubscriptions.put(trader, shards.size());
+        for (ActorRef shard : shards.values()) {
+            shard.forward(request, getContext());
+        }
+    }
+
+    //every shard streams the depth of its own book, acknowledgements go straight back to the shards
+    private void onDepthSubscriptionRequest(DepthSubscriptionRequest request, ActorRef subscriber) {
+        log().info("Depth Subscription Request Received From: " + subscriber);
+        getContext().watch(subscriber);
+
+        pendingSubscriptions.put(subscriber, shards.size());
+        for (ActorRef shard : shards.values()) {
+            shard.forward(request, getContext());
+        }
+    }
+
+    //subscription is complete when every shard has sent its reports
+    private void onShardSubscribed(MatchEngine.ShardSubscribed shardSubscribed) {
+        ActorRef subscriber = shardSubscribed.subscriber;
+        if (!pendingSubscriptions.containsKey(subscriber)) return;
+
+        int remaining = pendingSubscriptions.get(subscriber) - 1;
+        if (remaining == 0) {
+            pendingSubscriptions.remove(subscriber);
+            subscriber.tell(new SubscriptionResponse(), getSelf());
+        } else {
+            pendingSubscriptions.put(subscriber, remaining);
+        }
+    }
+
+    //shards watch traders themselves and cancel their orders
+    private void onTerminationMessage(Terminated terminated) {
+        Set<Integer> terminatedIDs = traderIDs.remove(terminated.actor());
+        if (terminatedIDs != null) {
+            for (int traderID : terminatedIDs) {
+                traders.remove(traderID);
+            }
+        }
+        pendingSubscriptions.remove(terminated.actor());
+        subscribers.remove(terminated.actor());
+    }
+
+    private void registerTrader(int traderID, ActorRef trader) {
+        if (!traders.containsKey(traderID)) {
+            addTrader(traderID, trader);
+            getContext().watch(trader);
+        }
+    }
+
+    //a subscription may take over a trader ID from another actor
+    private void addTrader(int traderID, ActorRef trader) {
+        ActorRef previous = traders.put(traderID, trader);
+        if (previous != null && !previous.equals(trader)) {
+            Set<Integer> previousIDs = traderIDs.get(previous);
+            previousIDs.remove(traderID);
+            if (previousIDs.isEmpty()) {
+                traderIDs.remove(previous);
+            }
+        }
+        traderIDs.computeIfAbsent(trader, key -> new HashSet<>()).add(traderID);
+    }
+
+    // order IDs carry the instrument, so modify and cancel requests route without a lookup
+    private int nextOrderID(Instrument instrument) {
+        return numOfOrderID++ * instruments.length + instrument.ordinal();
+    }
+
+    private ActorRef shardOf(int orderID) {
+        return shards.get(instruments[orderID % instruments.length]);
+    }
+
+}
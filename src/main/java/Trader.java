@@ -4,10 +4,13 @@ import enums.Instrument;
 import enums.ExecType;
 import enums.Side;
 import enums.Status;
+import enums.TimeInForce;
 import messages.*;
 import akka.actor.AbstractActorWithTimers;
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import load.LoadProfile;
+import metrics.LatencyRecorder;
 import order.Order;
 import order.TraderOrderBook;
 
@@ -26,14 +29,64 @@ class Trader extends AbstractActorWithTimers {
     private ArrayList<Instrument> activeInstruments;
     private List<ExecReportResponse> reports;
     private final LoggingAdapter log;
+    // set when the trader generates load instead of a request every three seconds
+    private final LoadProfile loadProfile;
+    private SplittableRandom loadRandom;
+    private long nextSendTime;
+    private long endTime;
+    // every unanswered request of the load by its requestID, and the requestIDs waiting for an accepted
+    // answer by its instrument for new orders and by order ID otherwise. one book answers in request order,
+    // but books answer apart from each other and rejections, such as THROTTLED, overtake queued requests
+    private Map<Integer, PendingRequest> pendingRequests;
+    private Map<Object, ArrayDeque<Integer>> answerQueues;
+    private int numOfRequestID;
+    private LatencyRecorder latencies;
+    private long sent;
 
     private static final class NotifyTrader {
     }
 
+    private static final class SendLoad {
+    }
+
+    private static final class PendingRequest {
+        // when the request should have gone out
+        final long sendTime;
+        final Object answerKey;
+
+        PendingRequest(long sendTime, Object answerKey) {
+            this.sendTime = sendTime;
+            this.answerKey = answerKey;
+        }
+    }
+
+    // asks a load-generating trader for its numbers so far
+    static final class GetLoadResult {
+    }
+
+    static final class LoadResult {
+        final int traderID;
+        final long sent;
+        final int outstanding;
+        final LatencyRecorder latencies;
+
+        LoadResult(int traderID, long sent, int outstanding, LatencyRecorder latencies) {
+            this.traderID = traderID;
+            this.sent = sent;
+            this.outstanding = outstanding;
+            this.latencies = latencies;
+        }
+    }
+
     public Trader(ActorRef matchEngine, int traderID) {
+        this(matchEngine, traderID, null);
+    }
+
+    public Trader(ActorRef matchEngine, int traderID, LoadProfile loadProfile) {
         this.matchEngine = matchEngine;
+        this.loadProfile = loadProfile;
         this.traderID = traderID;
-        this.orderBooks = new HashMap<>();
+        this.orderBooks = new EnumMap<>(Instrument.class);
         this.myOrders = new HashMap<>();
         this.rgen = new Random();
         this.instruments = Instrument.values();
@@ -48,19 +101,34 @@ class Trader extends AbstractActorWithTimers {
         return Props.create(Trader.class, matchEngine, traderID);
     }
 
+    public static Props props(ActorRef matchEngine, int traderID, LoadProfile loadProfile) {
+        return Props.create(Trader.class, matchEngine, traderID, loadProfile);
+    }
+
     @Override
     public Receive createReceive() {
         return receiveBuilder().match(ExecReportResponse.class, response -> {
             onExecReportResponse(response);
         }).match(TransactionComplete.class, m -> {
             onTransactionComplete();
+        }).match(MarketDataBatch.class, batch -> {
+            onMarketDataBatch(batch);
+        }).match(BookSnapshot.class, snapshot -> {
+            onBookSnapshot(snapshot);
         }).match(TradeMessage.class, tradeMessage -> {
             onTradeMessage(tradeMessage);
         }).match(NotifyTrader.class, m -> {
             onNotifyTrader();
+        }).match(SendLoad.class, m -> {
+            onSendLoad();
+        }).match(GetLoadResult.class, m -> {
+            onGetLoadResult();
         }).match(SubscriptionResponse.class, m -> {
-            getTimers().startTimerWithFixedDelay("KEY", new NotifyTrader(), Duration.ofSeconds(3));
-
+            if (loadProfile == null) {
+                getTimers().startTimerWithFixedDelay("KEY", new NotifyTrader(), Duration.ofSeconds(3));
+            } else {
+                startLoad();
+            }
         }).build();
     }
 
@@ -68,12 +136,32 @@ class Trader extends AbstractActorWithTimers {
     private void onExecReportResponse(ExecReportResponse response) {
 
         if (response.getStatus() == Status.REJECTED) {
+            // a rejection is the whole answer to a request
+            onRequestAnswered(response);
             return;
         }
 
         this.reports.add(response);
     }
 
+    //applies a whole engine transaction at once, the batch ends with an implicit TC
+    private void onMarketDataBatch(MarketDataBatch batch) {
+        // the engine reports the request of a transaction first, fills of resting orders follow it
+        if (batch.size() > 0 && batch.get(0) instanceof ExecReportResponse
+                && ((ExecReportResponse) batch.get(0)).getTraderID() == this.traderID) {
+            onRequestAnswered((ExecReportResponse) batch.get(0));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Response event = batch.get(i);
+            if (event instanceof ExecReportResponse) {
+                onExecReportResponse((ExecReportResponse) event);
+            } else if (event instanceof TradeMessage) {
+                onTradeMessage((TradeMessage) event);
+            }
+        }
+        onTransactionComplete();
+    }
+
     //iterating through ERs to update the state of order book
     private void onTransactionComplete() {
         for (int i = 0; i < this.reports.size(); i++) {
@@ -85,8 +173,7 @@ class Trader extends AbstractActorWithTimers {
     // updating orderbooks according to ExecReportResponse
     private void updateOrders(ExecReportResponse response) {
         if (response.getExecType() == ExecType.ADD) {
-            Order newOrder = createNewOrder(response);
-            addNewOrder(newOrder);
+            addNewOrder(response);
         } else if (response.getExecType() == ExecType.UPDATE) {
             orderBooks.get(response.getInstrument()).modifyOrder(response);
         } else if (response.getExecType() == ExecType.REMOVE) {
@@ -94,36 +181,48 @@ class Trader extends AbstractActorWithTimers {
         }
     }
 
-    // creating new order according to ER
-    private Order createNewOrder(ExecReportResponse response) {
-        Order newOrder = new Order(response.getTraderID(), response.getOrderID(), response.getSide(), response.getInstrument());
-        newOrder.setOrderDate(response.getDate());
-        newOrder.setQuantity(response.getQuantity());
-        newOrder.setPrice(response.getPrice());
-        newOrder.setStatus(response.getStatus());
-        return newOrder;
-    }
-
     //adding new order to orderbooks
-    private void addNewOrder(Order newOrder) {
+    private void addNewOrder(ExecReportResponse response) {
 
         //case of new instrument
-        if (!orderBooks.containsKey(newOrder.getInstrument())) {
-            activeInstruments.add(newOrder.getInstrument());
+        if (!orderBooks.containsKey(response.getInstrument())) {
+            activeInstruments.add(response.getInstrument());
 
-            orderBooks.put(newOrder.getInstrument(), new TraderOrderBook(newOrder.getInstrument()));
+            orderBooks.put(response.getInstrument(), new TraderOrderBook(response.getInstrument()));
         }
 
-        orderBooks.get(newOrder.getInstrument()).addOrder(newOrder);
+        Order newOrder = orderBooks.get(response.getInstrument()).addOrder(response);
 
         if (newOrder.getTraderID() == this.traderID) {
             myOrders.put(newOrder.getOrderID(), newOrder);
         }
     }
 
+    //loading the state of order book on subscription
+    private void onBookSnapshot(BookSnapshot snapshot) {
+        Instrument instrument = snapshot.getInstrument();
+        if (!orderBooks.containsKey(instrument)) {
+            activeInstruments.add(instrument);
+            orderBooks.put(instrument, new TraderOrderBook(instrument));
+        }
+
+        TraderOrderBook orderBook = orderBooks.get(instrument);
+        orderBook.loadSnapshot(snapshot);
+        myOrders.values().removeIf(order -> order.getInstrument() == instrument);
+        for (Order order : orderBook.getOrders().values()) {
+            if (order.getTraderID() == this.traderID) {
+                myOrders.put(order.getOrderID(), order);
+            }
+        }
+    }
+
     // canceling or fully executing order according to ER
     private void removeOrder(ExecReportResponse response) {
-        orderBooks.get(response.getInstrument()).cancelOrder(response);
+        //an immediate order is removed without ever being added, maybe in a book not seen yet
+        TraderOrderBook orderBook = orderBooks.get(response.getInstrument());
+        if (orderBook != null) {
+            orderBook.cancelOrder(response);
+        }
         myOrders.remove(response.getOrderID());
     }
 
@@ -139,6 +238,103 @@ class Trader extends AbstractActorWithTimers {
         }
     }
 
+    //sends requests at a fixed rate from the start on, so a slow engine can't hold the load back
+    private void startLoad() {
+        loadRandom = loadProfile.newRandom(this.traderID);
+        pendingRequests = new HashMap<>();
+        answerQueues = new HashMap<>();
+        latencies = new LatencyRecorder();
+        nextSendTime = System.nanoTime();
+        endTime = nextSendTime + loadProfile.getDuration().toNanos();
+        getTimers().startTimerAtFixedRate("KEY", new SendLoad(), Duration.ofMillis(1));
+    }
+
+    //sends every request whose time has come, the scheduler's tick may be coarser than the interval
+    private void onSendLoad() {
+        long now = System.nanoTime();
+        while (nextSendTime <= now && nextSendTime < endTime) {
+            int requestID = ++numOfRequestID;
+            Request request = generateLoadRequest(requestID);
+            Object answerKey = answerKey(request);
+            pendingRequests.put(requestID, new PendingRequest(nextSendTime, answerKey));
+            answerQueues.computeIfAbsent(answerKey, key -> new ArrayDeque<>()).add(requestID);
+            matchEngine.tell(request, getSelf());
+            sent++;
+            nextSendTime += loadProfile.getIntervalNanos();
+        }
+        if (nextSendTime >= endTime) {
+            getTimers().cancel("KEY");
+        }
+    }
+
+    //latency runs from when the request should have gone out, so a backlog counts against the engine.
+    //a rejection names its request, an accepted one is the oldest waiting for its book or order
+    private void onRequestAnswered(ExecReportResponse response) {
+        if (pendingRequests == null) return;
+        Integer requestID;
+        if (response.getStatus() == Status.REJECTED) {
+            requestID = response.getRequestID();
+        } else {
+            Object answerKey = response.getExecType() == ExecType.ADD ? response.getInstrument() : (Object) response.getOrderID();
+            ArrayDeque<Integer> queue = answerQueues.get(answerKey);
+            if (queue == null) return;
+            requestID = queue.peek();
+        }
+
+        PendingRequest request = pendingRequests.remove(requestID);
+        if (request == null) return;
+        ArrayDeque<Integer> queue = answerQueues.get(request.answerKey);
+        queue.removeFirstOccurrence(requestID);
+        if (queue.isEmpty()) {
+            answerQueues.remove(request.answerKey);
+        }
+        latencies.record(System.nanoTime() - request.sendTime);
+    }
+
+    //new orders are answered in order per book, modifies and cancels per order
+    private static Object answerKey(Request request) {
+        if (request instanceof NewOrderRequest) {
+            return ((NewOrderRequest) request).getInstrument();
+        } else if (request instanceof ModifyOrderRequest) {
+            return ((ModifyOrderRequest) request).getOrderID();
+        }
+        return ((CancelOrderRequest) request).getOrderID();
+    }
+
+    private void onGetLoadResult() {
+        LatencyRecorder copy = new LatencyRecorder();
+        if (latencies != null) {
+            copy.add(latencies);
+        }
+        getSender().tell(new LoadResult(this.traderID, sent, pendingRequests == null ? 0 : pendingRequests.size(), copy), getSelf());
+    }
+
+    //draws the next request of the load profile, modifies and cancels need an order of the trader
+    private Request generateLoadRequest(int requestID) {
+        LoadProfile.RequestType type = loadProfile.nextRequestType(loadRandom);
+        if (type != LoadProfile.RequestType.NEW && !myOrders.isEmpty()) {
+            Order order = randomOrder();
+            if (type == LoadProfile.RequestType.CANCEL) {
+                return new CancelOrderRequest(order.getOrderID(), this.traderID, requestID);
+            }
+            Instrument instrument = order.getInstrument();
+            long price = loadProfile.nextPriceTicks(loadRandom, instrument, order.getSide(), orderBooks.get(instrument));
+            return new ModifyOrderRequest(order.getOrderID(), this.traderID, loadProfile.nextQuantity(loadRandom), instrument.toPrice(price),
+                    requestID);
+        }
+
+        Instrument instrument = loadProfile.nextInstrument(loadRandom);
+        Side side = loadRandom.nextBoolean() ? Side.BIDS : Side.OFFERS;
+        long price = loadProfile.nextPriceTicks(loadRandom, instrument, side, orderBooks.get(instrument));
+        return new NewOrderRequest(side, instrument, loadProfile.nextQuantity(loadRandom), instrument.toPrice(price), new Date(), this.traderID,
+                TimeInForce.GOOD_TILL_CANCEL, requestID);
+    }
+
+    private Order randomOrder() {
+        Object[] keys = myOrders.keySet().toArray();
+        return myOrders.get((int) keys[loadRandom.nextInt(keys.length)]);
+    }
+
     //generates random requests of trader for ME according to orderbooks' state
     private Request generateRandomRequest() {
         switch (rgen.nextInt(5)) {
@@ -210,7 +406,7 @@ class Trader extends AbstractActorWithTimers {
 
         Instrument instrument = bestOrder.getInstrument();
         int quantity = bestOrder.getQuantity();
-        double price = bestOrder.getPrice();
+        double price = instrument.toPrice(bestOrder.getPrice());
         return new NewOrderRequest(side, instrument, quantity, price, new Date(), this.traderID);
     }
 
@@ -221,24 +417,18 @@ class Trader extends AbstractActorWithTimers {
         }
 
         Instrument instrument = activeInstruments.get(rgen.nextInt(activeInstruments.size()));
+        Order bestBid = orderBooks.get(instrument).getBestBid();
+        Order bestOffer = orderBooks.get(instrument).getBestOffer();
 
-        if (orderBooks.get(instrument).getBids().isEmpty() && orderBooks.get(instrument).getOffers().isEmpty()) {
-            return null;
-        }
-
-        if (orderBooks.get(instrument).getOffers().isEmpty()) {
-            return orderBooks.get(instrument).getBids().get(0);
-        }
-
-        if (orderBooks.get(instrument).getBids().isEmpty()) {
-            return orderBooks.get(instrument).getOffers().get(0);
+        if (bestBid == null || bestOffer == null) {
+            return bestBid == null ? bestOffer : bestBid;
         }
 
         switch (rgen.nextInt(2)) {
             case 0:
-                return orderBooks.get(instrument).getBids().get(0);
+                return bestBid;
             default:
-                return orderBooks.get(instrument).getOffers().get(0);
+                return bestOffer;
         }
     }
 
@@ -251,7 +441,8 @@ class Trader extends AbstractActorWithTimers {
         Order myOrder = getOrderToMatchBestOrder(bestOrder.getInstrument());
         if (myOrder == null) return null;
 
-        return new ModifyOrderRequest(myOrder.getOrderID(), this.traderID, bestOrder.getQuantity(), bestOrder.getPrice());
+        double price = bestOrder.getInstrument().toPrice(bestOrder.getPrice());
+        return new ModifyOrderRequest(myOrder.getOrderID(), this.traderID, bestOrder.getQuantity(), price);
     }
 
     // chooses random order from myOrders to match best order lately
@@ -0,0 +1,132 @@
+package collections;
+
+import java.util.Arrays;
+
+// open-addressing hash map from int keys to int values, laid out like IntObjectMap.
+// missingValue is returned for absent keys and marks free slots, so it can't be stored
+public class IntIntMap {
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public IntIntMap(int missingValue) {
+        this(IntObjectMap.MIN_CAPACITY / 2, missingValue);
+    }
+
+    public IntIntMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(IntObjectMap.capacityFor(expectedSize));
+    }
+
+    public int getMissingValue() {
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int key) {
+        int i = IntObjectMap.hash(key) & mask;
+        int value;
+        while ((value = values[i]) != missingValue) {
+            if (keys[i] == key) {
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != missingValue;
+    }
+
+    //returns the previous value, or missingValue
+    public int put(int key, int value) {
+        if (value == missingValue) throw new IllegalArgumentException("Can't store the missing value " + value);
+        int i = IntObjectMap.hash(key) & mask;
+        int old;
+        while ((old = values[i]) != missingValue) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    //returns the removed value, or missingValue
+    public int remove(int key) {
+        int i = IntObjectMap.hash(key) & mask;
+        int value;
+        while ((value = values[i]) != missingValue) {
+            if (keys[i] == key) {
+                values[i] = missingValue;
+                size--;
+                closeGap(i);
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public void clear() {
+        Arrays.fill(values, missingValue);
+        size = 0;
+    }
+
+    private void closeGap(int gap) {
+        int i = (gap + 1) & mask;
+        while (values[i] != missingValue) {
+            int home = IntObjectMap.hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                values[i] = missingValue;
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] != missingValue) {
+                int i = IntObjectMap.hash(oldKeys[slot]) & mask;
+                while (values[i] != missingValue) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[slot];
+                values[i] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, missingValue);
+        mask = capacity - 1;
+        resizeAt = capacity / 2;
+    }
+
+}
@@ -10,10 +10,35 @@ public enum Instrument {
 //    JACKET,
 //    CHAIR,
 //    RING,
-    WATCH,
-    PHONE,
-    BOOK,
-    TOMATO,
-    BAG,
-    TV;
+    WATCH(100),
+    PHONE(100),
+    BOOK(20),
+    TOMATO(100),
+    BAG(10),
+    TV(10);
+
+    // prices are kept as whole ticks, tick size is 1 / ticksPerUnit
+    private final long ticksPerUnit;
+
+    Instrument(long ticksPerUnit) {
+        this.ticksPerUnit = ticksPerUnit;
+    }
+
+    public double getTickSize() {
+        return 1.0 / ticksPerUnit;
+    }
+
+    //checks whether price is a whole number of ticks
+    public boolean isOnTick(double price) {
+        double ticks = price * ticksPerUnit;
+        return Math.abs(ticks - Math.rint(ticks)) <= 1e-9 * Math.max(1, Math.abs(ticks));
+    }
+
+    public long toTicks(double price) {
+        return Math.round(price * ticksPerUnit);
+    }
+
+    public double toPrice(long ticks) {
+        return (double) ticks / ticksPerUnit;
+    }
 }
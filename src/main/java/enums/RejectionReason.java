@@ -2,7 +2,14 @@ package enums;
 
 public enum RejectionReason {
     INVALID_PRICE,
+    INVALID_TICK,
     INVALID_QUANTITY,
     INVALID_ORDER_ID,
-    INVALID_TRADER_ID;
+    INVALID_TRADER_ID,
+    // the engine was over its admission limits, see EngineMailbox
+    THROTTLED,
+    // the engine doesn't take requests of the type, or failed on the request, see RingMatchEngine
+    UNSUPPORTED_REQUEST,
+    // an IOC or FOK order in a BatchOrderRequest, whose deferred matching can't match it where it stands
+    INVALID_TIME_IN_FORCE;
 }
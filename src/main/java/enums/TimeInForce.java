@@ -0,0 +1,12 @@
+package enums;
+
+// how long a new order may rest. immediate orders match what the book holds on arrival and are
+// never added to it, a FILL_OR_KILL order only trades if it fills whole
+public enum TimeInForce {
+    GOOD_TILL_CANCEL, IMMEDIATE_OR_CANCEL, FILL_OR_KILL;
+
+    public boolean isImmediate() {
+        return this != GOOD_TILL_CANCEL;
+    }
+
+}
@@ -0,0 +1,134 @@
+package journal;
+
+import messages.BookSnapshot;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// point-in-time state of the engine and the journal position it was taken at. on start the engine
+// loads the newest one and replays only the journal records after it. the orders map isn't stored,
+// it is the union of the books' resting orders.
+public final class EngineSnapshot {
+
+    static final int MAGIC = 0x4d45534e;
+    static final int VERSION = 1;
+
+    private final int journalSegment;
+    private final int journalPosition;
+    private final int numOfOrderID;
+    private final long numOfSequence;
+    private final int[] subscriberIDs;
+    private final List<BookSnapshot> books;
+
+    public EngineSnapshot(int journalSegment, int journalPosition, int numOfOrderID, long numOfSequence,
+                          int[] subscriberIDs, List<BookSnapshot> books) {
+        this.journalSegment = journalSegment;
+        this.journalPosition = journalPosition;
+        this.numOfOrderID = numOfOrderID;
+        this.numOfSequence = numOfSequence;
+        this.subscriberIDs = subscriberIDs;
+        this.books = books;
+    }
+
+    public int getJournalSegment() {
+        return journalSegment;
+    }
+
+    public int getJournalPosition() {
+        return journalPosition;
+    }
+
+    public int getNumOfOrderID() {
+        return numOfOrderID;
+    }
+
+    public long getNumOfSequence() {
+        return numOfSequence;
+    }
+
+    public int[] getSubscriberIDs() {
+        return subscriberIDs;
+    }
+
+    public List<BookSnapshot> getBooks() {
+        return books;
+    }
+
+    //names sort in journal order, so the last one is the newest
+    public static Path snapshotPath(Path directory, int journalSegment, int journalPosition) {
+        return directory.resolve(String.format("snapshot-%05d-%010d.dat", journalSegment, journalPosition));
+    }
+
+    //writes to a temporary file first, a snapshot file is either complete or absent
+    public Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path path = snapshotPath(directory, journalSegment, journalPosition);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(journalSegment);
+            out.writeInt(journalPosition);
+            out.writeInt(numOfOrderID);
+            out.writeLong(numOfSequence);
+            out.writeInt(subscriberIDs.length);
+            for (int subscriberID : subscriberIDs) {
+                out.writeInt(subscriberID);
+            }
+            out.writeInt(books.size());
+            for (BookSnapshot book : books) {
+                book.writeTo(out);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return path;
+    }
+
+    public static EngineSnapshot read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an engine snapshot: " + path);
+            }
+            int journalSegment = in.readInt();
+            int journalPosition = in.readInt();
+            int numOfOrderID = in.readInt();
+            long numOfSequence = in.readLong();
+            int[] subscriberIDs = new int[in.readInt()];
+            for (int i = 0; i < subscriberIDs.length; i++) {
+                subscriberIDs[i] = in.readInt();
+            }
+            int numOfBooks = in.readInt();
+            List<BookSnapshot> books = new ArrayList<>(numOfBooks);
+            for (int i = 0; i < numOfBooks; i++) {
+                books.add(BookSnapshot.readFrom(in));
+            }
+            return new EngineSnapshot(journalSegment, journalPosition, numOfOrderID, numOfSequence, subscriberIDs, books);
+        }
+    }
+
+    //snapshot files of the directory, oldest first
+    public static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith("snapshot-") && name.endsWith(".dat");
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    //deletes all but the newest `retain` snapshots
+    public static void deleteOld(Path directory, int retain) throws IOException {
+        List<Path> snapshots = list(directory);
+        for (int i = 0; i < snapshots.size() - retain; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+}
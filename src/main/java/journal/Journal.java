@@ -0,0 +1,265 @@
+package journal;
+
+import enums.Instrument;
+import enums.Side;
+import enums.TimeInForce;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// write-ahead journal of accepted engine requests, appended to preallocated memory-mapped segment files.
+// a record is [int length][byte type][fields], the length is written last, so a zero length marks
+// the end of the journal and a torn record is never read back. records reach the page cache on append
+// and the disk on sync, which happens every syncBatchSize records or when the engine asks for it.
+public class Journal implements Closeable {
+
+    static final byte NEW_ORDER = 1;
+    static final byte MODIFY_ORDER = 2;
+    static final byte CANCEL_ORDER = 3;
+    // the requests between these two were applied as one batch, with matching at its end
+    static final byte BATCH_START = 4;
+    static final byte BATCH_END = 5;
+    static final byte MASS_CANCEL = 6;
+    // an IOC or FOK order, which matched on arrival and never rested
+    static final byte IMMEDIATE_ORDER = 7;
+    // stands for any instrument or side in a mass cancel
+    static final byte ANY = -1;
+
+    // marks the end of a segment that had no room for the next record
+    static final int END_OF_SEGMENT = -1;
+    static final int MAX_RECORD_SIZE = 32;
+
+    private static final Instrument[] INSTRUMENTS = Instrument.values();
+    private static final Side[] SIDES = Side.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int syncBatchSize;
+    private int segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int unsynced;
+    private long numOfRecords;
+
+    public Journal(Path directory, int segmentSize, int syncBatchSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncBatchSize = syncBatchSize;
+        Files.createDirectories(directory);
+
+        segmentIndex = 0;
+        while (Files.exists(segmentPath(segmentIndex + 1))) {
+            segmentIndex++;
+        }
+        openSegment(segmentIndex);
+        segment.position(endOfRecords(segment));
+    }
+
+    public static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("journal-%05d.dat", index));
+    }
+
+    public long getNumOfRecords() {
+        return numOfRecords;
+    }
+
+    //segment the next record goes to
+    public int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    //offset in the current segment the next record goes to
+    public int getSegmentPosition() {
+        return segment.position();
+    }
+
+    public void appendNewOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price) {
+        int start = startRecord();
+        segment.put(NEW_ORDER);
+        segment.putInt(orderID);
+        segment.putInt(traderID);
+        segment.put((byte) side.ordinal());
+        segment.put((byte) instrument.ordinal());
+        segment.putInt(quantity);
+        segment.putLong(price);
+        endRecord(start);
+    }
+
+    public void appendImmediateOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price, TimeInForce timeInForce) {
+        int start = startRecord();
+        segment.put(IMMEDIATE_ORDER);
+        segment.putInt(orderID);
+        segment.putInt(traderID);
+        segment.put((byte) side.ordinal());
+        segment.put((byte) instrument.ordinal());
+        segment.putInt(quantity);
+        segment.putLong(price);
+        segment.put((byte) timeInForce.ordinal());
+        endRecord(start);
+    }
+
+    public void appendModifyOrder(int orderID, int traderID, int quantity, long price) {
+        int start = startRecord();
+        segment.put(MODIFY_ORDER);
+        segment.putInt(orderID);
+        segment.putInt(traderID);
+        segment.putInt(quantity);
+        segment.putLong(price);
+        endRecord(start);
+    }
+
+    public void appendCancelOrder(int orderID, int traderID) {
+        int start = startRecord();
+        segment.put(CANCEL_ORDER);
+        segment.putInt(orderID);
+        segment.putInt(traderID);
+        endRecord(start);
+    }
+
+    //instrument and side may be null for any
+    public void appendMassCancel(int traderID, Instrument instrument, Side side) {
+        int start = startRecord();
+        segment.put(MASS_CANCEL);
+        segment.putInt(traderID);
+        segment.put(instrument == null ? ANY : (byte) instrument.ordinal());
+        segment.put(side == null ? ANY : (byte) side.ordinal());
+        endRecord(start);
+    }
+
+    public void appendBatchStart() {
+        int start = startRecord();
+        segment.put(BATCH_START);
+        endRecord(start);
+    }
+
+    public void appendBatchEnd() {
+        int start = startRecord();
+        segment.put(BATCH_END);
+        endRecord(start);
+    }
+
+    //forces appended records to disk, one fsync for the whole batch
+    public void sync() {
+        if (unsynced == 0) return;
+        segment.force();
+        unsynced = 0;
+    }
+
+    //reads every record from the first segment on
+    public long replay(JournalListener listener) throws IOException {
+        return replay(listener, 0, 0);
+    }
+
+    //reads the records from the given segment and offset on, as returned by getSegmentIndex and getSegmentPosition
+    public long replay(JournalListener listener, int fromSegment, int fromPosition) throws IOException {
+        long replayed = 0;
+        for (int index = fromSegment; Files.exists(segmentPath(index)); index++) {
+            try (FileChannel readChannel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                if (index == fromSegment) {
+                    buffer.position(fromPosition);
+                }
+                while (buffer.remaining() >= Integer.BYTES) {
+                    int length = buffer.getInt();
+                    if (length <= 0) break;
+                    readRecord(buffer, listener);
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    private void readRecord(MappedByteBuffer buffer, JournalListener listener) {
+        byte type = buffer.get();
+        switch (type) {
+            case NEW_ORDER:
+                listener.onNewOrder(buffer.getInt(), buffer.getInt(), SIDES[buffer.get()], INSTRUMENTS[buffer.get()], buffer.getInt(), buffer.getLong());
+                break;
+            case MODIFY_ORDER:
+                listener.onModifyOrder(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getLong());
+                break;
+            case CANCEL_ORDER:
+                listener.onCancelOrder(buffer.getInt(), buffer.getInt());
+                break;
+            case IMMEDIATE_ORDER:
+                listener.onImmediateOrder(buffer.getInt(), buffer.getInt(), SIDES[buffer.get()], INSTRUMENTS[buffer.get()], buffer.getInt(), buffer.getLong(),
+                        TIMES_IN_FORCE[buffer.get()]);
+                break;
+            case MASS_CANCEL: {
+                int traderID = buffer.getInt();
+                byte instrument = buffer.get();
+                byte side = buffer.get();
+                listener.onMassCancel(traderID, instrument == ANY ? null : INSTRUMENTS[instrument], side == ANY ? null : SIDES[side]);
+                break;
+            }
+            case BATCH_START:
+                listener.onBatchStart();
+                break;
+            case BATCH_END:
+                listener.onBatchEnd();
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    //reserves room for the length, moves to the next segment if the record may not fit
+    private int startRecord() {
+        if (segment.remaining() < MAX_RECORD_SIZE + Integer.BYTES) {
+            segment.putInt(segment.position(), END_OF_SEGMENT);
+            sync();
+            try {
+                channel.close();
+                openSegment(++segmentIndex);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int start = segment.position();
+        segment.position(start + Integer.BYTES);
+        return start;
+    }
+
+    private void endRecord(int start) {
+        segment.putInt(start, segment.position() - start - Integer.BYTES);
+        numOfRecords++;
+        if (++unsynced >= syncBatchSize) {
+            sync();
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    //position after the last complete record of a segment
+    private static int endOfRecords(MappedByteBuffer buffer) {
+        int position = 0;
+        while (position + Integer.BYTES <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length <= 0) break;
+            position += Integer.BYTES + length;
+        }
+        return position;
+    }
+
+    private Path segmentPath(int index) {
+        return segmentPath(directory, index);
+    }
+
+}
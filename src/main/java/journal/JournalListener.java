@@ -0,0 +1,28 @@
+package journal;
+
+import enums.Instrument;
+import enums.Side;
+import enums.TimeInForce;
+
+// receives the records of a journal in the order they were appended
+public interface JournalListener {
+
+    void onNewOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price);
+
+    void onImmediateOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price, TimeInForce timeInForce);
+
+    void onModifyOrder(int orderID, int traderID, int quantity, long price);
+
+    void onCancelOrder(int orderID, int traderID);
+
+    //instrument and side are null when the cancel wasn't limited to one
+    void onMassCancel(int traderID, Instrument instrument, Side side);
+
+    //the records up to onBatchEnd came from one BatchOrderRequest, a journal cut short may lack the end
+    default void onBatchStart() {
+    }
+
+    default void onBatchEnd() {
+    }
+
+}
@@ -0,0 +1,100 @@
+package journal;
+
+import messages.MessageCodec;
+import messages.Request;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// every request an engine received, in arrival order, for replaying real order flow against another build.
+// a record is [long arrival nanos][int sender][int length][message in MessageCodec's encoding], senders
+// are numbered in the order they first sent. arrival times come from System.nanoTime, so only their
+// differences mean anything. records are buffered and written when the buffer fills and on close
+public class RequestCapture implements Closeable {
+
+    public static final int RECORD_HEADER_SIZE = 8 + 4 + 4;
+
+    // receives the records of a capture file in order
+    public interface Handler {
+        void onRequest(long arrivalNanos, int sender, Request request);
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long numOfRecords;
+
+    //truncates the file
+    public RequestCapture(Path file, int bufferSize) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public long getNumOfRecords() {
+        return numOfRecords;
+    }
+
+    public void append(long arrivalNanos, int sender, Request request) {
+        int size = MessageCodec.encodedSize(request);
+        if (buffer.remaining() < RECORD_HEADER_SIZE + size) {
+            flush();
+            if (buffer.remaining() < RECORD_HEADER_SIZE + size) {
+                throw new IllegalArgumentException("Request of " + size + " bytes doesn't fit the capture buffer");
+            }
+        }
+        buffer.putLong(arrivalNanos);
+        buffer.putInt(sender);
+        buffer.putInt(size);
+        MessageCodec.encode(request, buffer);
+        numOfRecords++;
+    }
+
+    //writes the buffered records to the file
+    public void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    //reads every record of the file, a record cut short at the end is skipped
+    public static long read(Path file, Handler handler) throws IOException {
+        long read = 0;
+        try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                long arrivalNanos = buffer.getLong();
+                int sender = buffer.getInt();
+                int size = buffer.getInt();
+                if (size <= 0 || buffer.remaining() < size) break;
+
+                int end = buffer.position() + size;
+                Object message = MessageCodec.decode(buffer);
+                if (buffer.position() != end || !(message instanceof Request)) {
+                    throw new IllegalStateException("Corrupt capture record " + read + ": " + message);
+                }
+                handler.onRequest(arrivalNanos, sender, (Request) message);
+                read++;
+            }
+        }
+        return read;
+    }
+
+}
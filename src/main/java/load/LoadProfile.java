@@ -0,0 +1,152 @@
+package load;
+
+import com.typesafe.config.Config;
+import enums.Instrument;
+import enums.Side;
+import order.Order;
+import order.TraderOrderBook;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+// the workload of a load-generating trader, see engine.load settings. requests go out at a fixed rate
+// whatever the engine's answers, the mix of request types and instruments is weighted, and prices are
+// drawn around the best bid and offer the trader sees
+public class LoadProfile {
+
+    public enum RequestType {
+        NEW, MODIFY, CANCEL
+    }
+
+    private static final RequestType[] REQUEST_TYPES = RequestType.values();
+    private static final Instrument[] INSTRUMENTS = Instrument.values();
+
+    private final int traders;
+    private final long intervalNanos;
+    private final Duration duration;
+    private final Duration drain;
+    private final long seed;
+    // cumulative weights, indexed like REQUEST_TYPES and INSTRUMENTS
+    private final double[] requestMix;
+    private final double[] instrumentMix;
+    private final int priceRangeTicks;
+    private final double aggressiveRatio;
+    private final int maxQuantity;
+    private final double referencePrice;
+
+    public LoadProfile(int traders, double rate, Duration duration, Duration drain, long seed, double[] requestWeights,
+                       double[] instrumentWeights, int priceRangeTicks, double aggressiveRatio, int maxQuantity, double referencePrice) {
+        if (rate <= 0) throw new IllegalArgumentException("Rate must be positive: " + rate);
+        this.traders = traders;
+        this.intervalNanos = Math.max(1, (long) (1e9 / rate));
+        this.duration = duration;
+        this.drain = drain;
+        this.seed = seed;
+        this.requestMix = cumulative(requestWeights);
+        this.instrumentMix = cumulative(instrumentWeights);
+        this.priceRangeTicks = Math.max(1, priceRangeTicks);
+        this.aggressiveRatio = aggressiveRatio;
+        this.maxQuantity = Math.max(1, maxQuantity);
+        this.referencePrice = referencePrice;
+    }
+
+    public static LoadProfile fromConfig(Config config) {
+        Config mix = config.getConfig("mix");
+        double[] requestWeights = {mix.getDouble("new"), mix.getDouble("modify"), mix.getDouble("cancel")};
+        // instruments without a weight get 1
+        Config skew = config.getConfig("instrument-weights");
+        double[] instrumentWeights = new double[INSTRUMENTS.length];
+        for (Instrument instrument : INSTRUMENTS) {
+            instrumentWeights[instrument.ordinal()] = skew.hasPath(instrument.name()) ? skew.getDouble(instrument.name()) : 1;
+        }
+        return new LoadProfile(config.getInt("traders"), config.getDouble("rate"), config.getDuration("duration"),
+                config.getDuration("drain"), config.getLong("seed"), requestWeights, instrumentWeights,
+                config.getInt("price-range-ticks"), config.getDouble("aggressive-ratio"), config.getInt("max-quantity"),
+                config.getDouble("reference-price"));
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0) throw new IllegalArgumentException("Negative weight: " + weights[i]);
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        if (sum <= 0) throw new IllegalArgumentException("Weights must not all be zero");
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, SplittableRandom random) {
+        double value = random.nextDouble() * cumulative[cumulative.length - 1];
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (value < cumulative[i]) return i;
+        }
+        return cumulative.length - 1;
+    }
+
+    public int getTraders() {
+        return traders;
+    }
+
+    //time between two requests of one trader
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    //how long to wait for the answers after the last request
+    public Duration getDrain() {
+        return drain;
+    }
+
+    //every trader draws from its own generator, seeded from this and its trader ID
+    public SplittableRandom newRandom(int traderID) {
+        return new SplittableRandom(seed * 31 + traderID);
+    }
+
+    public RequestType nextRequestType(SplittableRandom random) {
+        return REQUEST_TYPES[pick(requestMix, random)];
+    }
+
+    public Instrument nextInstrument(SplittableRandom random) {
+        return INSTRUMENTS[pick(instrumentMix, random)];
+    }
+
+    public int nextQuantity(SplittableRandom random) {
+        return 1 + random.nextInt(maxQuantity);
+    }
+
+    //price in ticks for an order on the side. most orders rest up to priceRangeTicks behind the best
+    //order of their side, or improve it by a tick without crossing. aggressiveRatio of them take the
+    //opposite best. an empty book starts from referencePrice. book may be null
+    public long nextPriceTicks(SplittableRandom random, Instrument instrument, Side side, TraderOrderBook book) {
+        Order bestBid = book == null ? null : book.getBestBid();
+        Order bestOffer = book == null ? null : book.getBestOffer();
+        Order opposite = side == Side.BIDS ? bestOffer : bestBid;
+        if (opposite != null && random.nextDouble() < aggressiveRatio) {
+            return opposite.getPrice();
+        }
+
+        Order same = side == Side.BIDS ? bestBid : bestOffer;
+        int direction = side == Side.BIDS ? -1 : 1;
+        long touch;
+        if (same != null) {
+            touch = same.getPrice();
+        } else if (opposite != null) {
+            touch = opposite.getPrice() + direction;
+        } else {
+            touch = instrument.toTicks(referencePrice);
+        }
+        // -1 improves the best by a tick
+        long price = touch + direction * (random.nextInt(priceRangeTicks + 1) - 1);
+        if (opposite != null) {
+            price = side == Side.BIDS ? Math.min(price, opposite.getPrice() - 1) : Math.max(price, opposite.getPrice() + 1);
+        }
+        return Math.max(price, 1);
+    }
+
+}
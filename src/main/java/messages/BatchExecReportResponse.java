@@ -0,0 +1,29 @@
+package messages;
+
+import java.util.Arrays;
+
+// the reports of a BatchOrderRequest's requests, one each and in the same order, or the REMOVE
+// reports of a MassCancelRequest. fills of the batch's orders follow as separate reports
+public final class BatchExecReportResponse extends Response {
+
+    private final ExecReportResponse[] reports;
+
+    public BatchExecReportResponse(ExecReportResponse[] reports) {
+        this.reports = reports;
+    }
+
+    public int size() {
+        return reports.length;
+    }
+
+    public ExecReportResponse get(int i) {
+        return reports[i];
+    }
+
+    @Override
+    public String toString() {
+        return "BatchExecReportResponse{" +
+                "reports=" + Arrays.toString(reports) +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package messages;
+
+import java.util.Arrays;
+import java.util.List;
+
+// many NewOrderRequest, ModifyOrderRequest and CancelOrderRequest in one message. the engine applies
+// them in order in one turn and matches every instrument they touched once at the end, so orders of
+// the batch that cross only trade after the whole batch is applied. it answers with one
+// BatchExecReportResponse, then the fills, then TransactionComplete unless the sender is a subscriber.
+// an IOC or FOK order in a batch is rejected with INVALID_TIME_IN_FORCE.
+// ShardedMatchEngine and ClusterMatchEngine split a batch by shard and answer it as one once every shard
+// is done, so the fills of a split batch come before its BatchExecReportResponse
+public final class BatchOrderRequest extends Request {
+
+    private final Request[] requests;
+
+    public BatchOrderRequest(List<? extends Request> requests) {
+        for (Request request : requests) {
+            if (!(request instanceof NewOrderRequest || request instanceof ModifyOrderRequest || request instanceof CancelOrderRequest)) {
+                throw new IllegalArgumentException("Can't batch " + request);
+            }
+        }
+        this.requests = requests.toArray(new Request[0]);
+    }
+
+    public int size() {
+        return requests.length;
+    }
+
+    //NewOrderRequest, ModifyOrderRequest or CancelOrderRequest
+    public Request get(int i) {
+        return requests[i];
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOrderRequest{" +
+                "requests=" + Arrays.toString(requests) +
+                '}';
+    }
+}
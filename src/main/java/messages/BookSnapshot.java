@@ -0,0 +1,192 @@
+package messages;
+
+import enums.Instrument;
+import enums.Side;
+import enums.Status;
+import order.BookSide;
+import order.Order;
+import order.OrderStore;
+import order.SlotBookSide;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// resting orders of one instrument in priority order, bids first, sent to a new subscriber
+// instead of the history of reports. every later report is a delta on top of it.
+public final class BookSnapshot extends Response {
+
+    private final Instrument instrument;
+    private final long sequence;
+    private final int numOfBids;
+    private final int[] orderIDs;
+    private final int[] traderIDs;
+    private final int[] quantities;
+    private final long[] prices;
+    private final long[] sequences;
+    private final long[] timestamps;
+    private final Status[] statuses;
+
+    public BookSnapshot(Instrument instrument, long sequence, BookSide bids, BookSide offers) {
+        this(instrument, sequence, bids.size(), bids.size() + offers.size());
+
+        int i = 0;
+        for (Order order : bids) {
+            put(i++, order);
+        }
+        for (Order order : offers) {
+            put(i++, order);
+        }
+    }
+
+    public BookSnapshot(Instrument instrument, long sequence, OrderStore store, SlotBookSide bids, SlotBookSide offers) {
+        this(instrument, sequence, bids.size(), bids.size() + offers.size());
+
+        int i = put(0, store, bids);
+        put(i, store, offers);
+    }
+
+    private BookSnapshot(Instrument instrument, long sequence, int numOfBids, int size) {
+        this.instrument = instrument;
+        this.sequence = sequence;
+        this.numOfBids = numOfBids;
+        this.orderIDs = new int[size];
+        this.traderIDs = new int[size];
+        this.quantities = new int[size];
+        this.prices = new long[size];
+        this.sequences = new long[size];
+        this.timestamps = new long[size];
+        this.statuses = new Status[size];
+    }
+
+    private void put(int i, Order order) {
+        orderIDs[i] = order.getOrderID();
+        traderIDs[i] = order.getTraderID();
+        quantities[i] = order.getQuantity();
+        prices[i] = order.getPrice();
+        sequences[i] = order.getSequence();
+        timestamps[i] = order.getTimestamp();
+        statuses[i] = order.getStatus();
+    }
+
+    //puts the slots of the side from i on, returns the index after the last one
+    private int put(int i, OrderStore store, SlotBookSide side) {
+        for (SlotBookSide.Level level : side.getLevels()) {
+            for (int slot = level.getFirst(); slot != OrderStore.NO_SLOT; slot = side.getNext(slot)) {
+                orderIDs[i] = store.getOrderID(slot);
+                traderIDs[i] = store.getTraderID(slot);
+                quantities[i] = store.getQuantity(slot);
+                prices[i] = store.getPrice(slot);
+                sequences[i] = store.getSequence(slot);
+                timestamps[i] = store.getTimestamp(slot);
+                statuses[i++] = store.getStatus(slot);
+            }
+        }
+        return i;
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    //engine sequence when the snapshot was taken, every order in it has a lower one
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int size() {
+        return orderIDs.length;
+    }
+
+    public int getNumOfBids() {
+        return numOfBids;
+    }
+
+    public Side getSide(int i) {
+        return i < numOfBids ? Side.BIDS : Side.OFFERS;
+    }
+
+    public int getOrderID(int i) {
+        return orderIDs[i];
+    }
+
+    public int getTraderID(int i) {
+        return traderIDs[i];
+    }
+
+    public int getQuantity(int i) {
+        return quantities[i];
+    }
+
+    //price in ticks of the instrument
+    public long getPrice(int i) {
+        return prices[i];
+    }
+
+    public long getOrderSequence(int i) {
+        return sequences[i];
+    }
+
+    public long getTimestamp(int i) {
+        return timestamps[i];
+    }
+
+    public Status getStatus(int i) {
+        return statuses[i];
+    }
+
+    //creates the i-th order of the snapshot
+    public Order toOrder(int i) {
+        Order order = new Order(traderIDs[i], orderIDs[i], getSide(i), instrument);
+        order.setQuantity(quantities[i]);
+        order.setPrice(prices[i]);
+        order.setSequence(sequences[i]);
+        order.setTimestamp(timestamps[i]);
+        order.setStatus(statuses[i]);
+        return order;
+    }
+
+    //binary form used by the engine's snapshot files
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(instrument.ordinal());
+        out.writeLong(sequence);
+        out.writeInt(numOfBids);
+        out.writeInt(orderIDs.length);
+        for (int i = 0; i < orderIDs.length; i++) {
+            out.writeInt(orderIDs[i]);
+            out.writeInt(traderIDs[i]);
+            out.writeInt(quantities[i]);
+            out.writeLong(prices[i]);
+            out.writeLong(sequences[i]);
+            out.writeLong(timestamps[i]);
+            out.writeByte(statuses[i].ordinal());
+        }
+    }
+
+    public static BookSnapshot readFrom(DataInput in) throws IOException {
+        Instrument instrument = Instrument.values()[in.readByte()];
+        long sequence = in.readLong();
+        int numOfBids = in.readInt();
+        BookSnapshot snapshot = new BookSnapshot(instrument, sequence, numOfBids, in.readInt());
+        for (int i = 0; i < snapshot.orderIDs.length; i++) {
+            snapshot.orderIDs[i] = in.readInt();
+            snapshot.traderIDs[i] = in.readInt();
+            snapshot.quantities[i] = in.readInt();
+            snapshot.prices[i] = in.readLong();
+            snapshot.sequences[i] = in.readLong();
+            snapshot.timestamps[i] = in.readLong();
+            snapshot.statuses[i] = Status.values()[in.readByte()];
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "BookSnapshot{" +
+                "instrument=" + instrument +
+                ", sequence=" + sequence +
+                ", bids=" + numOfBids +
+                ", offers=" + (orderIDs.length - numOfBids) +
+                '}';
+    }
+}
@@ -3,8 +3,15 @@ package messages;
 public final class CancelOrderRequest extends Request {
     private final int orderID;
     private final int traderID;
+    private final int requestID;
 
     public CancelOrderRequest(int orderID, int traderID) {
+        this(orderID, traderID, 0);
+    }
+
+    //requestID is the trader's own, the engine echoes it in a rejection of the request
+    public CancelOrderRequest(int orderID, int traderID, int requestID) {
+        this.requestID = requestID;
         this.orderID = orderID;
         this.traderID = traderID;
     }
@@ -17,11 +24,16 @@ public final class CancelOrderRequest extends Request {
         return traderID;
     }
 
+    public int getRequestID() {
+        return requestID;
+    }
+
     @Override
     public String toString() {
         return "CancelOrderRequest{" +
                 "orderID=" + orderID +
                 ", traderID=" + traderID +
+                ", requestID=" + requestID +
                 '}';
     }
 }
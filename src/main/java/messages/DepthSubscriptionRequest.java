@@ -0,0 +1,23 @@
+package messages;
+
+// subscribes to aggregated price levels instead of every order's reports,
+// depth 1 is the best bid and offer
+public final class DepthSubscriptionRequest extends Request {
+
+    private final int traderID;
+    private final int depth;
+
+    public DepthSubscriptionRequest(int traderID, int depth) {
+        this.traderID = traderID;
+        this.depth = depth;
+    }
+
+    public int getTraderID() {
+        return traderID;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+}
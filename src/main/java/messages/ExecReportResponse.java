@@ -1,8 +1,7 @@
 package messages;
 
-import java.util.Date;
-
 import enums.*;
+import order.EpochClock;
 import order.Order;
 
 public final class ExecReportResponse extends Response {
@@ -13,10 +12,13 @@ public final class ExecReportResponse extends Response {
     private final Instrument instrument;
     private final int quantity;
     private final double price;
+    private final long priceTicks;
     private final Status status;
     private final ExecType execType;
     private final RejectionReason rejectionReason;
-    private final Date orderDate;
+    private final long sequence;
+    private final long timestamp;
+    private final int requestID;
 
     // on successful requests
     public ExecReportResponse(Order order, ExecType execType) {
@@ -24,10 +26,13 @@ public final class ExecReportResponse extends Response {
         this.side = order.getSide();
         this.traderID = order.getTraderID();
         this.quantity = order.getQuantity();
-        this.price = order.getPrice();
+        this.priceTicks = order.getPrice();
+        this.price = order.getInstrument().toPrice(order.getPrice());
         this.status = order.getStatus();
         this.orderID = order.getOrderID();
-        this.orderDate = order.getOrderDate();
+        this.sequence = order.getSequence();
+        this.timestamp = order.getTimestamp();
+        this.requestID = 0;
         this.execType = execType;
         this.rejectionReason = null;
     }
@@ -39,9 +44,12 @@ public final class ExecReportResponse extends Response {
         this.traderID = request.getTraderID();
         this.quantity = request.getQuantity();
         this.price = request.getPrice();
+        this.priceTicks = 0;
         this.status = Status.REJECTED;
         this.orderID = -1;
-        this.orderDate = request.getDate();
+        this.sequence = -1;
+        this.timestamp = EpochClock.nanos();
+        this.requestID = request.getRequestID();
         this.execType = ExecType.REJECTED;
         this.rejectionReason = rejectionReason;
     }
@@ -53,9 +61,12 @@ public final class ExecReportResponse extends Response {
         this.traderID = request.getTraderID();
         this.quantity = request.getQuantity();
         this.price = request.getPrice();
+        this.priceTicks = 0;
         this.status = Status.REJECTED;
         this.orderID = -1;
-        this.orderDate = new Date();
+        this.sequence = -1;
+        this.timestamp = EpochClock.nanos();
+        this.requestID = request.getRequestID();
         this.execType = ExecType.REJECTED;
         this.rejectionReason = rejectionReason;
     }
@@ -67,13 +78,68 @@ public final class ExecReportResponse extends Response {
         this.traderID = request.getTraderID();
         this.quantity = 0;
         this.price = 0;
+        this.priceTicks = 0;
+        this.status = Status.REJECTED;
+        this.orderID = -1;
+        this.sequence = -1;
+        this.timestamp = EpochClock.nanos();
+        this.requestID = request.getRequestID();
+        this.execType = ExecType.REJECTED;
+        this.rejectionReason = rejectionReason;
+    }
+
+    //on rejected mass cancel request
+    public ExecReportResponse(MassCancelRequest request, RejectionReason rejectionReason) {
+        this.instrument = request.getInstrument();
+        this.side = request.getSide();
+        this.traderID = request.getTraderID();
+        this.quantity = 0;
+        this.price = 0;
+        this.priceTicks = 0;
+        this.status = Status.REJECTED;
+        this.orderID = -1;
+        this.sequence = -1;
+        this.timestamp = EpochClock.nanos();
+        this.requestID = 0;
+        this.execType = ExecType.REJECTED;
+        this.rejectionReason = rejectionReason;
+    }
+
+    //on a rejected request that isn't about one order, e.g. a subscription the engine doesn't take
+    public ExecReportResponse(int traderID, RejectionReason rejectionReason) {
+        this.instrument = null;
+        this.side = null;
+        this.traderID = traderID;
+        this.quantity = 0;
+        this.price = 0;
+        this.priceTicks = 0;
         this.status = Status.REJECTED;
         this.orderID = -1;
-        this.orderDate = new Date();
+        this.sequence = -1;
+        this.timestamp = EpochClock.nanos();
+        this.requestID = 0;
         this.execType = ExecType.REJECTED;
         this.rejectionReason = rejectionReason;
     }
 
+    // decoded by MessageCodec
+    ExecReportResponse(int orderID, int traderID, Side side, Instrument instrument, int quantity, double price, long priceTicks,
+                       Status status, ExecType execType, RejectionReason rejectionReason, long sequence, long timestamp, int requestID) {
+        this.orderID = orderID;
+        this.traderID = traderID;
+        this.side = side;
+        this.instrument = instrument;
+        this.quantity = quantity;
+        this.price = price;
+        this.priceTicks = priceTicks;
+        this.status = status;
+        this.execType = execType;
+        this.rejectionReason = rejectionReason;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.requestID = requestID;
+    }
+
     public Instrument getInstrument() {
         Instrument res = this.instrument;
         return res;
@@ -98,6 +164,11 @@ public final class ExecReportResponse extends Response {
         return res;
     }
 
+    //price in ticks of the instrument, 0 on rejections
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
     public Status getStatus() {
         Status res = this.status;
         return res;
@@ -108,8 +179,14 @@ public final class ExecReportResponse extends Response {
         return res;
     }
 
-    public Date getDate() {
-        return orderDate;
+    //time priority of the order in the engine's book
+    public long getSequence() {
+        return sequence;
+    }
+
+    //epoch nanoseconds
+    public long getTimestamp() {
+        return timestamp;
     }
 
     public ExecType getExecType() {
@@ -120,6 +197,11 @@ public final class ExecReportResponse extends Response {
         return rejectionReason;
     }
 
+    //the trader's ID of the rejected request, 0 on every other report
+    public int getRequestID() {
+        return requestID;
+    }
+
     @Override
     public String toString() {
         return "ExecReportResponse{" +
@@ -132,7 +214,9 @@ public final class ExecReportResponse extends Response {
                 ", status=" + status +
                 ", execType=" + execType +
                 ", rejectionReason=" + rejectionReason +
-                ", orderDate=" + orderDate +
+                ", sequence=" + sequence +
+                ", timestamp=" + timestamp +
+                ", requestID=" + requestID +
                 '}';
     }
 }
@@ -0,0 +1,31 @@
+package messages;
+
+import java.util.Arrays;
+
+// every ExecReportResponse and TradeMessage of one engine transaction, in the order they happened,
+// sent to subscribers as one message. the transaction is complete at the end of the batch,
+// no separate TransactionComplete follows
+public final class MarketDataBatch extends Response {
+
+    private final Response[] events;
+
+    public MarketDataBatch(Response[] events) {
+        this.events = events;
+    }
+
+    public int size() {
+        return events.length;
+    }
+
+    //ExecReportResponse or TradeMessage
+    public Response get(int i) {
+        return events[i];
+    }
+
+    @Override
+    public String toString() {
+        return "MarketDataBatch{" +
+                "events=" + Arrays.toString(events) +
+                '}';
+    }
+}
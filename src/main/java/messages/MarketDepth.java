@@ -0,0 +1,144 @@
+package messages;
+
+import enums.Instrument;
+import order.BookSide;
+import order.PriceLevel;
+import order.SlotBookSide;
+
+import java.util.Arrays;
+
+// the best price levels of one instrument, aggregated over their orders. it is the latest state of the
+// book, updates a subscriber didn't acknowledge yet are conflated into the next one
+public final class MarketDepth extends Response {
+
+    private final Instrument instrument;
+    private final long sequence;
+    private final long[] bidPrices;
+    private final long[] bidQuantities;
+    private final int[] bidOrders;
+    private final long[] offerPrices;
+    private final long[] offerQuantities;
+    private final int[] offerOrders;
+
+    public MarketDepth(Instrument instrument, long sequence, BookSide bids, BookSide offers, int depth) {
+        this.instrument = instrument;
+        this.sequence = sequence;
+        int numOfBidLevels = Math.min(depth, bids.getLevels().size());
+        int numOfOfferLevels = Math.min(depth, offers.getLevels().size());
+        this.bidPrices = new long[numOfBidLevels];
+        this.bidQuantities = new long[numOfBidLevels];
+        this.bidOrders = new int[numOfBidLevels];
+        this.offerPrices = new long[numOfOfferLevels];
+        this.offerQuantities = new long[numOfOfferLevels];
+        this.offerOrders = new int[numOfOfferLevels];
+
+        int i = 0;
+        for (PriceLevel level : bids.getLevels()) {
+            if (i == numOfBidLevels) break;
+            bidPrices[i] = level.getPrice();
+            bidQuantities[i] = level.getQuantity();
+            bidOrders[i++] = level.size();
+        }
+        i = 0;
+        for (PriceLevel level : offers.getLevels()) {
+            if (i == numOfOfferLevels) break;
+            offerPrices[i] = level.getPrice();
+            offerQuantities[i] = level.getQuantity();
+            offerOrders[i++] = level.size();
+        }
+    }
+
+    public MarketDepth(Instrument instrument, long sequence, SlotBookSide bids, SlotBookSide offers, int depth) {
+        this.instrument = instrument;
+        this.sequence = sequence;
+        int numOfBidLevels = Math.min(depth, bids.getNumOfLevels());
+        int numOfOfferLevels = Math.min(depth, offers.getNumOfLevels());
+        this.bidPrices = new long[numOfBidLevels];
+        this.bidQuantities = new long[numOfBidLevels];
+        this.bidOrders = new int[numOfBidLevels];
+        this.offerPrices = new long[numOfOfferLevels];
+        this.offerQuantities = new long[numOfOfferLevels];
+        this.offerOrders = new int[numOfOfferLevels];
+
+        int i = 0;
+        for (SlotBookSide.Level level : bids.getLevels()) {
+            if (i == numOfBidLevels) break;
+            bidPrices[i] = level.getPrice();
+            bidQuantities[i] = level.getQuantity();
+            bidOrders[i++] = level.size();
+        }
+        i = 0;
+        for (SlotBookSide.Level level : offers.getLevels()) {
+            if (i == numOfOfferLevels) break;
+            offerPrices[i] = level.getPrice();
+            offerQuantities[i] = level.getQuantity();
+            offerOrders[i++] = level.size();
+        }
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    //engine sequence when the depth was taken
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getNumOfBidLevels() {
+        return bidPrices.length;
+    }
+
+    //price in ticks of the i-th best bid level
+    public long getBidPrice(int i) {
+        return bidPrices[i];
+    }
+
+    public long getBidQuantity(int i) {
+        return bidQuantities[i];
+    }
+
+    public int getBidOrders(int i) {
+        return bidOrders[i];
+    }
+
+    public int getNumOfOfferLevels() {
+        return offerPrices.length;
+    }
+
+    //price in ticks of the i-th best offer level
+    public long getOfferPrice(int i) {
+        return offerPrices[i];
+    }
+
+    public long getOfferQuantity(int i) {
+        return offerQuantities[i];
+    }
+
+    public int getOfferOrders(int i) {
+        return offerOrders[i];
+    }
+
+    //whether both show the same levels, whatever their sequences
+    public boolean sameLevels(MarketDepth other) {
+        return instrument == other.instrument &&
+                Arrays.equals(bidPrices, other.bidPrices) &&
+                Arrays.equals(bidQuantities, other.bidQuantities) &&
+                Arrays.equals(bidOrders, other.bidOrders) &&
+                Arrays.equals(offerPrices, other.offerPrices) &&
+                Arrays.equals(offerQuantities, other.offerQuantities) &&
+                Arrays.equals(offerOrders, other.offerOrders);
+    }
+
+    @Override
+    public String toString() {
+        return "MarketDepth{" +
+                "instrument=" + instrument +
+                ", sequence=" + sequence +
+                ", bidPrices=" + Arrays.toString(bidPrices) +
+                ", bidQuantities=" + Arrays.toString(bidQuantities) +
+                ", offerPrices=" + Arrays.toString(offerPrices) +
+                ", offerQuantities=" + Arrays.toString(offerQuantities) +
+                '}';
+    }
+}
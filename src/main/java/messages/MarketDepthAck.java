@@ -0,0 +1,6 @@
+package messages;
+
+// sent by a depth subscriber to the sender of a MarketDepth once it has handled it,
+// the engine doesn't send the next one before that
+public final class MarketDepthAck extends Request {
+}
@@ -0,0 +1,44 @@
+package messages;
+
+import enums.Instrument;
+import enums.Side;
+
+// cancels every live order of the trader, or only those of one instrument and/or side.
+// the engine answers with one BatchExecReportResponse holding a REMOVE report per canceled order
+public final class MassCancelRequest extends Request {
+    private final int traderID;
+    // null matches every instrument or side
+    private final Instrument instrument;
+    private final Side side;
+
+    public MassCancelRequest(int traderID) {
+        this(traderID, null, null);
+    }
+
+    public MassCancelRequest(int traderID, Instrument instrument, Side side) {
+        this.traderID = traderID;
+        this.instrument = instrument;
+        this.side = side;
+    }
+
+    public int getTraderID() {
+        return traderID;
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    @Override
+    public String toString() {
+        return "MassCancelRequest{" +
+                "traderID=" + traderID +
+                ", instrument=" + instrument +
+                ", side=" + side +
+                '}';
+    }
+}
@@ -0,0 +1,293 @@
+package messages;
+
+import enums.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// fixed-layout binary encoding of the order entry messages, [byte type][fields] in the buffer's byte order.
+// enums are written as their ordinals, -1 for null, dates as epoch milliseconds. used by the Akka
+// serializer and by anything else that moves messages through a ByteBuffer. on a stream, such as the
+// gateway's TCP sessions, every message is a frame prefixed with its int length. batches are
+// [byte type][int count][messages] and are longer than MAX_SIZE, so they don't fit a gateway frame
+public final class MessageCodec {
+
+    public static final byte NEW_ORDER_REQUEST = 1;
+    public static final byte MODIFY_ORDER_REQUEST = 2;
+    public static final byte CANCEL_ORDER_REQUEST = 3;
+    public static final byte EXEC_REPORT_RESPONSE = 4;
+    public static final byte TRADE_MESSAGE = 5;
+    public static final byte TRANSACTION_COMPLETE = 6;
+    public static final byte MASS_CANCEL_REQUEST = 7;
+    public static final byte BATCH_ORDER_REQUEST = 8;
+    public static final byte BATCH_EXEC_REPORT_RESPONSE = 9;
+
+    public static final int NEW_ORDER_REQUEST_SIZE = 1 + 4 + 1 + 1 + 4 + 8 + 8 + 1 + 4;
+    public static final int MODIFY_ORDER_REQUEST_SIZE = 1 + 4 + 4 + 4 + 8 + 4;
+    public static final int CANCEL_ORDER_REQUEST_SIZE = 1 + 4 + 4 + 4;
+    public static final int EXEC_REPORT_RESPONSE_SIZE = 1 + 4 + 4 + 1 + 1 + 4 + 8 + 8 + 1 + 1 + 1 + 8 + 8 + 4;
+    public static final int TRADE_MESSAGE_SIZE = 1 + 4 + 4 + 1 + 8 + 4;
+    public static final int TRANSACTION_COMPLETE_SIZE = 1;
+    public static final int MASS_CANCEL_REQUEST_SIZE = 1 + 4 + 1 + 1;
+    public static final int BATCH_HEADER_SIZE = 1 + 4;
+    public static final int MAX_SIZE = EXEC_REPORT_RESPONSE_SIZE;
+    public static final int FRAME_HEADER_SIZE = 4;
+    public static final int MAX_FRAME_SIZE = FRAME_HEADER_SIZE + MAX_SIZE;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final Side[] SIDES = Side.values();
+    private static final Instrument[] INSTRUMENTS = Instrument.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final ExecType[] EXEC_TYPES = ExecType.values();
+    private static final RejectionReason[] REJECTION_REASONS = RejectionReason.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private MessageCodec() {
+    }
+
+    public static boolean supports(Object message) {
+        return message instanceof NewOrderRequest || message instanceof ModifyOrderRequest || message instanceof CancelOrderRequest
+                || message instanceof ExecReportResponse || message instanceof TradeMessage || message instanceof TransactionComplete
+                || message instanceof MassCancelRequest || message instanceof BatchOrderRequest || message instanceof BatchExecReportResponse;
+    }
+
+    public static int encodedSize(Object message) {
+        if (message instanceof NewOrderRequest) return NEW_ORDER_REQUEST_SIZE;
+        if (message instanceof ModifyOrderRequest) return MODIFY_ORDER_REQUEST_SIZE;
+        if (message instanceof CancelOrderRequest) return CANCEL_ORDER_REQUEST_SIZE;
+        if (message instanceof ExecReportResponse) return EXEC_REPORT_RESPONSE_SIZE;
+        if (message instanceof TradeMessage) return TRADE_MESSAGE_SIZE;
+        if (message instanceof TransactionComplete) return TRANSACTION_COMPLETE_SIZE;
+        if (message instanceof MassCancelRequest) return MASS_CANCEL_REQUEST_SIZE;
+        if (message instanceof BatchOrderRequest) {
+            BatchOrderRequest batch = (BatchOrderRequest) message;
+            int size = BATCH_HEADER_SIZE;
+            for (int i = 0; i < batch.size(); i++) {
+                size += encodedSize(batch.get(i));
+            }
+            return size;
+        }
+        if (message instanceof BatchExecReportResponse) {
+            return BATCH_HEADER_SIZE + ((BatchExecReportResponse) message).size() * EXEC_REPORT_RESPONSE_SIZE;
+        }
+        throw new IllegalArgumentException("Can't encode " + message.getClass().getName());
+    }
+
+    //writes the message at the buffer's position and moves it past the message
+    public static void encode(Object message, ByteBuffer buffer) {
+        if (message instanceof NewOrderRequest) {
+            encode((NewOrderRequest) message, buffer);
+        } else if (message instanceof ModifyOrderRequest) {
+            encode((ModifyOrderRequest) message, buffer);
+        } else if (message instanceof CancelOrderRequest) {
+            encode((CancelOrderRequest) message, buffer);
+        } else if (message instanceof ExecReportResponse) {
+            encode((ExecReportResponse) message, buffer);
+        } else if (message instanceof TradeMessage) {
+            encode((TradeMessage) message, buffer);
+        } else if (message instanceof TransactionComplete) {
+            checkRemaining(buffer, TRANSACTION_COMPLETE_SIZE);
+            buffer.put(TRANSACTION_COMPLETE);
+        } else if (message instanceof MassCancelRequest) {
+            encode((MassCancelRequest) message, buffer);
+        } else if (message instanceof BatchOrderRequest) {
+            encode((BatchOrderRequest) message, buffer);
+        } else if (message instanceof BatchExecReportResponse) {
+            encode((BatchExecReportResponse) message, buffer);
+        } else {
+            throw new IllegalArgumentException("Can't encode " + message.getClass().getName());
+        }
+    }
+
+    public static void encode(NewOrderRequest request, ByteBuffer buffer) {
+        checkRemaining(buffer, NEW_ORDER_REQUEST_SIZE);
+        buffer.put(NEW_ORDER_REQUEST);
+        buffer.putInt(request.getTraderID());
+        buffer.put(ordinal(request.getSide()));
+        buffer.put(ordinal(request.getInstrument()));
+        buffer.putInt(request.getQuantity());
+        buffer.putDouble(request.getPrice());
+        buffer.putLong(request.getDate() == null ? NO_DATE : request.getDate().getTime());
+        buffer.put(ordinal(request.getTimeInForce()));
+        buffer.putInt(request.getRequestID());
+    }
+
+    public static void encode(ModifyOrderRequest request, ByteBuffer buffer) {
+        checkRemaining(buffer, MODIFY_ORDER_REQUEST_SIZE);
+        buffer.put(MODIFY_ORDER_REQUEST);
+        buffer.putInt(request.getOrderID());
+        buffer.putInt(request.getTraderID());
+        buffer.putInt(request.getQuantity());
+        buffer.putDouble(request.getPrice());
+        buffer.putInt(request.getRequestID());
+    }
+
+    public static void encode(CancelOrderRequest request, ByteBuffer buffer) {
+        checkRemaining(buffer, CANCEL_ORDER_REQUEST_SIZE);
+        buffer.put(CANCEL_ORDER_REQUEST);
+        buffer.putInt(request.getOrderID());
+        buffer.putInt(request.getTraderID());
+        buffer.putInt(request.getRequestID());
+    }
+
+    public static void encode(ExecReportResponse response, ByteBuffer buffer) {
+        checkRemaining(buffer, EXEC_REPORT_RESPONSE_SIZE);
+        buffer.put(EXEC_REPORT_RESPONSE);
+        buffer.putInt(response.getOrderID());
+        buffer.putInt(response.getTraderID());
+        buffer.put(ordinal(response.getSide()));
+        buffer.put(ordinal(response.getInstrument()));
+        buffer.putInt(response.getQuantity());
+        buffer.putDouble(response.getPrice());
+        buffer.putLong(response.getPriceTicks());
+        buffer.put(ordinal(response.getStatus()));
+        buffer.put(ordinal(response.getExecType()));
+        buffer.put(ordinal(response.getRejectionReason()));
+        buffer.putLong(response.getSequence());
+        buffer.putLong(response.getTimestamp());
+        buffer.putInt(response.getRequestID());
+    }
+
+    public static void encode(TradeMessage tradeMessage, ByteBuffer buffer) {
+        checkRemaining(buffer, TRADE_MESSAGE_SIZE);
+        buffer.put(TRADE_MESSAGE);
+        buffer.putInt(tradeMessage.getBidOrderID());
+        buffer.putInt(tradeMessage.getOfferOrderID());
+        buffer.put(ordinal(tradeMessage.getInstrument()));
+        buffer.putLong(tradeMessage.getTradePriceTicks());
+        buffer.putInt(tradeMessage.getTradeQuantity());
+    }
+
+    public static void encode(MassCancelRequest request, ByteBuffer buffer) {
+        checkRemaining(buffer, MASS_CANCEL_REQUEST_SIZE);
+        buffer.put(MASS_CANCEL_REQUEST);
+        buffer.putInt(request.getTraderID());
+        buffer.put(ordinal(request.getInstrument()));
+        buffer.put(ordinal(request.getSide()));
+    }
+
+    public static void encode(BatchOrderRequest batch, ByteBuffer buffer) {
+        checkRemaining(buffer, encodedSize(batch));
+        buffer.put(BATCH_ORDER_REQUEST);
+        buffer.putInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            encode(batch.get(i), buffer);
+        }
+    }
+
+    public static void encode(BatchExecReportResponse batch, ByteBuffer buffer) {
+        checkRemaining(buffer, encodedSize(batch));
+        buffer.put(BATCH_EXEC_REPORT_RESPONSE);
+        buffer.putInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            encode(batch.get(i), buffer);
+        }
+    }
+
+    //writes [int length][message] at the buffer's position
+    public static void encodeFrame(Object message, ByteBuffer buffer) {
+        int size = encodedSize(message);
+        checkRemaining(buffer, FRAME_HEADER_SIZE + size);
+        buffer.putInt(size);
+        encode(message, buffer);
+    }
+
+    //reads the frame at the buffer's position, or returns null and leaves the position alone
+    //if the buffer doesn't hold the whole frame yet
+    public static Object decodeFrame(ByteBuffer buffer) {
+        if (buffer.remaining() < FRAME_HEADER_SIZE) return null;
+        int start = buffer.position();
+        int size = buffer.getInt(start);
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid frame length: " + size);
+        }
+        if (buffer.remaining() < FRAME_HEADER_SIZE + size) return null;
+
+        buffer.position(start + FRAME_HEADER_SIZE);
+        Object message = decode(buffer);
+        if (buffer.position() != start + FRAME_HEADER_SIZE + size) {
+            throw new IllegalArgumentException("Frame length " + size + " doesn't match its message " + message);
+        }
+        return message;
+    }
+
+    //reads the message at the buffer's position and moves it past the message
+    public static Object decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case NEW_ORDER_REQUEST: {
+                int traderID = buffer.getInt();
+                Side side = value(SIDES, buffer.get());
+                Instrument instrument = value(INSTRUMENTS, buffer.get());
+                int quantity = buffer.getInt();
+                double price = buffer.getDouble();
+                long date = buffer.getLong();
+                TimeInForce timeInForce = value(TIMES_IN_FORCE, buffer.get());
+                return new NewOrderRequest(side, instrument, quantity, price, date == NO_DATE ? null : new Date(date), traderID, timeInForce,
+                        buffer.getInt());
+            }
+            case MODIFY_ORDER_REQUEST:
+                return new ModifyOrderRequest(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getDouble(), buffer.getInt());
+            case CANCEL_ORDER_REQUEST:
+                return new CancelOrderRequest(buffer.getInt(), buffer.getInt(), buffer.getInt());
+            case EXEC_REPORT_RESPONSE:
+                return new ExecReportResponse(buffer.getInt(), buffer.getInt(), value(SIDES, buffer.get()), value(INSTRUMENTS, buffer.get()),
+                        buffer.getInt(), buffer.getDouble(), buffer.getLong(), value(STATUSES, buffer.get()), value(EXEC_TYPES, buffer.get()),
+                        value(REJECTION_REASONS, buffer.get()), buffer.getLong(), buffer.getLong(), buffer.getInt());
+            case TRADE_MESSAGE: {
+                int bidOrderID = buffer.getInt();
+                int offerOrderID = buffer.getInt();
+                Instrument instrument = value(INSTRUMENTS, buffer.get());
+                long tradePrice = buffer.getLong();
+                return new TradeMessage(bidOrderID, offerOrderID, tradePrice, buffer.getInt(), instrument);
+            }
+            case TRANSACTION_COMPLETE:
+                return new TransactionComplete();
+            case MASS_CANCEL_REQUEST:
+                return new MassCancelRequest(buffer.getInt(), value(INSTRUMENTS, buffer.get()), value(SIDES, buffer.get()));
+            case BATCH_ORDER_REQUEST: {
+                int count = checkCount(buffer.getInt(), buffer, CANCEL_ORDER_REQUEST_SIZE);
+                List<Request> requests = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    requests.add((Request) decode(buffer));
+                }
+                return new BatchOrderRequest(requests);
+            }
+            case BATCH_EXEC_REPORT_RESPONSE: {
+                ExecReportResponse[] reports = new ExecReportResponse[checkCount(buffer.getInt(), buffer, EXEC_REPORT_RESPONSE_SIZE)];
+                for (int i = 0; i < reports.length; i++) {
+                    reports[i] = (ExecReportResponse) decode(buffer);
+                }
+                return new BatchExecReportResponse(reports);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown message type: " + type);
+        }
+    }
+
+    //a count the rest of the buffer can't hold is corrupt, don't allocate for it
+    private static int checkCount(int count, ByteBuffer buffer, int minSize) {
+        if (count < 0 || (long) count * minSize > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid batch count: " + count);
+        }
+        return count;
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, int size) {
+        if (buffer.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+
+    private static <E> E value(E[] values, byte ordinal) {
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+}
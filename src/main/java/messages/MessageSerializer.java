@@ -0,0 +1,47 @@
+package messages;
+
+import akka.serialization.ByteBufferSerializer;
+import akka.serialization.JSerializer;
+
+import java.nio.ByteBuffer;
+
+// Akka serializer for the messages MessageCodec encodes, bound to them in reference.conf.
+// the type byte of the encoding stands in for a manifest
+public class MessageSerializer extends JSerializer implements ByteBufferSerializer {
+
+    public static final int IDENTIFIER = 7301;
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public boolean includeManifest() {
+        return false;
+    }
+
+    @Override
+    public byte[] toBinary(Object message) {
+        byte[] bytes = new byte[MessageCodec.encodedSize(message)];
+        MessageCodec.encode(message, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    @Override
+    public Object fromBinaryJava(byte[] bytes, Class<?> manifest) {
+        return MessageCodec.decode(ByteBuffer.wrap(bytes));
+    }
+
+    //used by Artery remoting, which hands out pooled buffers
+    @Override
+    public void toBinary(Object message, ByteBuffer buffer) {
+        MessageCodec.encode(message, buffer);
+    }
+
+    @Override
+    public Object fromBinary(ByteBuffer buffer, String manifest) {
+        return MessageCodec.decode(buffer);
+    }
+
+}
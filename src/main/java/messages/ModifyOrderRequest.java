@@ -9,8 +9,15 @@ public final class ModifyOrderRequest extends Request {
     private final int traderID;
     private final int quantity;
     private final double price;
+    private final int requestID;
 
     public ModifyOrderRequest(int orderID, int traderID, int quantity, double price) {
+        this(orderID, traderID, quantity, price, 0);
+    }
+
+    //requestID is the trader's own, the engine echoes it in a rejection of the request
+    public ModifyOrderRequest(int orderID, int traderID, int quantity, double price, int requestID) {
+        this.requestID = requestID;
         this.orderID = orderID;
         this.traderID = traderID;
         this.quantity = quantity;
@@ -34,6 +41,10 @@ public final class ModifyOrderRequest extends Request {
         return traderID;
     }
 
+    public int getRequestID() {
+        return requestID;
+    }
+
     @Override
     public String toString() {
         return "ModifyOrderRequest{" +
@@ -41,6 +52,7 @@ public final class ModifyOrderRequest extends Request {
                 ", traderID=" + traderID +
                 ", quantity=" + quantity +
                 ", price=" + price +
+                ", requestID=" + requestID +
                 '}';
     }
 }
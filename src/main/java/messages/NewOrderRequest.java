@@ -2,6 +2,7 @@ package messages;
 
 import enums.Instrument;
 import enums.Side;
+import enums.TimeInForce;
 
 import java.util.Date;
 
@@ -13,9 +14,23 @@ public final class NewOrderRequest extends Request {
     private final int quantity;
     private final double price;
     private final Date date;
-
+    private final TimeInForce timeInForce;
+    private final int requestID;
 
     public NewOrderRequest(Side side, Instrument instrument, int quantity, double price, Date date, int traderID) {
+        this(side, instrument, quantity, price, date, traderID, TimeInForce.GOOD_TILL_CANCEL);
+    }
+
+    //null timeInForce stands for GOOD_TILL_CANCEL
+    public NewOrderRequest(Side side, Instrument instrument, int quantity, double price, Date date, int traderID, TimeInForce timeInForce) {
+        this(side, instrument, quantity, price, date, traderID, timeInForce, 0);
+    }
+
+    //requestID is the trader's own, the engine echoes it in a rejection of the request
+    public NewOrderRequest(Side side, Instrument instrument, int quantity, double price, Date date, int traderID, TimeInForce timeInForce,
+                           int requestID) {
+        this.requestID = requestID;
+        this.timeInForce = timeInForce == null ? TimeInForce.GOOD_TILL_CANCEL : timeInForce;
         this.side = side;
         this.instrument = instrument;
         this.quantity = quantity;
@@ -44,10 +59,18 @@ public final class NewOrderRequest extends Request {
         return date;
     }
 
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
     public int getTraderID() {
         return traderID;
     }
 
+    public int getRequestID() {
+        return requestID;
+    }
+
     @Override
     public String toString() {
         return "NewOrderRequest{" +
@@ -57,6 +80,8 @@ public final class NewOrderRequest extends Request {
                 ", quantity=" + quantity +
                 ", price=" + price +
                 ", date=" + date +
+                ", timeInForce=" + timeInForce +
+                ", requestID=" + requestID +
                 '}';
     }
 }
@@ -2,6 +2,8 @@ package messages;
 
 import enums.Side;
 
-public abstract class Request {
+import java.io.Serializable;
+
+public abstract class Request implements Serializable {
     int traderID;
 }
@@ -1,4 +1,6 @@
 package messages;
 
-public abstract class Response {
+import java.io.Serializable;
+
+public abstract class Response implements Serializable {
 }
@@ -7,10 +7,10 @@ public final class TradeMessage extends Response {
     private final int bidOrderID;
     private final int offerOrderID;
     private final Instrument instrument;
-    private final double tradePrice;
+    private final long tradePrice;
     private final int tradeQuantity;
 
-    public TradeMessage(int bidOrderID, int offerOrderID, double tradePrice, int tradeQuantity, Instrument instrument) {
+    public TradeMessage(int bidOrderID, int offerOrderID, long tradePrice, int tradeQuantity, Instrument instrument) {
         this.bidOrderID = bidOrderID;
         this.offerOrderID = offerOrderID;
         this.tradePrice = tradePrice;
@@ -27,6 +27,11 @@ public final class TradeMessage extends Response {
     }
 
     public double getTradePrice() {
+        return instrument.toPrice(tradePrice);
+    }
+
+    //trade price in ticks of the instrument
+    public long getTradePriceTicks() {
         return tradePrice;
     }
 
@@ -44,7 +49,7 @@ public final class TradeMessage extends Response {
                 "bidOrderID=" + bidOrderID +
                 ", offerOrderID=" + offerOrderID +
                 ", instrument=" + instrument +
-                ", tradePrice=" + tradePrice +
+                ", tradePrice=" + getTradePrice() +
                 ", tradeQuantity=" + tradeQuantity +
                 '}';
     }
@@ -0,0 +1,89 @@
+package metrics;
+
+import java.util.Arrays;
+
+// keeps every latency sample in nanoseconds and reports exact percentiles. a run of a few million
+// samples costs a few tens of MB, which the load tools can afford
+public class LatencyRecorder {
+
+    private long[] samples;
+    private int count;
+    private boolean sorted;
+
+    public LatencyRecorder() {
+        this(1024);
+    }
+
+    public LatencyRecorder(int expectedCount) {
+        samples = new long[Math.max(expectedCount, 16)];
+        count = 0;
+    }
+
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length << 1);
+        }
+        samples[count++] = nanos;
+        sorted = false;
+    }
+
+    //adds the samples of another recorder, e.g. one per client thread
+    public void add(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.samples[i]);
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    //nearest-rank percentile, 0 < percentile <= 100
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        if (!sorted) {
+            Arrays.sort(samples, 0, count);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return samples[Math.min(Math.max(rank, 1), count) - 1];
+    }
+
+    public long getMax() {
+        return getPercentile(100);
+    }
+
+    public double getMean() {
+        if (count == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return sum / count;
+    }
+
+    //one line in microseconds
+    public String summary() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus p99.99=%.1fus max=%.1fus",
+                count, getMean() / 1e3, getPercentile(50) / 1e3, getPercentile(90) / 1e3, getPercentile(99) / 1e3,
+                getPercentile(99.9) / 1e3, getPercentile(99.99) / 1e3, getMax() / 1e3);
+    }
+
+    //one line per power-of-two bucket in microseconds, up to the bucket of the largest sample
+    public String histogram() {
+        if (count == 0) return "";
+        StringBuilder histogram = new StringBuilder();
+        long max = getMax();
+        int index = 0;
+        for (long bound = 1_000; index < count; bound <<= 1) {
+            int first = index;
+            while (index < count && samples[index] <= bound) {
+                index++;
+            }
+            histogram.append(String.format("<= %8dus %10d %6.2f%%%n", bound / 1_000, index - first, 100.0 * (index - first) / count));
+            if (bound >= max) break;
+        }
+        return histogram.toString();
+    }
+
+}
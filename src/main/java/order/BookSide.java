@@ -0,0 +1,154 @@
+package order;
+
+import enums.Side;
+
+import java.util.*;
+
+// one side of the order book, kept as price levels in priority order.
+// works as a read-only list where index 0 is the best order
+public class BookSide extends AbstractList<Order> {
+
+    // empty levels kept for the next prices that open one, a level emptied and refilled by every
+    // order that crosses the book allocates nothing
+    private static final int MAX_SPARE_LEVELS = 64;
+
+    private final Side side;
+    private final PriceLadder<PriceLevel> levels;
+    // the levels from the best one to the worst one, as getLevels returns them
+    private final List<PriceLevel> levelList;
+    private final ArrayDeque<PriceLevel> spareLevels;
+    private PriceLevel bestLevel;
+    // level of the last added order, orders loaded in priority order skip the lookup
+    private PriceLevel lastLevel;
+    private int size;
+
+    public BookSide(Side side) {
+        this.side = side;
+        this.levels = new PriceLadder<>(side == Side.BIDS);
+        this.levelList = new AbstractList<PriceLevel>() {
+            @Override
+            public PriceLevel get(int index) {
+                return levels.getFromBest(index);
+            }
+
+            @Override
+            public int size() {
+                return levels.size();
+            }
+        };
+        this.spareLevels = new ArrayDeque<>();
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public PriceLevel getBestLevel() {
+        return bestLevel;
+    }
+
+    public Order getBest() {
+        if (bestLevel == null) return null;
+        return bestLevel.getFirst();
+    }
+
+    public PriceLevel getLevel(long price) {
+        return levels.get(price);
+    }
+
+    //price levels from the best one to the worst one, a level is reused once it empties
+    public Collection<PriceLevel> getLevels() {
+        return levelList;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Order get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index == 0) {
+            return bestLevel.getFirst();
+        }
+        for (PriceLevel level : levelList) {
+            if (index < level.size()) {
+                Order order = level.getFirst();
+                while (index-- > 0) {
+                    order = order.next;
+                }
+                return order;
+            }
+            index -= level.size();
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<Order>() {
+            private final Iterator<PriceLevel> levelIterator = levelList.iterator();
+            private Order next = levelIterator.hasNext() ? levelIterator.next().getFirst() : null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                if (next == null) throw new NoSuchElementException();
+                Order order = next;
+                next = order.next;
+                if (next == null && levelIterator.hasNext()) {
+                    next = levelIterator.next().getFirst();
+                }
+                return order;
+            }
+        };
+    }
+
+    //adds order to its price level in sequence order
+    void addOrder(Order order) {
+        PriceLevel level = lastLevel;
+        //an empty level has been taken out of the ladder
+        if (level == null || level.isEmpty() || level.getPrice() != order.getPrice()) {
+            level = levels.get(order.getPrice());
+        }
+        if (level == null) {
+            level = spareLevels.isEmpty() ? new PriceLevel(order.getPrice()) : spareLevels.pop().reset(order.getPrice());
+            levels.put(order.getPrice(), level);
+            bestLevel = levels.getBest();
+        }
+        level.insert(order);
+        lastLevel = level;
+        size++;
+    }
+
+    void removeOrder(Order order) {
+        PriceLevel level = order.level;
+        if (level == null) return;
+
+        level.remove(order);
+        size--;
+        if (level.isEmpty()) {
+            levels.remove(level.getPrice());
+            bestLevel = levels.getBest();
+            if (spareLevels.size() < MAX_SPARE_LEVELS) {
+                spareLevels.push(level);
+            }
+        }
+    }
+
+    void updateQuantity(Order order, int quantity) {
+        if (order.level == null) {
+            order.setQuantity(quantity);
+        } else {
+            order.level.updateQuantity(order, quantity);
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package order;
+
+// wall-clock time in nanoseconds since the epoch, without allocating
+public final class EpochClock {
+
+    private static final long OFFSET = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+    private EpochClock() {
+    }
+
+    public static long nanos() {
+        return OFFSET + System.nanoTime();
+    }
+
+}
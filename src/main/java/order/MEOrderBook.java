@@ -15,31 +15,32 @@ public class MEOrderBook extends OrderBook {
         super(instrument);
     }
 
-    public void modifyOrder(ModifyOrderRequest request) {
-        Order modifiedOrder = orders.get(request.getOrderID());
-        if (modifiedOrder == null) return;
-
-        modifiedOrder.setOrderDate(new Date());
-        modifiedOrder.setPrice(request.getPrice());
-        modifiedOrder.setQuantity(request.getQuantity());
-
-        if (modifiedOrder.getSide() == Side.BIDS) {
-            Collections.sort(this.bids, Collections.reverseOrder());
-        } else {
-            Collections.sort(this.offers, Collections.reverseOrder());
+    // only a price change or a quantity increase loses time priority, in that case the order is
+    // stamped with the given sequence. tells whether it was, otherwise the sequence is left unused
+    public boolean modifyOrder(int orderID, int quantity, long price, long sequence) {
+        Order modifiedOrder = orders.get(orderID);
+        if (modifiedOrder == null) return false;
+
+        BookSide side = getSide(modifiedOrder);
+        modifiedOrder.setTimestamp(EpochClock.nanos());
+        if (price == modifiedOrder.getPrice() && quantity <= modifiedOrder.getQuantity()) {
+            side.updateQuantity(modifiedOrder, quantity);
+            return false;
         }
+
+        side.removeOrder(modifiedOrder);
+        modifiedOrder.setSequence(sequence);
+        modifiedOrder.setPrice(price);
+        modifiedOrder.setQuantity(quantity);
+        side.addOrder(modifiedOrder);
+        return true;
     }
 
     public void cancelOrder(int orderID) {
         Order canceledOrder = orders.get(orderID);
         if (canceledOrder == null) return;
 
-        if (canceledOrder.getSide() == Side.BIDS) {
-            bids.remove(canceledOrder);
-        } else {
-            offers.remove(canceledOrder);
-        }
-
+        getSide(canceledOrder).removeOrder(canceledOrder);
         orders.remove(orderID);
     }
 
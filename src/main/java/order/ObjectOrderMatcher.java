@@ -0,0 +1,265 @@
+package order;
+
+import collections.IntObjectMap;
+import enums.ExecType;
+import enums.Instrument;
+import enums.Side;
+import enums.Status;
+import enums.TimeInForce;
+import messages.BookSnapshot;
+import messages.ExecReportResponse;
+import messages.MarketDepth;
+import messages.ModifyOrderRequest;
+import messages.NewOrderRequest;
+import messages.TradeMessage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Math.min;
+
+// OrderMatcher over books of Order objects, the resting orders are the objects its reports are built from
+public class ObjectOrderMatcher extends OrderMatcher {
+
+    private final IntObjectMap<Order> orders;
+    // live orders of each trader with any
+    private final IntObjectMap<IntObjectMap<Order>> traderOrders;
+    private final Map<Instrument, MEOrderBook> orderBooks;
+
+    //orderPool may be null, then every order is allocated
+    public ObjectOrderMatcher(OrderPool orderPool) {
+        super(orderPool);
+        orders = new IntObjectMap<>();
+        traderOrders = new IntObjectMap<>();
+        orderBooks = new HashMap<>();
+    }
+
+    @Override
+    public Order addOrder(NewOrderRequest request, int orderID) {
+        Order newOrder = createOrder(request, orderID);
+        restoreOrder(newOrder);
+        return newOrder;
+    }
+
+    @Override
+    public Order matchImmediate(NewOrderRequest request, int orderID, FillListener listener) {
+        Order order = createOrder(request, orderID);
+        MEOrderBook orderBook = openOrderBook(order.getInstrument());
+        BookSide opposite = order.getSide() == Side.BIDS ? orderBook.getOffers() : orderBook.getBids();
+        if (request.getTimeInForce() == TimeInForce.FILL_OR_KILL && crossingQuantity(order, opposite) < order.getQuantity()) {
+            order.setStatus(Status.CANCELED);
+            return order;
+        }
+
+        while (order.getQuantity() > 0 && opposite.size() != 0 && crosses(order, opposite.getBest())) {
+            Order resting = opposite.getBest();
+            int tradeQuantity = min(order.getQuantity(), resting.getQuantity());
+            Order bid = order.getSide() == Side.BIDS ? order : resting;
+            Order offer = order.getSide() == Side.BIDS ? resting : order;
+            TradeMessage tradeMessage = new TradeMessage(bid.getOrderID(), offer.getOrderID(), resting.getPrice(), tradeQuantity, order.getInstrument());
+            ExecReportResponse restingResponse = updateMatchedOrder(orderBook, resting, tradeQuantity);
+            order.setQuantity(order.getQuantity() - tradeQuantity);
+            listener.onFill(restingResponse, tradeMessage);
+        }
+        order.setStatus(order.getQuantity() == 0 ? Status.FULLY_EXECUTED : Status.CANCELED);
+        return order;
+    }
+
+    //quantity of the opposite side at prices the order crosses, counted by level
+    private long crossingQuantity(Order order, BookSide opposite) {
+        long quantity = 0;
+        for (PriceLevel level : opposite.getLevels()) {
+            if (!crosses(order, level.getFirst()) || quantity >= order.getQuantity()) break;
+            quantity += level.getQuantity();
+        }
+        return quantity;
+    }
+
+    private boolean crosses(Order order, Order resting) {
+        return order.getSide() == Side.BIDS ? order.getPrice() >= resting.getPrice() : order.getPrice() <= resting.getPrice();
+    }
+
+    @Override
+    public void restoreOrder(Order order) {
+        orders.put(order.getOrderID(), order);
+        IntObjectMap<Order> liveOrders = traderOrders.get(order.getTraderID());
+        if (liveOrders == null) {
+            liveOrders = new IntObjectMap<>();
+            traderOrders.put(order.getTraderID(), liveOrders);
+        }
+        liveOrders.put(order.getOrderID(), order);
+        openOrderBook(order.getInstrument()).addOrder(order);
+    }
+
+    @Override
+    public void openBook(Instrument instrument) {
+        openOrderBook(instrument);
+    }
+
+    //the instrument's book, created empty on first use
+    public MEOrderBook openOrderBook(Instrument instrument) {
+        MEOrderBook orderBook = orderBooks.get(instrument);
+        if (orderBook == null) {
+            orderBook = new MEOrderBook(instrument);
+            orderBooks.put(instrument, orderBook);
+        }
+        return orderBook;
+    }
+
+    @Override
+    public Order modifyOrder(ModifyOrderRequest request) {
+        Order modifiedOrder = orders.get(request.getOrderID());
+        Instrument instrument = modifiedOrder.getInstrument();
+        if (orderBooks.get(instrument).modifyOrder(request.getOrderID(), request.getQuantity(), instrument.toTicks(request.getPrice()), numOfSequence)) {
+            numOfSequence++;
+        }
+        return modifiedOrder;
+    }
+
+    @Override
+    public Order cancelOrder(int orderID) {
+        Order canceledOrder = orders.get(orderID);
+        canceledOrder.setStatus(Status.CANCELED);
+        orderBooks.get(canceledOrder.getInstrument()).cancelOrder(orderID);
+        removeOrder(canceledOrder);
+        return canceledOrder;
+    }
+
+    //one pass over the trader's live orders
+    @Override
+    public void cancelOrders(int traderID, Instrument instrument, Side side, List<Order> canceled) {
+        IntObjectMap<Order> liveOrders = traderOrders.get(traderID);
+        if (liveOrders == null) return;
+
+        int first = canceled.size();
+        for (Order order : liveOrders.values()) {
+            if ((instrument == null || order.getInstrument() == instrument) && (side == null || order.getSide() == side)) {
+                canceled.add(order);
+            }
+        }
+        for (int i = first; i < canceled.size(); i++) {
+            Order canceledOrder = canceled.get(i);
+            canceledOrder.setStatus(Status.CANCELED);
+            orderBooks.get(canceledOrder.getInstrument()).cancelOrder(canceledOrder.getOrderID());
+            orders.remove(canceledOrder.getOrderID());
+            liveOrders.remove(canceledOrder.getOrderID());
+        }
+        if (liveOrders.isEmpty()) {
+            traderOrders.remove(traderID);
+        }
+    }
+
+    //a fill allocates nothing but its reports
+    @Override
+    public void match(Instrument instrument, TradeListener listener) {
+        MEOrderBook orderBook = orderBooks.get(instrument);
+        while (orderBook.getBids().size() != 0 && orderBook.getOffers().size() != 0) {
+            Order bid = orderBook.getBids().getBest();
+            Order offer = orderBook.getOffers().getBest();
+            if (bid.getPrice() < offer.getPrice()) {
+                break;
+            }
+            executeTransaction(orderBook, bid, offer, listener);
+        }
+    }
+
+    private void executeTransaction(MEOrderBook orderBook, Order bid, Order offer, TradeListener listener) {
+        int tradeQuantity = min(bid.getQuantity(), offer.getQuantity());
+        long tradePrice = getTradePrice(bid.getPrice(), bid.getSequence(), offer.getPrice(), offer.getSequence());
+        TradeMessage tradeMessage = new TradeMessage(bid.getOrderID(), offer.getOrderID(), tradePrice, tradeQuantity, bid.getInstrument());
+        ExecReportResponse bidResponse = updateMatchedOrder(orderBook, bid, tradeQuantity);
+        ExecReportResponse offerResponse = updateMatchedOrder(orderBook, offer, tradeQuantity);
+        listener.onTrade(bidResponse, offerResponse, tradeMessage);
+    }
+
+    private ExecReportResponse updateMatchedOrder(MEOrderBook orderBook, Order order, int tradeQuantity) {
+        if (order.getQuantity() > tradeQuantity) {
+            orderBook.partFillOrder(order.getOrderID(), order.getQuantity() - tradeQuantity);
+            return new ExecReportResponse(order, ExecType.UPDATE);
+        } else {
+            orderBook.fullyExecuteOrder(order.getOrderID());
+            ExecReportResponse response = new ExecReportResponse(order, ExecType.REMOVE);
+            removeOrder(order);
+            release(order);
+            return response;
+        }
+    }
+
+    private void removeOrder(Order order) {
+        orders.remove(order.getOrderID());
+        IntObjectMap<Order> liveOrders = traderOrders.get(order.getTraderID());
+        liveOrders.remove(order.getOrderID());
+        if (liveOrders.isEmpty()) {
+            traderOrders.remove(order.getTraderID());
+        }
+    }
+
+    public Order getOrder(int orderID) {
+        return orders.get(orderID);
+    }
+
+    @Override
+    public Instrument getInstrument(int orderID) {
+        Order order = orders.get(orderID);
+        return order == null ? null : order.getInstrument();
+    }
+
+    @Override
+    public int getTraderID(int orderID) {
+        Order order = orders.get(orderID);
+        return order == null ? -1 : order.getTraderID();
+    }
+
+    @Override
+    public int getNumOfOrders() {
+        return orders.size();
+    }
+
+    public IntObjectMap<Order> getOrders() {
+        return orders;
+    }
+
+    //live orders of the trader, null if there are none
+    public IntObjectMap<Order> getLiveOrders(int traderID) {
+        return traderOrders.get(traderID);
+    }
+
+    @Override
+    public boolean hasOrders(int traderID) {
+        return traderOrders.containsKey(traderID);
+    }
+
+    @Override
+    public Collection<Integer> getTraderIDs() {
+        return traderOrders.keySet();
+    }
+
+    @Override
+    public Collection<Instrument> getInstruments() {
+        return orderBooks.keySet();
+    }
+
+    @Override
+    public BookSnapshot snapshot(Instrument instrument) {
+        MEOrderBook orderBook = openOrderBook(instrument);
+        return new BookSnapshot(instrument, numOfSequence, orderBook.getBids(), orderBook.getOffers());
+    }
+
+    @Override
+    public MarketDepth depth(Instrument instrument, int depth) {
+        MEOrderBook orderBook = openOrderBook(instrument);
+        return new MarketDepth(instrument, numOfSequence, orderBook.getBids(), orderBook.getOffers(), depth);
+    }
+
+    //null until the instrument's first order
+    public MEOrderBook getOrderBook(Instrument instrument) {
+        return orderBooks.get(instrument);
+    }
+
+    public Collection<MEOrderBook> getOrderBooks() {
+        return orderBooks.values();
+    }
+
+}
@@ -4,25 +4,47 @@ import enums.Instrument;
 import enums.Side;
 import enums.Status;
 
-import java.util.Date;
-
 public class Order implements Comparable<Order> {
 
-    private final int orderID;
-    private final int traderID;
-    private final Side side;
-    private final Instrument instrument;
+    // identity only changes when OrderPool hands the object out again
+    private int orderID;
+    private int traderID;
+    private Side side;
+    private Instrument instrument;
     private int quantity;
-    private double price;
+    private long price;
     private Status status;
-    private Date orderDate;
+    // time priority, lower sequence was there first
+    private long sequence;
+    // wall-clock time of the last priority change, in epoch nanoseconds
+    private long timestamp;
+
+    // position in the book, maintained by BookSide and PriceLevel
+    PriceLevel level;
+    Order prev;
+    Order next;
 
     public Order(int traderID, int orderID, Side side,Instrument instrument) {
         this.traderID = traderID;
         this.orderID = orderID;
         this.side = side;
         this.instrument = instrument;
-        this.orderDate = new Date();
+    }
+
+    //makes a released order a new one, called by OrderPool
+    void reset(int traderID, int orderID, Side side, Instrument instrument) {
+        this.traderID = traderID;
+        this.orderID = orderID;
+        this.side = side;
+        this.instrument = instrument;
+        this.quantity = 0;
+        this.price = 0;
+        this.status = null;
+        this.sequence = 0;
+        this.timestamp = 0;
+        this.level = null;
+        this.prev = null;
+        this.next = null;
     }
 
     public Instrument getInstrument() {
@@ -37,11 +59,12 @@ public class Order implements Comparable<Order> {
         this.quantity = quantity;
     }
 
-    public double getPrice() {
+    //price in ticks of the instrument
+    public long getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
@@ -53,12 +76,20 @@ public class Order implements Comparable<Order> {
         this.status = status;
     }
 
-    public Date getOrderDate() {
-        return orderDate;
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
     }
 
-    public void setOrderDate(Date orderDate) {
-        this.orderDate = orderDate;
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
     }
 
     public int getTraderID() {
@@ -73,25 +104,16 @@ public class Order implements Comparable<Order> {
         return side;
     }
 
+    // the order with higher priority is greater
     @Override
     public int compareTo(Order o) {
-        if (this.getSide() == Side.BIDS) {
-            if (this.price > o.price) {
-                return 1;
-            } else if (this.price < o.price) {
-                return -1;
-            } else if (this.orderDate.compareTo(o.orderDate) > 0) {
-                return -1;
-            } else return 1;
-        } else {
-            if (this.price > o.price) {
-                return -1;
-            } else if (this.price < o.price) {
-                return 1;
-            } else if (this.orderDate.compareTo(o.orderDate) > 0) {
-                return -1;
-            } else return 1;
+        if (this.price != o.price) {
+            if (this.getSide() == Side.BIDS) {
+                return Long.compare(this.price, o.price);
+            }
+            return Long.compare(o.price, this.price);
         }
+        return Long.compare(o.sequence, this.sequence);
     }
 
     //generates the copy of Order
@@ -100,7 +122,8 @@ public class Order implements Comparable<Order> {
         clone.setQuantity(this.quantity);
         clone.setPrice(this.price);
         clone.setStatus(this.status);
-        clone.setOrderDate(this.orderDate);
+        clone.setSequence(this.sequence);
+        clone.setTimestamp(this.timestamp);
         return clone;
     }
 
@@ -114,7 +137,8 @@ public class Order implements Comparable<Order> {
                 ", quantity=" + quantity +
                 ", price=" + price +
                 ", status=" + status +
-                ", orderDate=" + orderDate +
+                ", sequence=" + sequence +
+                ", timestamp=" + timestamp +
                 '}';
     }
 }
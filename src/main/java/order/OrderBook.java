@@ -1,5 +1,6 @@
 package order;
 
+import collections.IntObjectMap;
 import enums.Instrument;
 import enums.Side;
 import enums.Status;
@@ -7,65 +8,70 @@ import enums.Status;
 import java.util.*;
 
 public abstract class OrderBook {
-    ArrayList<Order> bids;
-    ArrayList<Order> offers;
-    Map<Integer, Order> orders;
+    BookSide bids;
+    BookSide offers;
+    IntObjectMap<Order> orders;
     final Instrument instrument;
 
     public OrderBook(Instrument instrument) {
-        this.bids = new ArrayList<>();
-        this.offers = new ArrayList<>();
-        this.orders = new HashMap<>();
+        this.bids = new BookSide(Side.BIDS);
+        this.offers = new BookSide(Side.OFFERS);
+        this.orders = new IntObjectMap<>();
         this.instrument = instrument;
     }
 
-    public ArrayList<Order> getBids() {
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    public BookSide getBids() {
         return bids;
     }
 
-    public ArrayList<Order> getOffers() {
+    public BookSide getOffers() {
         return offers;
     }
 
-    public Map<Integer, Order> getOrders() {
+    //first order of the best bid level, null if there are no bids
+    public Order getBestBid() {
+        return bids.getBest();
+    }
+
+    public Order getBestOffer() {
+        return offers.getBest();
+    }
+
+    public IntObjectMap<Order> getOrders() {
         return orders;
     }
 
     public void addOrder(Order order) {
         this.orders.put(order.getOrderID(), order);
-        if (order.getSide() == Side.BIDS) {
-            this.bids.add(order);
-            Collections.sort(bids, Collections.reverseOrder());
-        } else {
-            this.offers.add(order);
-            Collections.sort(offers, Collections.reverseOrder());
-        }
+        getSide(order).addOrder(order);
     }
 
     public void partFillOrder(int orderID, int quantity) {
         Order partfilledOrder = orders.get(orderID);
         if (partfilledOrder == null) return;
 
-        partfilledOrder.setOrderDate(new Date());
-        partfilledOrder.setQuantity(quantity);
+        //partially filled order keeps its place in the queue
+        getSide(partfilledOrder).updateQuantity(partfilledOrder, quantity);
         partfilledOrder.setStatus(Status.PARTFILLED);
-        if (partfilledOrder.getSide() == Side.BIDS) {
-            Collections.sort(this.bids, Collections.reverseOrder());
-        } else {
-            Collections.sort(this.offers, Collections.reverseOrder());
-        }
     }
 
     public void fullyExecuteOrder(int orderID) {
         Order executedOrder = orders.get(orderID);
         if (executedOrder == null) return;
         executedOrder.setStatus(Status.FULLY_EXECUTED);
-        if (executedOrder.getSide() == Side.BIDS) {
-            bids.remove(executedOrder);
-        } else {
-            offers.remove(executedOrder);
-        }
+        getSide(executedOrder).removeOrder(executedOrder);
         orders.remove(orderID);
     }
 
+    BookSide getSide(Order order) {
+        if (order.getSide() == Side.BIDS) {
+            return bids;
+        }
+        return offers;
+    }
+
 }
@@ -0,0 +1,180 @@
+package order;
+
+import enums.Instrument;
+import enums.RejectionReason;
+import enums.Side;
+import enums.Status;
+import messages.BookSnapshot;
+import messages.CancelOrderRequest;
+import messages.ExecReportResponse;
+import messages.MarketDepth;
+import messages.ModifyOrderRequest;
+import messages.NewOrderRequest;
+import messages.TradeMessage;
+
+import java.util.Collection;
+import java.util.List;
+
+// the books of an engine and the price-time matching on them, without any messaging.
+// MatchEngine and RingMatchEngine check who may send a request, apply it here and route the reports.
+// ObjectOrderMatcher keeps the resting orders as Order objects, SlotOrderMatcher in an OrderStore
+public abstract class OrderMatcher {
+
+    // called for every fill, with the reports of both orders, which may already be back in the pool
+    public interface TradeListener {
+        void onTrade(ExecReportResponse bidResponse, ExecReportResponse offerResponse, TradeMessage tradeMessage);
+    }
+
+    // called for every fill of an immediate order, with the report of the resting order only
+    public interface FillListener {
+        void onFill(ExecReportResponse restingResponse, TradeMessage tradeMessage);
+    }
+
+    final OrderPool orderPool;
+    long numOfSequence;
+
+    //orderPool may be null, then every order is allocated
+    OrderMatcher(OrderPool orderPool) {
+        this.orderPool = orderPool;
+        numOfSequence = 0;
+    }
+
+    //checks whether NOR is valid
+    public RejectionReason newOrderRejectionReason(NewOrderRequest request) {
+        if (request.getPrice() <= 0) {
+            return RejectionReason.INVALID_PRICE;
+        }
+
+        if (!request.getInstrument().isOnTick(request.getPrice())) {
+            return RejectionReason.INVALID_TICK;
+        }
+
+        if (request.getQuantity() <= 0) {
+            return RejectionReason.INVALID_QUANTITY;
+        }
+
+        return null;
+    }
+
+    //checks the order and the new values of MOR, the trader is checked by the engine
+    public RejectionReason modifyOrderRejectionReason(ModifyOrderRequest request) {
+        Instrument instrument = getInstrument(request.getOrderID());
+        if (instrument == null || getTraderID(request.getOrderID()) != request.getTraderID()) {
+            return RejectionReason.INVALID_ORDER_ID;
+        }
+
+        if (request.getPrice() <= 0) {
+            return RejectionReason.INVALID_PRICE;
+        }
+
+        if (!instrument.isOnTick(request.getPrice())) {
+            return RejectionReason.INVALID_TICK;
+        }
+
+        if (request.getQuantity() <= 0) {
+            return RejectionReason.INVALID_QUANTITY;
+        }
+
+        return null;
+    }
+
+    public RejectionReason cancelOrderRejectionReason(CancelOrderRequest request) {
+        if (getInstrument(request.getOrderID()) == null || getTraderID(request.getOrderID()) != request.getTraderID()) {
+            return RejectionReason.INVALID_ORDER_ID;
+        }
+        return null;
+    }
+
+    //creates the order of a valid NOR and adds it to its book, matching is left to match.
+    //the order is good until the next call of the matcher, build its report before that
+    public abstract Order addOrder(NewOrderRequest request, int orderID);
+
+    //matches the order of a valid IOC or FOK NOR against the book at once, it never rests. the order comes
+    //back FULLY_EXECUTED, or CANCELED with the quantity left. a FOK that can't be filled whole trades nothing.
+    //release the order once its report is built
+    public abstract Order matchImmediate(NewOrderRequest request, int orderID, FillListener listener);
+
+    //adds an order that already has its state, e.g. one read from a snapshot
+    public abstract void restoreOrder(Order order);
+
+    //opens the instrument's book empty, unless it is open already
+    public abstract void openBook(Instrument instrument);
+
+    //applies a valid MOR, matching is left to match. the order is good until the next call of the matcher
+    public abstract Order modifyOrder(ModifyOrderRequest request);
+
+    //takes the order out of the book, release it once its report is built
+    public abstract Order cancelOrder(int orderID);
+
+    //takes the trader's orders of the instrument and side out of the books, null matches any.
+    //the orders are added to canceled, release them once their reports are built
+    public abstract void cancelOrders(int traderID, Instrument instrument, Side side, List<Order> canceled);
+
+    //matches the best orders while they cross
+    public abstract void match(Instrument instrument, TradeListener listener);
+
+    //instrument of the live order, null if there is no such order
+    public abstract Instrument getInstrument(int orderID);
+
+    //trader of the live order, -1 if there is no such order
+    public abstract int getTraderID(int orderID);
+
+    public abstract int getNumOfOrders();
+
+    public abstract boolean hasOrders(int traderID);
+
+    //traders with live orders
+    public abstract Collection<Integer> getTraderIDs();
+
+    //instruments with an open book
+    public abstract Collection<Instrument> getInstruments();
+
+    //resting orders of the instrument's book in priority order, the book is opened if it isn't yet
+    public abstract BookSnapshot snapshot(Instrument instrument);
+
+    //best price levels of the instrument's book, the book is opened if it isn't yet
+    public abstract MarketDepth depth(Instrument instrument, int depth);
+
+    //gives an order that left the book back to the pool, after its last report has been built
+    public void release(Order order) {
+        if (orderPool != null) {
+            orderPool.release(order);
+        }
+    }
+
+    Order createOrder(NewOrderRequest request, int orderID) {
+        Order newOrder = acquireOrder(request.getTraderID(), orderID, request.getSide(), request.getInstrument());
+        newOrder.setPrice(request.getInstrument().toTicks(request.getPrice()));
+        newOrder.setSequence(numOfSequence++);
+        newOrder.setTimestamp(EpochClock.nanos());
+        newOrder.setQuantity(request.getQuantity());
+        newOrder.setStatus(Status.ACTIVE);
+        return newOrder;
+    }
+
+    Order acquireOrder(int traderID, int orderID, Side side, Instrument instrument) {
+        return orderPool == null ? new Order(traderID, orderID, side, instrument) : orderPool.acquire(traderID, orderID, side, instrument);
+    }
+
+    //the order that was resting sets the trade price, a modify that loses priority makes an order the aggressor
+    static long getTradePrice(long bidPrice, long bidSequence, long offerPrice, long offerSequence) {
+        if (bidPrice == offerPrice) {
+            return bidPrice;
+        }
+
+        if (offerSequence > bidSequence) {
+            return bidPrice;
+        } else {
+            return offerPrice;
+        }
+    }
+
+    public long getNumOfSequence() {
+        return numOfSequence;
+    }
+
+    public void setNumOfSequence(long numOfSequence) {
+        this.numOfSequence = numOfSequence;
+    }
+
+}
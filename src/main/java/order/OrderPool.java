@@ -0,0 +1,54 @@
+package order;
+
+import enums.Instrument;
+import enums.Side;
+
+// free list of Order objects, so the engine doesn't allocate an order per request.
+// an order is released once it has left the book and its last report has been built,
+// reports copy the order, so nothing keeps a reference to it after that
+public class OrderPool {
+
+    private final Order[] free;
+    private int size;
+    private long numOfAllocated;
+
+    //starts with `capacity` free orders, releases beyond that are left to the garbage collector
+    public OrderPool(int capacity) {
+        free = new Order[capacity];
+        for (int i = 0; i < capacity; i++) {
+            free[i] = new Order(0, 0, null, null);
+        }
+        size = capacity;
+    }
+
+    public Order acquire(int traderID, int orderID, Side side, Instrument instrument) {
+        if (size == 0) {
+            numOfAllocated++;
+            return new Order(traderID, orderID, side, instrument);
+        }
+        Order order = free[--size];
+        free[size] = null;
+        order.reset(traderID, orderID, side, instrument);
+        return order;
+    }
+
+    public void release(Order order) {
+        if (order.level != null) {
+            throw new IllegalStateException("Order is still in the book: " + order);
+        }
+        if (size < free.length) {
+            free[size++] = order;
+        }
+    }
+
+    //free orders ready to be acquired
+    public int size() {
+        return size;
+    }
+
+    //orders allocated because the pool was empty
+    public long getNumOfAllocated() {
+        return numOfAllocated;
+    }
+
+}
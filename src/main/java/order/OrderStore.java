@@ -0,0 +1,183 @@
+package order;
+
+import collections.IntIntMap;
+import enums.Instrument;
+import enums.Side;
+import enums.Status;
+
+import java.util.Arrays;
+
+// resting orders kept column by column in primitive arrays and addressed by slot, the counterpart of
+// Order objects for books too large for the garbage collector to trace order by order. an order takes
+// about 73 bytes here with its ID index, against about 100 as an object, and the collector sees a few
+// dozen arrays whatever the number of orders. freed slots are reused through a free list in the next column
+public class OrderStore {
+
+    public static final int NO_SLOT = -1;
+
+    private static final Side[] SIDES = Side.values();
+    private static final Instrument[] INSTRUMENTS = Instrument.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private int[] orderIDs;
+    private int[] traderIDs;
+    private byte[] sides;
+    private byte[] instruments;
+    private byte[] statuses;
+    private int[] quantities;
+    // in ticks of the instrument
+    private long[] prices;
+    private long[] sequences;
+    // epoch nanoseconds of the last priority change
+    private long[] timestamps;
+    // queue of the order's price level, maintained by SlotBookSide. the next column links free slots too
+    int[] next;
+    int[] prev;
+
+    private final IntIntMap slots;
+    private int freeHead;
+    // slots handed out at least once, the ones above have never been used
+    private int used;
+    private int size;
+
+    public OrderStore(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 16));
+        slots = new IntIntMap(initialCapacity, NO_SLOT);
+        freeHead = NO_SLOT;
+    }
+
+    //stores a new resting order and returns its slot, the store grows when it is full
+    public int add(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price, long sequence) {
+        int slot;
+        if (freeHead != NO_SLOT) {
+            slot = freeHead;
+            freeHead = next[slot];
+        } else {
+            if (used == orderIDs.length) {
+                allocate(orderIDs.length << 1);
+            }
+            slot = used++;
+        }
+        orderIDs[slot] = orderID;
+        traderIDs[slot] = traderID;
+        sides[slot] = (byte) side.ordinal();
+        instruments[slot] = (byte) instrument.ordinal();
+        statuses[slot] = (byte) Status.ACTIVE.ordinal();
+        quantities[slot] = quantity;
+        prices[slot] = price;
+        sequences[slot] = sequence;
+        timestamps[slot] = EpochClock.nanos();
+        next[slot] = NO_SLOT;
+        prev[slot] = NO_SLOT;
+        slots.put(orderID, slot);
+        size++;
+        return slot;
+    }
+
+    //gives the slot back, take the order out of its book first
+    public void free(int slot) {
+        slots.remove(orderIDs[slot]);
+        next[slot] = freeHead;
+        prev[slot] = NO_SLOT;
+        freeHead = slot;
+        size--;
+    }
+
+    //slot of the order, NO_SLOT if it isn't stored
+    public int slotOf(int orderID) {
+        return slots.get(orderID);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return orderIDs.length;
+    }
+
+    //slots handed out so far, live or free, every slot below is one of them
+    public int getNumOfSlots() {
+        return used;
+    }
+
+    //whether the slot holds an order that is still in its book, a freed slot keeps the status it left with
+    public boolean isLive(int slot) {
+        Status status = getStatus(slot);
+        return status == Status.ACTIVE || status == Status.PARTFILLED;
+    }
+
+    public int getOrderID(int slot) {
+        return orderIDs[slot];
+    }
+
+    public int getTraderID(int slot) {
+        return traderIDs[slot];
+    }
+
+    public Side getSide(int slot) {
+        return SIDES[sides[slot]];
+    }
+
+    public Instrument getInstrument(int slot) {
+        return INSTRUMENTS[instruments[slot]];
+    }
+
+    public Status getStatus(int slot) {
+        return STATUSES[statuses[slot]];
+    }
+
+    public void setStatus(int slot, Status status) {
+        statuses[slot] = (byte) status.ordinal();
+    }
+
+    public int getQuantity(int slot) {
+        return quantities[slot];
+    }
+
+    void setQuantity(int slot, int quantity) {
+        quantities[slot] = quantity;
+    }
+
+    public long getPrice(int slot) {
+        return prices[slot];
+    }
+
+    void setPrice(int slot, long price) {
+        prices[slot] = price;
+    }
+
+    public long getSequence(int slot) {
+        return sequences[slot];
+    }
+
+    void setSequence(int slot, long sequence) {
+        sequences[slot] = sequence;
+    }
+
+    public long getTimestamp(int slot) {
+        return timestamps[slot];
+    }
+
+    void setTimestamp(int slot, long timestamp) {
+        timestamps[slot] = timestamp;
+    }
+
+    private void allocate(int capacity) {
+        int oldCapacity = orderIDs == null ? 0 : orderIDs.length;
+        orderIDs = orderIDs == null ? new int[capacity] : Arrays.copyOf(orderIDs, capacity);
+        traderIDs = traderIDs == null ? new int[capacity] : Arrays.copyOf(traderIDs, capacity);
+        sides = sides == null ? new byte[capacity] : Arrays.copyOf(sides, capacity);
+        instruments = instruments == null ? new byte[capacity] : Arrays.copyOf(instruments, capacity);
+        statuses = statuses == null ? new byte[capacity] : Arrays.copyOf(statuses, capacity);
+        quantities = quantities == null ? new int[capacity] : Arrays.copyOf(quantities, capacity);
+        prices = prices == null ? new long[capacity] : Arrays.copyOf(prices, capacity);
+        sequences = sequences == null ? new long[capacity] : Arrays.copyOf(sequences, capacity);
+        timestamps = timestamps == null ? new long[capacity] : Arrays.copyOf(timestamps, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        prev = prev == null ? new int[capacity] : Arrays.copyOf(prev, capacity);
+        Arrays.fill(next, oldCapacity, capacity, NO_SLOT);
+        Arrays.fill(prev, oldCapacity, capacity, NO_SLOT);
+    }
+
+}
@@ -0,0 +1,95 @@
+package order;
+
+import java.util.Arrays;
+
+// the price levels of one book side by price, in a long array that lookups binary search without boxing.
+// the levels are kept worst first, so the best one is the last and the levels that come and go at the
+// top of the book are added and removed without moving the others
+final class PriceLadder<L> {
+
+    private final boolean bestIsHighest;
+    private long[] prices;
+    private Object[] levels;
+    private int size;
+
+    PriceLadder(boolean bestIsHighest) {
+        this.bestIsHighest = bestIsHighest;
+        prices = new long[16];
+        levels = new Object[16];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    //level at the price, null without one
+    L get(long price) {
+        int index = indexOf(price);
+        return index < 0 ? null : level(index);
+    }
+
+    //null if the side is empty
+    L getBest() {
+        return size == 0 ? null : level(size - 1);
+    }
+
+    //the index-th level from the best one
+    L getFromBest(int index) {
+        return level(size - 1 - index);
+    }
+
+    //adds the level of a price that has none
+    void put(long price, L level) {
+        int index = -indexOf(price) - 1;
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, 2 * size);
+            levels = Arrays.copyOf(levels, 2 * size);
+        }
+        System.arraycopy(prices, index, prices, index + 1, size - index);
+        System.arraycopy(levels, index, levels, index + 1, size - index);
+        prices[index] = price;
+        levels[index] = level;
+        size++;
+    }
+
+    void remove(long price) {
+        int index = indexOf(price);
+        if (index < 0) return;
+
+        System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+        System.arraycopy(levels, index + 1, levels, index, size - index - 1);
+        levels[--size] = null;
+    }
+
+    //index of the price, or -(insertion point) - 1 like Arrays.binarySearch
+    private int indexOf(long price) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = worseFirst(prices[middle], price);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private int worseFirst(long price, long otherPrice) {
+        return bestIsHighest ? Long.compare(price, otherPrice) : Long.compare(otherPrice, price);
+    }
+
+    @SuppressWarnings("unchecked")
+    private L level(int index) {
+        return (L) levels[index];
+    }
+
+}
@@ -0,0 +1,91 @@
+package order;
+
+// FIFO queue of the orders resting at one price, linked through the orders themselves
+public class PriceLevel {
+
+    private long price;
+    private Order head;
+    private Order tail;
+    private int size;
+    private long quantity;
+
+    public PriceLevel(long price) {
+        this.price = price;
+    }
+
+    //an empty level taken out of its side, to be used for another price
+    PriceLevel reset(long price) {
+        this.price = price;
+        return this;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public Order getFirst() {
+        return head;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    //total quantity resting at this price
+    public long getQuantity() {
+        return quantity;
+    }
+
+    //adds order to the queue by its sequence, which is the back of the queue for a newly stamped order
+    void insert(Order order) {
+        Order prev = tail;
+        while (prev != null && prev.getSequence() > order.getSequence()) {
+            prev = prev.prev;
+        }
+        order.level = this;
+        order.prev = prev;
+        order.next = prev == null ? head : prev.next;
+        if (order.prev == null) {
+            head = order;
+        } else {
+            order.prev.next = order;
+        }
+        if (order.next == null) {
+            tail = order;
+        } else {
+            order.next.prev = order;
+        }
+        size++;
+        quantity += order.getQuantity();
+    }
+
+    //unlinks order from the queue in O(1)
+    void remove(Order order) {
+        if (order.prev == null) {
+            head = order.next;
+        } else {
+            order.prev.next = order.next;
+        }
+        if (order.next == null) {
+            tail = order.prev;
+        } else {
+            order.next.prev = order.prev;
+        }
+        size--;
+        quantity -= order.getQuantity();
+        order.level = null;
+        order.prev = null;
+        order.next = null;
+    }
+
+    //changes quantity of resting order without changing its place in the queue
+    void updateQuantity(Order order, int quantity) {
+        this.quantity += quantity - order.getQuantity();
+        order.setQuantity(quantity);
+    }
+
+}
@@ -0,0 +1,190 @@
+package order;
+
+import enums.Side;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+
+// one side of a SlotOrderBook, BookSide over the slots of an OrderStore. a price level's queue is linked
+// through the store's next and prev columns, so the only objects are the levels
+public class SlotBookSide {
+
+    // FIFO queue of the slots resting at one price
+    public static final class Level {
+        long price;
+        int head = OrderStore.NO_SLOT;
+        int tail = OrderStore.NO_SLOT;
+        int size;
+        long quantity;
+
+        Level(long price) {
+            this.price = price;
+        }
+
+        public long getPrice() {
+            return price;
+        }
+
+        //slot of the first order in the queue
+        public int getFirst() {
+            return head;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        //total quantity resting at this price
+        public long getQuantity() {
+            return quantity;
+        }
+    }
+
+    // empty levels kept for the next prices that open one, see BookSide
+    private static final int MAX_SPARE_LEVELS = 64;
+
+    private final OrderStore store;
+    private final Side side;
+    private final PriceLadder<Level> levels;
+    // the levels from the best one to the worst one, as getLevels returns them
+    private final List<Level> levelList;
+    private final ArrayDeque<Level> spareLevels;
+    private Level bestLevel;
+    // level of the last added order, orders added at one price skip the lookup
+    private Level lastLevel;
+    private int size;
+
+    public SlotBookSide(OrderStore store, Side side) {
+        this.store = store;
+        this.side = side;
+        this.levels = new PriceLadder<>(side == Side.BIDS);
+        this.levelList = new AbstractList<Level>() {
+            @Override
+            public Level get(int index) {
+                return levels.getFromBest(index);
+            }
+
+            @Override
+            public int size() {
+                return levels.size();
+            }
+        };
+        this.spareLevels = new ArrayDeque<>();
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    //slot of the first order of the best level, NO_SLOT if the side is empty
+    public int getBest() {
+        return bestLevel == null ? OrderStore.NO_SLOT : bestLevel.head;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNumOfLevels() {
+        return levels.size();
+    }
+
+    //price levels from the best one to the worst one, a level is reused once it empties
+    public Collection<Level> getLevels() {
+        return levelList;
+    }
+
+    //total quantity resting at the price, 0 without a level there
+    public long getQuantity(long price) {
+        Level level = levels.get(price);
+        return level == null ? 0 : level.quantity;
+    }
+
+    //slot after the given one in its level's queue, NO_SLOT at the back
+    public int getNext(int slot) {
+        return store.next[slot];
+    }
+
+    //adds the slot to its price level in sequence order
+    void addOrder(int slot) {
+        long price = store.getPrice(slot);
+        Level level = lastLevel;
+        //an empty level has been taken out of the ladder
+        if (level == null || level.size == 0 || level.price != price) {
+            level = levels.get(price);
+        }
+        if (level == null) {
+            if (spareLevels.isEmpty()) {
+                level = new Level(price);
+            } else {
+                level = spareLevels.pop();
+                level.price = price;
+            }
+            levels.put(price, level);
+            bestLevel = levels.getBest();
+        }
+
+        int[] next = store.next;
+        int[] prev = store.prev;
+        int before = level.tail;
+        while (before != OrderStore.NO_SLOT && store.getSequence(before) > store.getSequence(slot)) {
+            before = prev[before];
+        }
+        prev[slot] = before;
+        next[slot] = before == OrderStore.NO_SLOT ? level.head : next[before];
+        if (before == OrderStore.NO_SLOT) {
+            level.head = slot;
+        } else {
+            next[before] = slot;
+        }
+        if (next[slot] == OrderStore.NO_SLOT) {
+            level.tail = slot;
+        } else {
+            prev[next[slot]] = slot;
+        }
+        level.size++;
+        level.quantity += store.getQuantity(slot);
+        lastLevel = level;
+        size++;
+    }
+
+    //unlinks the slot from its level in O(1) once the level is found
+    void removeOrder(int slot) {
+        Level level = lastLevel != null && lastLevel.price == store.getPrice(slot) && lastLevel.size != 0
+                ? lastLevel : levels.get(store.getPrice(slot));
+        int[] next = store.next;
+        int[] prev = store.prev;
+        if (prev[slot] == OrderStore.NO_SLOT) {
+            level.head = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == OrderStore.NO_SLOT) {
+            level.tail = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+        next[slot] = OrderStore.NO_SLOT;
+        prev[slot] = OrderStore.NO_SLOT;
+        level.size--;
+        level.quantity -= store.getQuantity(slot);
+        size--;
+        if (level.size == 0) {
+            levels.remove(level.price);
+            bestLevel = levels.getBest();
+            if (spareLevels.size() < MAX_SPARE_LEVELS) {
+                spareLevels.push(level);
+            }
+        }
+    }
+
+    //changes the quantity of a resting slot without changing its place in the queue
+    void updateQuantity(int slot, int quantity) {
+        Level level = levels.get(store.getPrice(slot));
+        level.quantity += quantity - store.getQuantity(slot);
+        store.setQuantity(slot, quantity);
+    }
+
+}
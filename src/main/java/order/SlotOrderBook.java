@@ -0,0 +1,83 @@
+package order;
+
+import enums.Instrument;
+import enums.Side;
+import enums.Status;
+
+// MEOrderBook over the slots of an OrderStore, which may hold the orders of several books.
+// orders leaving the book stay in the store, free their slots once their reports are built
+public class SlotOrderBook {
+
+    private final OrderStore store;
+    private final Instrument instrument;
+    private final SlotBookSide bids;
+    private final SlotBookSide offers;
+
+    public SlotOrderBook(OrderStore store, Instrument instrument) {
+        this.store = store;
+        this.instrument = instrument;
+        this.bids = new SlotBookSide(store, Side.BIDS);
+        this.offers = new SlotBookSide(store, Side.OFFERS);
+    }
+
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    public SlotBookSide getBids() {
+        return bids;
+    }
+
+    public SlotBookSide getOffers() {
+        return offers;
+    }
+
+    //stores the order and adds it to its side, returns its slot
+    public int addOrder(int orderID, int traderID, Side side, int quantity, long price, long sequence) {
+        int slot = store.add(orderID, traderID, side, instrument, quantity, price, sequence);
+        getSide(slot).addOrder(slot);
+        return slot;
+    }
+
+    public void partFillOrder(int slot, int quantity) {
+        //partially filled order keeps its place in the queue
+        getSide(slot).updateQuantity(slot, quantity);
+        store.setStatus(slot, Status.PARTFILLED);
+    }
+
+    public void fullyExecuteOrder(int slot) {
+        store.setStatus(slot, Status.FULLY_EXECUTED);
+        getSide(slot).removeOrder(slot);
+    }
+
+    public void cancelOrder(int slot) {
+        store.setStatus(slot, Status.CANCELED);
+        getSide(slot).removeOrder(slot);
+    }
+
+    // only a price change or a quantity increase loses time priority, in that case the order is
+    // stamped with the given sequence. tells whether it was, otherwise the sequence is left unused
+    public boolean modifyOrder(int slot, int quantity, long price, long sequence) {
+        SlotBookSide side = getSide(slot);
+        store.setTimestamp(slot, EpochClock.nanos());
+        if (price == store.getPrice(slot) && quantity <= store.getQuantity(slot)) {
+            side.updateQuantity(slot, quantity);
+            return false;
+        }
+
+        side.removeOrder(slot);
+        store.setSequence(slot, sequence);
+        store.setPrice(slot, price);
+        store.setQuantity(slot, quantity);
+        side.addOrder(slot);
+        return true;
+    }
+
+    private SlotBookSide getSide(int slot) {
+        if (store.getSide(slot) == Side.BIDS) {
+            return bids;
+        }
+        return offers;
+    }
+
+}
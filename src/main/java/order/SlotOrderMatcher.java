@@ -0,0 +1,276 @@
+package order;
+
+import collections.IntIntMap;
+import enums.ExecType;
+import enums.Instrument;
+import enums.Side;
+import enums.Status;
+import enums.TimeInForce;
+import messages.BookSnapshot;
+import messages.ExecReportResponse;
+import messages.MarketDepth;
+import messages.ModifyOrderRequest;
+import messages.NewOrderRequest;
+import messages.TradeMessage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.Math.min;
+
+// OrderMatcher over SlotOrderBooks that share one OrderStore, the only objects of a book are its price levels.
+// the orders it hands out are copies of their slots for the reports: addOrder and modifyOrder reuse one,
+// canceled and immediate orders come from the pool and go back to it when released
+public class SlotOrderMatcher extends OrderMatcher {
+
+    private final OrderStore store;
+    private final Map<Instrument, SlotOrderBook> orderBooks;
+    // live orders of each trader with any, the store keeps no index of a trader's orders
+    private final IntIntMap numOfTraderOrders;
+    // copy of the last slot a report was built from
+    private final Order view;
+
+    //orderPool may be null, the store grows beyond initialCapacity orders when it has to
+    public SlotOrderMatcher(OrderPool orderPool, int initialCapacity) {
+        super(orderPool);
+        store = new OrderStore(initialCapacity);
+        orderBooks = new HashMap<>();
+        numOfTraderOrders = new IntIntMap(0);
+        view = new Order(0, 0, null, null);
+    }
+
+    @Override
+    public Order addOrder(NewOrderRequest request, int orderID) {
+        Instrument instrument = request.getInstrument();
+        int slot = openOrderBook(instrument).addOrder(orderID, request.getTraderID(), request.getSide(), request.getQuantity(),
+                instrument.toTicks(request.getPrice()), numOfSequence++);
+        addTraderOrder(request.getTraderID());
+        return view(slot);
+    }
+
+    @Override
+    public Order matchImmediate(NewOrderRequest request, int orderID, FillListener listener) {
+        Order order = createOrder(request, orderID);
+        SlotOrderBook orderBook = openOrderBook(order.getInstrument());
+        SlotBookSide opposite = order.getSide() == Side.BIDS ? orderBook.getOffers() : orderBook.getBids();
+        if (request.getTimeInForce() == TimeInForce.FILL_OR_KILL && crossingQuantity(order, opposite) < order.getQuantity()) {
+            order.setStatus(Status.CANCELED);
+            return order;
+        }
+
+        while (order.getQuantity() > 0 && opposite.size() != 0 && crosses(order, store.getPrice(opposite.getBest()))) {
+            int resting = opposite.getBest();
+            int tradeQuantity = min(order.getQuantity(), store.getQuantity(resting));
+            int bidOrderID = order.getSide() == Side.BIDS ? order.getOrderID() : store.getOrderID(resting);
+            int offerOrderID = order.getSide() == Side.BIDS ? store.getOrderID(resting) : order.getOrderID();
+            TradeMessage tradeMessage = new TradeMessage(bidOrderID, offerOrderID, store.getPrice(resting), tradeQuantity, order.getInstrument());
+            ExecReportResponse restingResponse = updateMatchedOrder(orderBook, resting, tradeQuantity);
+            order.setQuantity(order.getQuantity() - tradeQuantity);
+            listener.onFill(restingResponse, tradeMessage);
+        }
+        order.setStatus(order.getQuantity() == 0 ? Status.FULLY_EXECUTED : Status.CANCELED);
+        return order;
+    }
+
+    //quantity of the opposite side at prices the order crosses, counted by level
+    private long crossingQuantity(Order order, SlotBookSide opposite) {
+        long quantity = 0;
+        for (SlotBookSide.Level level : opposite.getLevels()) {
+            if (!crosses(order, level.getPrice()) || quantity >= order.getQuantity()) break;
+            quantity += level.getQuantity();
+        }
+        return quantity;
+    }
+
+    private boolean crosses(Order order, long restingPrice) {
+        return order.getSide() == Side.BIDS ? order.getPrice() >= restingPrice : order.getPrice() <= restingPrice;
+    }
+
+    //copies the order into a slot, the order itself isn't kept
+    @Override
+    public void restoreOrder(Order order) {
+        int slot = openOrderBook(order.getInstrument()).addOrder(order.getOrderID(), order.getTraderID(), order.getSide(),
+                order.getQuantity(), order.getPrice(), order.getSequence());
+        store.setStatus(slot, order.getStatus());
+        store.setTimestamp(slot, order.getTimestamp());
+        addTraderOrder(order.getTraderID());
+    }
+
+    @Override
+    public void openBook(Instrument instrument) {
+        openOrderBook(instrument);
+    }
+
+    private SlotOrderBook openOrderBook(Instrument instrument) {
+        SlotOrderBook orderBook = orderBooks.get(instrument);
+        if (orderBook == null) {
+            orderBook = new SlotOrderBook(store, instrument);
+            orderBooks.put(instrument, orderBook);
+        }
+        return orderBook;
+    }
+
+    @Override
+    public Order modifyOrder(ModifyOrderRequest request) {
+        int slot = store.slotOf(request.getOrderID());
+        Instrument instrument = store.getInstrument(slot);
+        if (orderBooks.get(instrument).modifyOrder(slot, request.getQuantity(), instrument.toTicks(request.getPrice()), numOfSequence)) {
+            numOfSequence++;
+        }
+        return view(slot);
+    }
+
+    @Override
+    public Order cancelOrder(int orderID) {
+        int slot = store.slotOf(orderID);
+        orderBooks.get(store.getInstrument(slot)).cancelOrder(slot);
+        Order canceledOrder = copy(slot);
+        removeOrder(slot);
+        return canceledOrder;
+    }
+
+    //scans the trader column of the store until it has seen every live order of the trader
+    @Override
+    public void cancelOrders(int traderID, Instrument instrument, Side side, List<Order> canceled) {
+        int left = numOfTraderOrders.get(traderID);
+        for (int slot = 0; slot < store.getNumOfSlots() && left > 0; slot++) {
+            if (store.getTraderID(slot) != traderID || !store.isLive(slot)) continue;
+            left--;
+            if ((instrument == null || store.getInstrument(slot) == instrument) && (side == null || store.getSide(slot) == side)) {
+                orderBooks.get(store.getInstrument(slot)).cancelOrder(slot);
+                canceled.add(copy(slot));
+                removeOrder(slot);
+            }
+        }
+    }
+
+    //a fill allocates its reports and nothing else
+    @Override
+    public void match(Instrument instrument, TradeListener listener) {
+        SlotOrderBook orderBook = orderBooks.get(instrument);
+        while (orderBook.getBids().size() != 0 && orderBook.getOffers().size() != 0) {
+            int bid = orderBook.getBids().getBest();
+            int offer = orderBook.getOffers().getBest();
+            if (store.getPrice(bid) < store.getPrice(offer)) {
+                break;
+            }
+            executeTransaction(orderBook, bid, offer, listener);
+        }
+    }
+
+    private void executeTransaction(SlotOrderBook orderBook, int bid, int offer, TradeListener listener) {
+        int tradeQuantity = min(store.getQuantity(bid), store.getQuantity(offer));
+        long tradePrice = getTradePrice(store.getPrice(bid), store.getSequence(bid), store.getPrice(offer), store.getSequence(offer));
+        TradeMessage tradeMessage = new TradeMessage(store.getOrderID(bid), store.getOrderID(offer), tradePrice, tradeQuantity, orderBook.getInstrument());
+        ExecReportResponse bidResponse = updateMatchedOrder(orderBook, bid, tradeQuantity);
+        ExecReportResponse offerResponse = updateMatchedOrder(orderBook, offer, tradeQuantity);
+        listener.onTrade(bidResponse, offerResponse, tradeMessage);
+    }
+
+    private ExecReportResponse updateMatchedOrder(SlotOrderBook orderBook, int slot, int tradeQuantity) {
+        if (store.getQuantity(slot) > tradeQuantity) {
+            orderBook.partFillOrder(slot, store.getQuantity(slot) - tradeQuantity);
+            return new ExecReportResponse(view(slot), ExecType.UPDATE);
+        }
+        orderBook.fullyExecuteOrder(slot);
+        ExecReportResponse response = new ExecReportResponse(view(slot), ExecType.REMOVE);
+        removeOrder(slot);
+        return response;
+    }
+
+    private void addTraderOrder(int traderID) {
+        numOfTraderOrders.put(traderID, numOfTraderOrders.get(traderID) + 1);
+    }
+
+    //frees the slot of an order that left its book
+    private void removeOrder(int slot) {
+        int traderID = store.getTraderID(slot);
+        int left = numOfTraderOrders.get(traderID) - 1;
+        if (left == 0) {
+            numOfTraderOrders.remove(traderID);
+        } else {
+            numOfTraderOrders.put(traderID, left);
+        }
+        store.free(slot);
+    }
+
+    //the reused copy of the slot, good until the next one
+    private Order view(int slot) {
+        view.reset(store.getTraderID(slot), store.getOrderID(slot), store.getSide(slot), store.getInstrument(slot));
+        return copyState(view, slot);
+    }
+
+    //an order of the pool with the state of the slot, release it once its report is built
+    private Order copy(int slot) {
+        return copyState(acquireOrder(store.getTraderID(slot), store.getOrderID(slot), store.getSide(slot), store.getInstrument(slot)), slot);
+    }
+
+    private Order copyState(Order order, int slot) {
+        order.setQuantity(store.getQuantity(slot));
+        order.setPrice(store.getPrice(slot));
+        order.setStatus(store.getStatus(slot));
+        order.setSequence(store.getSequence(slot));
+        order.setTimestamp(store.getTimestamp(slot));
+        return order;
+    }
+
+    @Override
+    public Instrument getInstrument(int orderID) {
+        int slot = store.slotOf(orderID);
+        return slot == OrderStore.NO_SLOT ? null : store.getInstrument(slot);
+    }
+
+    @Override
+    public int getTraderID(int orderID) {
+        int slot = store.slotOf(orderID);
+        return slot == OrderStore.NO_SLOT ? -1 : store.getTraderID(slot);
+    }
+
+    @Override
+    public int getNumOfOrders() {
+        return store.size();
+    }
+
+    @Override
+    public boolean hasOrders(int traderID) {
+        return numOfTraderOrders.containsKey(traderID);
+    }
+
+    //a scan of the store
+    @Override
+    public Collection<Integer> getTraderIDs() {
+        Set<Integer> traderIDs = new HashSet<>();
+        for (int slot = 0; slot < store.getNumOfSlots(); slot++) {
+            if (store.isLive(slot)) {
+                traderIDs.add(store.getTraderID(slot));
+            }
+        }
+        return traderIDs;
+    }
+
+    @Override
+    public Collection<Instrument> getInstruments() {
+        return orderBooks.keySet();
+    }
+
+    @Override
+    public BookSnapshot snapshot(Instrument instrument) {
+        SlotOrderBook orderBook = openOrderBook(instrument);
+        return new BookSnapshot(instrument, numOfSequence, store, orderBook.getBids(), orderBook.getOffers());
+    }
+
+    @Override
+    public MarketDepth depth(Instrument instrument, int depth) {
+        SlotOrderBook orderBook = openOrderBook(instrument);
+        return new MarketDepth(instrument, numOfSequence, orderBook.getBids(), orderBook.getOffers(), depth);
+    }
+
+    public OrderStore getStore() {
+        return store;
+    }
+
+}
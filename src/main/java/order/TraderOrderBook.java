@@ -1,33 +1,64 @@
 package order;
 
+import collections.IntObjectMap;
 import enums.Instrument;
 import enums.Side;
 import enums.Status;
+import messages.BookSnapshot;
 import messages.CancelOrderRequest;
 import messages.ExecReportResponse;
 import messages.ModifyOrderRequest;
 
 import java.util.*;
 
+// a trader's replica of the engine's book, kept up to date by applying the engine's reports.
+// every report costs a map lookup and at most one level lookup in the side's tree
 public class TraderOrderBook extends OrderBook {
 
     public TraderOrderBook(Instrument instrument) {
         super(instrument);
     }
 
+    //creates the order of an ADD report and adds it to its side
+    public Order addOrder(ExecReportResponse response) {
+        Order newOrder = new Order(response.getTraderID(), response.getOrderID(), response.getSide(), response.getInstrument());
+        newOrder.setSequence(response.getSequence());
+        newOrder.setTimestamp(response.getTimestamp());
+        newOrder.setQuantity(response.getQuantity());
+        newOrder.setPrice(response.getPriceTicks());
+        newOrder.setStatus(response.getStatus());
+        addOrder(newOrder);
+        return newOrder;
+    }
+
     public void modifyOrder(ExecReportResponse response) {
         Order modifiedOrder = orders.get(response.getOrderID());
         if (modifiedOrder == null) return;
 
-        modifiedOrder.setOrderDate(new Date());
-        modifiedOrder.setPrice(response.getPrice());
-        modifiedOrder.setQuantity(response.getQuantity());
+        BookSide side = getSide(modifiedOrder);
+        modifiedOrder.setTimestamp(response.getTimestamp());
         modifiedOrder.setStatus(response.getStatus());
 
-        if (modifiedOrder.getSide() == Side.BIDS) {
-            Collections.sort(this.bids, Collections.reverseOrder());
-        } else {
-            Collections.sort(this.offers, Collections.reverseOrder());
+        //same sequence means the engine kept the order's place in the queue
+        if (response.getSequence() == modifiedOrder.getSequence()) {
+            side.updateQuantity(modifiedOrder, response.getQuantity());
+            return;
+        }
+
+        side.removeOrder(modifiedOrder);
+        modifiedOrder.setSequence(response.getSequence());
+        modifiedOrder.setPrice(response.getPriceTicks());
+        modifiedOrder.setQuantity(response.getQuantity());
+        side.addOrder(modifiedOrder);
+    }
+
+    //replaces the content of the book with the snapshot, orders come in priority order
+    public void loadSnapshot(BookSnapshot snapshot) {
+        this.bids = new BookSide(Side.BIDS);
+        this.offers = new BookSide(Side.OFFERS);
+        this.orders = new IntObjectMap<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            addOrder(snapshot.toOrder(i));
         }
     }
 
@@ -37,11 +68,7 @@ public class TraderOrderBook extends OrderBook {
         if (canceledOrder == null) return;
 
         canceledOrder.setStatus(response.getStatus());
-        if (canceledOrder.getSide() == Side.BIDS) {
-            bids.remove(canceledOrder);
-        } else {
-            offers.remove(canceledOrder);
-        }
+        getSide(canceledOrder).removeOrder(canceledOrder);
         orders.remove(response.getOrderID());
     }
 
@@ -0,0 +1,114 @@
+package ring;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// bounded ring of preallocated slots for many producers and one consumer, after the LMAX Disruptor.
+// a producer claims a sequence, fills the slot it maps to and publishes it, the consumer handles every
+// published slot up to the first one still being filled in one batch. producers wait while the ring
+// is full, so a slow consumer holds them back instead of growing a queue
+public class RingBuffer<E> {
+
+    // handles the slots of one drain, the slot is reused once the batch is over
+    public interface Handler<E> {
+        void onEvent(E event, long sequence, boolean endOfBatch);
+    }
+
+    // how a waiting thread backs off, spinning is fastest while the other side has a core of its own
+    private static final int SPINS = 100;
+    private static final int YIELDS = 1_000;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Object[] slots;
+    private final int mask;
+    private final int shift;
+    // round in which each slot was last published, -1 before its first
+    private final AtomicIntegerArray published;
+    // last claimed sequence
+    private final AtomicLong claimed;
+    // last sequence the consumer is done with, slots up to it can be claimed again
+    private volatile long consumed;
+
+    public RingBuffer(int capacity, Supplier<E> factory) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        slots = new Object[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = factory.get();
+        }
+        mask = capacity - 1;
+        shift = Integer.numberOfTrailingZeros(capacity);
+        published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        claimed = new AtomicLong(-1);
+        consumed = -1;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    //claims the next sequence, backing off while the ring is full
+    public long next() {
+        long sequence = claimed.incrementAndGet();
+        for (int attempt = 0; sequence - slots.length > consumed; attempt++) {
+            idle(attempt);
+        }
+        return sequence;
+    }
+
+    //backs off a thread that has waited attempt times: spins, then yields the core, then parks
+    public static void idle(int attempt) {
+        if (attempt < SPINS) {
+            Thread.onSpinWait();
+        } else if (attempt < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    //claims the next sequence, or returns -1 if the ring is full
+    public long tryNext() {
+        long current;
+        do {
+            current = claimed.get();
+            if (current + 1 - slots.length > consumed) return -1;
+        } while (!claimed.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    //makes the filled slot visible to the consumer
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> shift));
+    }
+
+    //consumer only, handles at most maxBatch published slots and returns how many
+    public int drain(Handler<E> handler, int maxBatch) {
+        long first = consumed + 1;
+        long last = first - 1;
+        while (last - first + 1 < maxBatch && isPublished(last + 1)) {
+            last++;
+        }
+        if (last < first) return 0;
+
+        for (long sequence = first; sequence <= last; sequence++) {
+            handler.onEvent(get(sequence), sequence, sequence == last);
+        }
+        consumed = last;
+        return (int) (last - first + 1);
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+}
@@ -0,0 +1,393 @@
+package ring;
+
+import collections.IntObjectMap;
+import enums.ExecType;
+import enums.Instrument;
+import enums.RejectionReason;
+import messages.*;
+import order.ObjectOrderMatcher;
+import order.Order;
+import order.OrderMatcher;
+import order.OrderPool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// runs the matching of MatchEngine on its own thread instead of an actor. sessions publish requests
+// into one preallocated request ring, the engine thread drains it in batches and publishes the reports
+// into each session's response ring. reports go only to the traders involved, there is no market data.
+// a session whose response ring is full is dropped instead of waited for, so a consumer that falls behind
+// can't stall the engine thread: its orders are canceled as on a disconnect and it gets nothing more
+public class RingMatchEngine implements AutoCloseable {
+
+    private final RingBuffer<RequestSlot> requests;
+    private final int batchSize;
+    private final OrderMatcher matcher;
+    private final OrderMatcher.TradeListener tradeListener;
+    private final OrderMatcher.FillListener immediateFillListener;
+    private final Thread thread;
+    private volatile boolean running;
+
+    // state below is owned by the engine thread
+    private final IntObjectMap<Session> traders;
+    private final ArrayList<Session> sessionsToNotify;
+    private final TransactionComplete transactionComplete;
+    // orders of the running mass cancel
+    private final List<Order> canceledOrders;
+    // session of the immediate order that is matching
+    private Session immediateSession;
+    // sessions found with a full response ring, disconnected once the request at hand is done
+    private final ArrayList<Session> droppedSessions;
+    private int numOfOrderID;
+
+    // the request ring's slot, a null request stands for a disconnect
+    private static final class RequestSlot {
+        Session session;
+        Request request;
+    }
+
+    private static final class ResponseSlot {
+        Response response;
+    }
+
+    //orderPool may be null, capacities must be powers of two
+    public RingMatchEngine(int requestCapacity, int batchSize, OrderPool orderPool) {
+        requests = new RingBuffer<>(requestCapacity, RequestSlot::new);
+        this.batchSize = batchSize;
+        matcher = new ObjectOrderMatcher(orderPool);
+        tradeListener = this::onTrade;
+        immediateFillListener = this::onImmediateFill;
+        traders = new IntObjectMap<>();
+        sessionsToNotify = new ArrayList<>();
+        transactionComplete = new TransactionComplete();
+        canceledOrders = new ArrayList<>();
+        droppedSessions = new ArrayList<>();
+        numOfOrderID = 0;
+        thread = new Thread(this::run, "ring-match-engine");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    //stops the engine thread once it has drained the requests published so far
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //a session is one trader connection, it may be used by one producer and one consumer thread
+    public Session connect(int responseCapacity) {
+        return new Session(responseCapacity);
+    }
+
+    private void publish(Session session, Request request) {
+        long sequence = requests.next();
+        RequestSlot slot = requests.get(sequence);
+        slot.session = session;
+        slot.request = request;
+        requests.publish(sequence);
+    }
+
+    private void run() {
+        RingBuffer.Handler<RequestSlot> handler = (slot, sequence, endOfBatch) -> {
+            try {
+                onRequest(slot.session, slot.request);
+            } catch (RuntimeException e) {
+                // a request the engine fails on mustn't stop it, the session is answered like for an unsupported one
+                sessionsToNotify.clear();
+                if (slot.request != null) {
+                    rejectUnsupported(slot.session, slot.request);
+                }
+            }
+            dropSessions();
+            slot.session = null;
+            slot.request = null;
+        };
+        int idle = 0;
+        while (true) {
+            if (requests.drain(handler, batchSize) > 0) {
+                idle = 0;
+            } else if (!running) {
+                // requests published before close are visible now
+                if (requests.drain(handler, batchSize) == 0) return;
+            } else {
+                RingBuffer.idle(idle++);
+            }
+        }
+    }
+
+    private void onRequest(Session session, Request request) {
+        // a dropped session's requests can't be answered, its disconnect is done already
+        if (session.dropped) return;
+
+        if (request instanceof NewOrderRequest) {
+            onNewOrderRequest(session, (NewOrderRequest) request);
+        } else if (request instanceof ModifyOrderRequest) {
+            onModifyOrderRequest(session, (ModifyOrderRequest) request);
+        } else if (request instanceof CancelOrderRequest) {
+            onCancelOrderRequest(session, (CancelOrderRequest) request);
+        } else if (request instanceof MassCancelRequest) {
+            onMassCancelRequest(session, (MassCancelRequest) request);
+        } else if (request == null) {
+            onDisconnect(session);
+        } else {
+            // batches and subscriptions, there is no market data here
+            rejectUnsupported(session, request);
+        }
+    }
+
+    //answers the request with UNSUPPORTED_REQUEST, a batch gets a rejection for each of its requests and a TC
+    private void rejectUnsupported(Session session, Request request) {
+        if (request instanceof BatchOrderRequest) {
+            BatchOrderRequest batch = (BatchOrderRequest) request;
+            ExecReportResponse[] responses = new ExecReportResponse[batch.size()];
+            for (int i = 0; i < responses.length; i++) {
+                responses[i] = unsupported(batch.get(i));
+            }
+            session.respond(new BatchExecReportResponse(responses));
+            session.respond(transactionComplete);
+            return;
+        }
+        session.respond(unsupported(request));
+    }
+
+    private static ExecReportResponse unsupported(Request request) {
+        if (request instanceof NewOrderRequest) {
+            return new ExecReportResponse((NewOrderRequest) request, RejectionReason.UNSUPPORTED_REQUEST);
+        } else if (request instanceof ModifyOrderRequest) {
+            return new ExecReportResponse((ModifyOrderRequest) request, RejectionReason.UNSUPPORTED_REQUEST);
+        } else if (request instanceof CancelOrderRequest) {
+            return new ExecReportResponse((CancelOrderRequest) request, RejectionReason.UNSUPPORTED_REQUEST);
+        } else if (request instanceof MassCancelRequest) {
+            return new ExecReportResponse((MassCancelRequest) request, RejectionReason.UNSUPPORTED_REQUEST);
+        } else if (request instanceof SubscriptionRequest) {
+            return new ExecReportResponse(((SubscriptionRequest) request).getTraderID(), RejectionReason.UNSUPPORTED_REQUEST);
+        } else if (request instanceof DepthSubscriptionRequest) {
+            return new ExecReportResponse(((DepthSubscriptionRequest) request).getTraderID(), RejectionReason.UNSUPPORTED_REQUEST);
+        }
+        return new ExecReportResponse(-1, RejectionReason.UNSUPPORTED_REQUEST);
+    }
+
+    private void onNewOrderRequest(Session session, NewOrderRequest request) {
+        RejectionReason rejectionReason = traderRejectionReason(session, request.getTraderID());
+        if (rejectionReason == null) {
+            rejectionReason = matcher.newOrderRejectionReason(request);
+        }
+        if (rejectionReason != null) {
+            session.respond(new ExecReportResponse(request, rejectionReason));
+            return;
+        }
+
+        if (!traders.containsKey(request.getTraderID())) {
+            traders.put(request.getTraderID(), session);
+            session.traderIDs.add(request.getTraderID());
+        }
+        if (request.getTimeInForce().isImmediate()) {
+            executeImmediateOrder(session, request);
+            return;
+        }
+        Order newOrder = matcher.addOrder(request, numOfOrderID++);
+        session.respond(new ExecReportResponse(newOrder, ExecType.ADD));
+        sessionsToNotify.add(session);
+        matchOrders(request.getInstrument());
+    }
+
+    //the session gets the TradeMessages of the fills, then the order's final report
+    private void executeImmediateOrder(Session session, NewOrderRequest request) {
+        immediateSession = session;
+        Order order = matcher.matchImmediate(request, numOfOrderID++, immediateFillListener);
+        immediateSession = null;
+        session.respond(new ExecReportResponse(order, ExecType.REMOVE));
+        matcher.release(order);
+        if (!sessionsToNotify.contains(session)) {
+            sessionsToNotify.add(session);
+        }
+        for (Session notified : sessionsToNotify) {
+            notified.respond(transactionComplete);
+        }
+        sessionsToNotify.clear();
+    }
+
+    private void onModifyOrderRequest(Session session, ModifyOrderRequest request) {
+        RejectionReason rejectionReason = traderRejectionReason(session, request.getTraderID());
+        if (rejectionReason == null) {
+            rejectionReason = matcher.modifyOrderRejectionReason(request);
+        }
+        if (rejectionReason != null) {
+            session.respond(new ExecReportResponse(request, rejectionReason));
+            return;
+        }
+
+        Order modifiedOrder = matcher.modifyOrder(request);
+        session.respond(new ExecReportResponse(modifiedOrder, ExecType.UPDATE));
+        sessionsToNotify.add(session);
+        matchOrders(modifiedOrder.getInstrument());
+    }
+
+    private void onCancelOrderRequest(Session session, CancelOrderRequest request) {
+        RejectionReason rejectionReason = traderRejectionReason(session, request.getTraderID());
+        if (rejectionReason == null) {
+            rejectionReason = matcher.cancelOrderRejectionReason(request);
+        }
+        if (rejectionReason != null) {
+            session.respond(new ExecReportResponse(request, rejectionReason));
+            return;
+        }
+
+        Order canceledOrder = matcher.cancelOrder(request.getOrderID());
+        session.respond(new ExecReportResponse(canceledOrder, ExecType.REMOVE));
+        matcher.release(canceledOrder);
+        session.respond(transactionComplete);
+    }
+
+    private void onMassCancelRequest(Session session, MassCancelRequest request) {
+        RejectionReason rejectionReason = traderRejectionReason(session, request.getTraderID());
+        if (rejectionReason != null) {
+            session.respond(new ExecReportResponse(request, rejectionReason));
+            return;
+        }
+
+        matcher.cancelOrders(request.getTraderID(), request.getInstrument(), request.getSide(), canceledOrders);
+        ExecReportResponse[] responses = new ExecReportResponse[canceledOrders.size()];
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = new ExecReportResponse(canceledOrders.get(i), ExecType.REMOVE);
+            matcher.release(canceledOrders.get(i));
+        }
+        canceledOrders.clear();
+        session.respond(new BatchExecReportResponse(responses));
+        session.respond(transactionComplete);
+    }
+
+    //a trader ID belongs to the first session that used it, until that session disconnects
+    private RejectionReason traderRejectionReason(Session session, int traderID) {
+        Session owner = traders.get(traderID);
+        if (owner != null && owner != session) {
+            return RejectionReason.INVALID_TRADER_ID;
+        }
+        return null;
+    }
+
+    //cancels the orders of every trader of the session, nobody is left to tell
+    private void onDisconnect(Session session) {
+        for (int traderID : session.traderIDs) {
+            traders.remove(traderID);
+            matcher.cancelOrders(traderID, null, null, canceledOrders);
+        }
+        for (Order order : canceledOrders) {
+            matcher.release(order);
+        }
+        canceledOrders.clear();
+        session.traderIDs.clear();
+    }
+
+    //the orders of a dropped session are canceled between requests, not while a book is matching
+    private void dropSessions() {
+        for (Session session : droppedSessions) {
+            onDisconnect(session);
+        }
+        droppedSessions.clear();
+    }
+
+    private void matchOrders(Instrument instrument) {
+        matcher.match(instrument, tradeListener);
+        for (Session session : sessionsToNotify) {
+            session.respond(transactionComplete);
+        }
+        sessionsToNotify.clear();
+    }
+
+    //both traders get their report and the trade
+    private void onTrade(ExecReportResponse bidResponse, ExecReportResponse offerResponse, TradeMessage tradeMessage) {
+        Session bidSession = traders.get(bidResponse.getTraderID());
+        Session offerSession = traders.get(offerResponse.getTraderID());
+        bidSession.respond(bidResponse);
+        offerSession.respond(offerResponse);
+        bidSession.respond(tradeMessage);
+        offerSession.respond(tradeMessage);
+        if (!sessionsToNotify.contains(bidSession)) {
+            sessionsToNotify.add(bidSession);
+        }
+        if (!sessionsToNotify.contains(offerSession)) {
+            sessionsToNotify.add(offerSession);
+        }
+    }
+
+    private void onImmediateFill(ExecReportResponse restingResponse, TradeMessage tradeMessage) {
+        Session restingSession = traders.get(restingResponse.getTraderID());
+        restingSession.respond(restingResponse);
+        restingSession.respond(tradeMessage);
+        immediateSession.respond(tradeMessage);
+        if (!sessionsToNotify.contains(restingSession)) {
+            sessionsToNotify.add(restingSession);
+        }
+    }
+
+    public final class Session {
+        private final RingBuffer<ResponseSlot> responses;
+        // trader IDs the session has used, engine thread only
+        private final ArrayList<Integer> traderIDs;
+        // the handler of the running poll, so polling allocates nothing
+        private RingBuffer.Handler<Response> pollHandler;
+        private final RingBuffer.Handler<ResponseSlot> slotHandler;
+        // set by the engine thread when the response ring was full
+        private volatile boolean dropped;
+
+        private Session(int responseCapacity) {
+            responses = new RingBuffer<>(responseCapacity, ResponseSlot::new);
+            traderIDs = new ArrayList<>();
+            slotHandler = (slot, sequence, endOfBatch) -> {
+                Response response = slot.response;
+                slot.response = null;
+                pollHandler.onEvent(response, sequence, endOfBatch);
+            };
+        }
+
+        public void send(Request request) {
+            publish(this, request);
+        }
+
+        //cancels the session's orders, reports already in the ring can still be polled
+        public void disconnect() {
+            publish(this, null);
+        }
+
+        //consumer only, hands at most maxBatch reports to the handler and returns how many
+        public int poll(RingBuffer.Handler<Response> handler, int maxBatch) {
+            pollHandler = handler;
+            try {
+                return responses.drain(slotHandler, maxBatch);
+            } finally {
+                pollHandler = null;
+            }
+        }
+
+        //true once the session fell too far behind on its reports, see RingMatchEngine. reports already in
+        //the ring can still be polled, requests sent since are ignored
+        public boolean isDropped() {
+            return dropped;
+        }
+
+        //engine thread only, drops the session if its ring is full
+        private void respond(Response response) {
+            if (dropped) return;
+
+            long sequence = responses.tryNext();
+            if (sequence < 0) {
+                dropped = true;
+                droppedSessions.add(this);
+                return;
+            }
+            responses.get(sequence).response = response;
+            responses.publish(sequence);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.cluster.Cluster;
+import akka.cluster.MemberStatus;
+import akka.cluster.sharding.ClusterSharding;
+import akka.cluster.sharding.ShardRegion;
+import akka.testkit.javadsl.TestKit;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import enums.*;
+import messages.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TestCluster {
+    static ActorSystem node1;
+    static ActorSystem node2;
+
+    @BeforeAll
+    public static void setup() {
+        Config config = ConfigFactory.parseString(
+                "akka.actor.provider = cluster\n" +
+                "akka.remote.artery.canonical.hostname = 127.0.0.1\n" +
+                "akka.remote.artery.canonical.port = 0\n" +
+                "akka.loglevel = WARNING\n").withFallback(ConfigFactory.load());
+        node1 = ActorSystem.create("engine", config);
+        node2 = ActorSystem.create("engine", config);
+        Cluster.get(node1).join(Cluster.get(node1).selfAddress());
+        Cluster.get(node2).join(Cluster.get(node1).selfAddress());
+    }
+
+    @AfterAll
+    public static void teardown() {
+        TestKit.shutdownActorSystem(node1);
+        TestKit.shutdownActorSystem(node2);
+        node1 = null;
+        node2 = null;
+    }
+
+    @Test
+    public void testBooksMoveWhenANodeLeaves() {
+        new TestKit(node2) {
+            {
+                awaitCond(Duration.ofSeconds(20), () -> upMembers(node1) == 2 && upMembers(node2) == 2);
+                node1.actorOf(ClusterMatchEngine.props(), "engine");
+                final ActorRef engine = node2.actorOf(ClusterMatchEngine.props(), "engine");
+
+                // a resting order in every book, sharding spreads the books over both nodes
+                Map<Integer, Integer> quantities = new HashMap<>();
+                Set<Integer> orderIDs = new HashSet<>();
+                int quantity = 1;
+                for (Instrument instrument : Instrument.values()) {
+                    engine.tell(new NewOrderRequest(Side.BIDS, instrument, quantity, 2, new Date(), 1), getRef());
+                    ExecReportResponse response = expectMsgClass(Duration.ofSeconds(20), ExecReportResponse.class);
+                    expectMsgClass(TransactionComplete.class);
+                    Assertions.assertEquals(Status.ACTIVE, response.getStatus(), "invalid status");
+                    Assertions.assertEquals(instrument, response.getInstrument(), "invalid instrument");
+                    Assertions.assertTrue(orderIDs.add(response.getOrderID()), "duplicate order ID");
+                    quantities.put(response.getOrderID(), quantity++);
+                }
+
+                // market data isn't streamed across nodes, the subscriber is told so
+                engine.tell(new SubscriptionRequest(1), getRef());
+                ExecReportResponse unsupported = expectMsgClass(ExecReportResponse.class);
+                Assertions.assertEquals(RejectionReason.UNSUPPORTED_REQUEST, unsupported.getRejectionReason(), "invalid rejection reason");
+                Assertions.assertEquals(1, unsupported.getTraderID(), "invalid trader ID");
+
+                // nor is depth aggregated
+                engine.tell(new DepthSubscriptionRequest(1, 5), getRef());
+                ExecReportResponse rejection = expectMsgClass(ExecReportResponse.class);
+                Assertions.assertEquals(RejectionReason.UNSUPPORTED_REQUEST, rejection.getRejectionReason(), "invalid rejection reason");
+                Assertions.assertEquals(1, rejection.getTraderID(), "invalid trader ID");
+
+                // a batch over every book is answered as one, in the order of its requests
+                List<Request> requests = new ArrayList<>();
+                for (Instrument instrument : Instrument.values()) {
+                    requests.add(new NewOrderRequest(Side.OFFERS, instrument, 1, 4, new Date(), 1));
+                }
+                engine.tell(new BatchOrderRequest(requests), getRef());
+                BatchExecReportResponse reports = expectMsgClass(Duration.ofSeconds(20), BatchExecReportResponse.class);
+                expectMsgClass(TransactionComplete.class);
+                expectNoMessage(Duration.ofMillis(200));
+                Assertions.assertEquals(Instrument.values().length, reports.size(), "invalid batch size");
+                for (int i = 0; i < reports.size(); i++) {
+                    Assertions.assertEquals(Status.ACTIVE, reports.get(i).getStatus(), "invalid status");
+                    Assertions.assertEquals(Instrument.values()[i], reports.get(i).getInstrument(), "invalid instrument");
+                    Assertions.assertTrue(orderIDs.add(reports.get(i).getOrderID()), "duplicate order ID");
+                }
+
+                // a mass cancel of every book is answered as one too
+                engine.tell(new MassCancelRequest(1, null, Side.OFFERS), getRef());
+                BatchExecReportResponse canceled = expectMsgClass(Duration.ofSeconds(20), BatchExecReportResponse.class);
+                expectMsgClass(TransactionComplete.class);
+                expectNoMessage(Duration.ofMillis(200));
+                Assertions.assertEquals(Instrument.values().length, canceled.size(), "invalid batch size");
+                for (int i = 0; i < canceled.size(); i++) {
+                    Assertions.assertEquals(Status.CANCELED, canceled.get(i).getStatus(), "invalid status");
+                    Assertions.assertEquals(Side.OFFERS, canceled.get(i).getSide(), "invalid side");
+                }
+
+                ActorRef region1 = ClusterSharding.get(node1).shardRegion(ClusterMatchEngine.TYPE_NAME);
+                region1.tell(ShardRegion.getShardRegionStateInstance(), getRef());
+                ShardRegion.CurrentShardRegionState state = expectMsgClass(ShardRegion.CurrentShardRegionState.class);
+                Assertions.assertFalse(state.getShards().isEmpty(), "no book on the leaving node");
+
+                Cluster.get(node1).leave(Cluster.get(node1).selfAddress());
+                awaitCond(Duration.ofSeconds(30), () -> node1.whenTerminated().isCompleted()
+                        && Cluster.get(node2).state().members().size() == 1);
+
+                // every order survived the move with its quantity, and new ones don't reuse their IDs
+                for (Instrument instrument : Instrument.values()) {
+                    engine.tell(new NewOrderRequest(Side.OFFERS, instrument, 1, 3, new Date(), 1), getRef());
+                    ExecReportResponse response = expectMsgClass(Duration.ofSeconds(20), ExecReportResponse.class);
+                    expectMsgClass(TransactionComplete.class);
+                    Assertions.assertEquals(Status.ACTIVE, response.getStatus(), "invalid status");
+                    Assertions.assertTrue(orderIDs.add(response.getOrderID()), "duplicate order ID");
+                }
+                for (Map.Entry<Integer, Integer> order : quantities.entrySet()) {
+                    engine.tell(new CancelOrderRequest(order.getKey(), 1), getRef());
+                    ExecReportResponse response = expectMsgClass(Duration.ofSeconds(20), ExecReportResponse.class);
+                    expectMsgClass(TransactionComplete.class);
+                    Assertions.assertEquals(Status.CANCELED, response.getStatus(), "invalid status");
+                    Assertions.assertEquals(order.getValue().intValue(), response.getQuantity(), "invalid quantity");
+                }
+            }
+        };
+    }
+
+    private static int upMembers(ActorSystem node) {
+        int up = 0;
+        for (akka.cluster.Member member : Cluster.get(node).state().getMembers()) {
+            if (member.status() == MemberStatus.up()) {
+                up++;
+            }
+        }
+        return up;
+    }
+
+}
@@ -0,0 +1,127 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import enums.*;
+import messages.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class TestGateway {
+    static ActorSystem system;
+
+    @BeforeAll
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterAll
+    public static void teardown() {
+        TestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static InetSocketAddress startGateway(TestKit testKit) {
+        final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+        final ActorRef gateway = system.actorOf(Gateway.props(matchEngine, new InetSocketAddress("127.0.0.1", 0)));
+        gateway.tell(new Gateway.GetLocalAddress(), testKit.getRef());
+        return testKit.expectMsgClass(InetSocketAddress.class);
+    }
+
+    private static Socket connect(InetSocketAddress address) throws IOException {
+        Socket socket = new Socket(address.getAddress(), address.getPort());
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static byte[] frame(Object message) {
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+        MessageCodec.encodeFrame(message, buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    //reads frames up to and including the next TransactionComplete
+    private static List<Object> readTransaction(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        List<Object> messages = new ArrayList<>();
+        Object message;
+        do {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            message = MessageCodec.decode(ByteBuffer.wrap(bytes));
+            messages.add(message);
+        } while (!(message instanceof TransactionComplete));
+        return messages;
+    }
+
+    @Test
+    public void testOrderEntryAndTrade() throws IOException {
+        new TestKit(system) {
+            {
+                InetSocketAddress address = startGateway(this);
+                try (Socket buyer = connect(address); Socket seller = connect(address)) {
+                    //the first frame arrives in two pieces, the session waits for the rest
+                    byte[] bid = frame(new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 10, new Date(), 1));
+                    OutputStream buyerOut = buyer.getOutputStream();
+                    buyerOut.write(bid, 0, 5);
+                    buyerOut.flush();
+                    buyerOut.write(bid, 5, bid.length - 5);
+                    List<Object> bidReports = readTransaction(buyer);
+                    Assertions.assertEquals(2, bidReports.size());
+                    ExecReportResponse bidAdded = (ExecReportResponse) bidReports.get(0);
+                    Assertions.assertEquals(ExecType.ADD, bidAdded.getExecType());
+
+                    seller.getOutputStream().write(frame(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 10, new Date(), 2)));
+                    List<Object> offerReports = readTransaction(seller);
+                    Assertions.assertEquals(ExecType.ADD, ((ExecReportResponse) offerReports.get(0)).getExecType());
+                    Assertions.assertTrue(offerReports.stream().anyMatch(m -> m instanceof TradeMessage));
+
+                    List<Object> fillReports = readTransaction(buyer);
+                    ExecReportResponse bidFilled = (ExecReportResponse) fillReports.get(0);
+                    Assertions.assertEquals(bidAdded.getOrderID(), bidFilled.getOrderID());
+                    Assertions.assertEquals(Status.FULLY_EXECUTED, bidFilled.getStatus());
+                    TradeMessage trade = (TradeMessage) fillReports.get(1);
+                    Assertions.assertEquals(2, trade.getTradeQuantity());
+                    Assertions.assertEquals(bidAdded.getOrderID(), trade.getBidOrderID());
+
+                    //the order is gone, so cancelling it is rejected
+                    buyerOut.write(frame(new CancelOrderRequest(bidAdded.getOrderID(), 1)));
+                    DataInputStream in = new DataInputStream(buyer.getInputStream());
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    ExecReportResponse rejection = (ExecReportResponse) MessageCodec.decode(ByteBuffer.wrap(bytes));
+                    Assertions.assertEquals(ExecType.REJECTED, rejection.getExecType());
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testProtocolErrorClosesSession() throws IOException {
+        new TestKit(system) {
+            {
+                InetSocketAddress address = startGateway(this);
+                try (Socket client = connect(address)) {
+                    ByteBuffer garbage = ByteBuffer.allocate(8);
+                    garbage.putInt(MessageCodec.MAX_SIZE + 1).putInt(0);
+                    client.getOutputStream().write(garbage.array());
+                    Assertions.assertEquals(-1, client.getInputStream().read());
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,58 @@
+import collections.IntIntMap;
+import collections.IntObjectMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class TestIntMaps {
+
+    @Test
+    public void testIntObjectMapAgainstHashMap() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        //small key range, so removals keep hitting shifted probe runs
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Assertions.assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            }
+            Assertions.assertEquals(expected.size(), map.size());
+        }
+        for (int key = -1_000; key < 1_000; key++) {
+            Assertions.assertEquals(expected.get(key), map.get(key));
+            Assertions.assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        Assertions.assertEquals(expected, map);
+        Assertions.assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+        Assertions.assertEquals(expected.size(), map.values().size());
+    }
+
+    @Test
+    public void testIntIntMapAgainstHashMap() {
+        IntIntMap map = new IntIntMap(-1);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals((int) expected.getOrDefault(key, -1), map.remove(key));
+                expected.remove(key);
+            } else {
+                Assertions.assertEquals((int) expected.getOrDefault(key, -1), map.put(key, i));
+                expected.put(key, i);
+            }
+            Assertions.assertEquals(expected.size(), map.size());
+        }
+        for (int key = 0; key < 2_000; key++) {
+            Assertions.assertEquals((int) expected.getOrDefault(key, -1), map.get(key));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(1, -1));
+    }
+
+}
@@ -0,0 +1,360 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.PoisonPill;
+import akka.testkit.javadsl.TestKit;
+import com.typesafe.config.ConfigFactory;
+import enums.*;
+import journal.EngineSnapshot;
+import journal.Journal;
+import journal.JournalListener;
+import journal.RequestCapture;
+import messages.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class TestJournal {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testAppendAndReplayAcrossSegments() throws Exception {
+        //small segments, so the records span several files
+        try (Journal journal = new Journal(directory, 128, 4)) {
+            for (int i = 0; i < 10; i++) {
+                journal.appendNewOrder(i, 1, Side.BIDS, Instrument.TV, 5, 100 + i);
+                journal.appendModifyOrder(i, 1, 3, 90);
+                journal.appendCancelOrder(i, 1);
+            }
+        }
+
+        List<String> records = new ArrayList<>();
+        try (Journal journal = new Journal(directory, 128, 4)) {
+            journal.appendCancelOrder(42, 2);
+            journal.appendMassCancel(2, null, Side.OFFERS);
+            journal.appendImmediateOrder(43, 2, Side.OFFERS, Instrument.BAG, 3, 7, TimeInForce.FILL_OR_KILL);
+            journal.replay(new JournalListener() {
+                @Override
+                public void onNewOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price) {
+                    records.add("new " + orderID + " " + side + " " + instrument + " " + quantity + " " + price);
+                }
+
+                @Override
+                public void onImmediateOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price, TimeInForce timeInForce) {
+                    records.add(timeInForce + " " + orderID + " " + side + " " + instrument + " " + quantity + " " + price);
+                }
+
+                @Override
+                public void onModifyOrder(int orderID, int traderID, int quantity, long price) {
+                    records.add("modify " + orderID + " " + quantity + " " + price);
+                }
+
+                @Override
+                public void onCancelOrder(int orderID, int traderID) {
+                    records.add("cancel " + orderID + " " + traderID);
+                }
+
+                @Override
+                public void onMassCancel(int traderID, Instrument instrument, Side side) {
+                    records.add("mass cancel " + traderID + " " + instrument + " " + side);
+                }
+            });
+        }
+
+        Assertions.assertEquals(33, records.size());
+        Assertions.assertEquals("new 0 BIDS TV 5 100", records.get(0));
+        Assertions.assertEquals("modify 9 3 90", records.get(28));
+        Assertions.assertEquals("cancel 42 2", records.get(30));
+        Assertions.assertEquals("mass cancel 2 null OFFERS", records.get(31));
+        Assertions.assertEquals("FILL_OR_KILL 43 OFFERS BAG 3 7", records.get(32));
+    }
+
+    @Test
+    public void testEngineRecoveryFromJournal() {
+        ActorSystem system = ActorSystem.create("journal", ConfigFactory.parseString(
+                "engine.journal.enabled = on\n" +
+                "engine.journal.directory = \"" + directory.toString().replace("\\", "/") + "\"\n" +
+                "engine.journal.segment-size = 1m"));
+        try {
+            final TestKit trader1 = new TestKit(system);
+            final TestKit trader2 = new TestKit(system);
+            final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 5, 2, new Date(), 1), trader1.getRef());
+            ExecReportResponse bid = trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 1), trader1.getRef());
+            ExecReportResponse canceled = trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            matchEngine.tell(new CancelOrderRequest(canceled.getOrderID(), 1), trader1.getRef());
+            trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+
+            //rejected requests are not journaled
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1.05, new Date(), 1), trader1.getRef());
+            trader1.expectMsgClass(ExecReportResponse.class);
+
+            matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 2, new Date(), 2), trader2.getRef());
+            trader2.expectMsgClass(ExecReportResponse.class);
+            trader2.expectMsgClass(ExecReportResponse.class);
+            trader2.expectMsgClass(TradeMessage.class);
+            trader2.expectMsgClass(TransactionComplete.class);
+            trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TradeMessage.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+
+            matchEngine.tell(new ModifyOrderRequest(bid.getOrderID(), 1, 2, 2.5), trader1.getRef());
+            ExecReportResponse modified = trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+
+            trader1.watch(matchEngine);
+            matchEngine.tell(PoisonPill.getInstance(), ActorRef.noSender());
+            trader1.expectTerminated(matchEngine);
+
+            //a new engine on the same journal has the same book
+            final ActorRef recoveredEngine = system.actorOf(MatchEngine.props());
+            final TestKit subscriber = new TestKit(system);
+            recoveredEngine.tell(new SubscriptionRequest(3), subscriber.getRef());
+            BookSnapshot snapshot = subscriber.expectMsgClass(BookSnapshot.class);
+            subscriber.expectMsgClass(SubscriptionResponse.class);
+
+            Assertions.assertEquals(1, snapshot.size());
+            Assertions.assertEquals(modified.getOrderID(), snapshot.getOrderID(0));
+            Assertions.assertEquals(modified.getQuantity(), snapshot.getQuantity(0));
+            Assertions.assertEquals(modified.getPriceTicks(), snapshot.getPrice(0));
+            Assertions.assertEquals(modified.getSequence(), snapshot.getOrderSequence(0));
+            Assertions.assertEquals(Status.PARTFILLED, snapshot.getStatus(0));
+
+            //the reconnected trader can cancel its order, and new order IDs continue after the journal
+            final TestKit reconnected = new TestKit(system);
+            recoveredEngine.tell(new CancelOrderRequest(modified.getOrderID(), 1), reconnected.getRef());
+            Assertions.assertEquals(Status.CANCELED, reconnected.expectMsgClass(ExecReportResponse.class).getStatus());
+            reconnected.expectMsgClass(TransactionComplete.class);
+
+            recoveredEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 1), reconnected.getRef());
+            Assertions.assertEquals(3, reconnected.expectMsgClass(ExecReportResponse.class).getOrderID());
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    @Test
+    public void testTraderTerminationSurvivesRestart() {
+        ActorSystem system = ActorSystem.create("termination", ConfigFactory.parseString(
+                "engine.journal.enabled = on\n" +
+                "engine.journal.directory = \"" + directory.toString().replace("\\", "/") + "\"\n" +
+                "engine.journal.segment-size = 1m"));
+        try {
+            final TestKit trader1 = new TestKit(system);
+            final TestKit trader2 = new TestKit(system);
+            final TestKit subscriber = new TestKit(system);
+            final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+            matchEngine.tell(new SubscriptionRequest(3), subscriber.getRef());
+            subscriber.expectMsgClass(SubscriptionResponse.class);
+
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 5, 2, new Date(), 1), trader1.getRef());
+            trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            subscriber.expectMsgClass(MarketDataBatch.class);
+
+            //the engine cancels the bid of the stopped trader
+            system.stop(trader1.getRef());
+            MarketDataBatch canceled = subscriber.expectMsgClass(MarketDataBatch.class);
+            Assertions.assertEquals(Status.CANCELED, ((ExecReportResponse) canceled.get(0)).getStatus());
+
+            matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 5, 2, new Date(), 2), trader2.getRef());
+            ExecReportResponse offer = trader2.expectMsgClass(ExecReportResponse.class);
+            trader2.expectMsgClass(TransactionComplete.class);
+
+            trader2.watch(matchEngine);
+            matchEngine.tell(PoisonPill.getInstance(), ActorRef.noSender());
+            trader2.expectTerminated(matchEngine);
+
+            //the canceled bid isn't replayed, so the offer still rests
+            final ActorRef recoveredEngine = system.actorOf(MatchEngine.props());
+            final TestKit recoveredSubscriber = new TestKit(system);
+            recoveredEngine.tell(new SubscriptionRequest(4), recoveredSubscriber.getRef());
+            BookSnapshot snapshot = recoveredSubscriber.expectMsgClass(BookSnapshot.class);
+            recoveredSubscriber.expectMsgClass(SubscriptionResponse.class);
+            Assertions.assertEquals(1, snapshot.size());
+            Assertions.assertEquals(offer.getOrderID(), snapshot.getOrderID(0));
+            Assertions.assertEquals(Side.OFFERS, snapshot.getSide(0));
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    @Test
+    public void testBatchReplaysAsOneBatch() {
+        ActorSystem system = ActorSystem.create("batch", ConfigFactory.parseString(
+                "engine.journal.enabled = on\n" +
+                "engine.journal.directory = \"" + directory.toString().replace("\\", "/") + "\"\n" +
+                "engine.journal.segment-size = 1m"));
+        try {
+            final TestKit trader = new TestKit(system);
+            final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+            //the offer is canceled before the batch is matched, so nothing trades
+            matchEngine.tell(new BatchOrderRequest(Arrays.asList(
+                    new NewOrderRequest(Side.BIDS, Instrument.BAG, 5, 2, new Date(), 1),
+                    new NewOrderRequest(Side.OFFERS, Instrument.BAG, 3, 2, new Date(), 1),
+                    new CancelOrderRequest(1, 1))), trader.getRef());
+            BatchExecReportResponse reports = trader.expectMsgClass(BatchExecReportResponse.class);
+            Assertions.assertEquals(ExecType.REMOVE, reports.get(2).getExecType());
+            trader.expectMsgClass(TransactionComplete.class);
+
+            trader.watch(matchEngine);
+            matchEngine.tell(PoisonPill.getInstance(), ActorRef.noSender());
+            trader.expectTerminated(matchEngine);
+
+            //matching the replayed requests one by one would have traded the bid
+            final ActorRef recoveredEngine = system.actorOf(MatchEngine.props());
+            final TestKit subscriber = new TestKit(system);
+            recoveredEngine.tell(new SubscriptionRequest(2), subscriber.getRef());
+            BookSnapshot snapshot = subscriber.expectMsgClass(BookSnapshot.class);
+            subscriber.expectMsgClass(SubscriptionResponse.class);
+            Assertions.assertEquals(1, snapshot.size());
+            Assertions.assertEquals(0, snapshot.getOrderID(0));
+            Assertions.assertEquals(5, snapshot.getQuantity(0));
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    @Test
+    public void testEngineWarmRestartFromSnapshot() throws Exception {
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+        ActorSystem system = ActorSystem.create("snapshot", ConfigFactory.parseString(
+                "engine.journal.enabled = on\n" +
+                "engine.journal.directory = \"" + journalDirectory.toString().replace("\\", "/") + "\"\n" +
+                "engine.journal.segment-size = 1m\n" +
+                "engine.snapshot.enabled = on\n" +
+                "engine.snapshot.directory = \"" + snapshotDirectory.toString().replace("\\", "/") + "\"\n" +
+                "engine.snapshot.interval = 1h"));
+        try {
+            final TestKit trader = new TestKit(system);
+            final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 5, 2, new Date(), 1), trader.getRef());
+            trader.expectMsgClass(ExecReportResponse.class);
+            trader.expectMsgClass(TransactionComplete.class);
+            matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 3, 3, new Date(), 1), trader.getRef());
+            trader.expectMsgClass(ExecReportResponse.class);
+            trader.expectMsgClass(TransactionComplete.class);
+
+            matchEngine.tell(new MatchEngine.TakeSnapshot(), ActorRef.noSender());
+            trader.awaitCond(() -> listSnapshots(snapshotDirectory).size() == 1);
+
+            //only this order is replayed from the journal
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 1), trader.getRef());
+            trader.expectMsgClass(ExecReportResponse.class);
+            trader.expectMsgClass(TransactionComplete.class);
+
+            trader.watch(matchEngine);
+            matchEngine.tell(PoisonPill.getInstance(), ActorRef.noSender());
+            trader.expectTerminated(matchEngine);
+
+            EngineSnapshot snapshot = EngineSnapshot.read(listSnapshots(snapshotDirectory).get(0));
+            Assertions.assertEquals(2, snapshot.getNumOfOrderID());
+            Assertions.assertEquals(2, snapshot.getBooks().get(0).size());
+            try (Journal journal = new Journal(journalDirectory, 1 << 20, 1)) {
+                Assertions.assertEquals(1, journal.replay(new JournalListener() {
+                    @Override
+                    public void onNewOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price) {
+                    }
+
+                    @Override
+                    public void onImmediateOrder(int orderID, int traderID, Side side, Instrument instrument, int quantity, long price, TimeInForce timeInForce) {
+                    }
+
+                    @Override
+                    public void onModifyOrder(int orderID, int traderID, int quantity, long price) {
+                    }
+
+                    @Override
+                    public void onCancelOrder(int orderID, int traderID) {
+                    }
+
+                    @Override
+                    public void onMassCancel(int traderID, Instrument instrument, Side side) {
+                    }
+                }, snapshot.getJournalSegment(), snapshot.getJournalPosition()));
+            }
+
+            final ActorRef recoveredEngine = system.actorOf(MatchEngine.props());
+            final TestKit subscriber = new TestKit(system);
+            recoveredEngine.tell(new SubscriptionRequest(2), subscriber.getRef());
+            BookSnapshot book = subscriber.expectMsgClass(BookSnapshot.class);
+            subscriber.expectMsgClass(SubscriptionResponse.class);
+
+            Assertions.assertEquals(3, book.size());
+            Assertions.assertEquals(2, book.getNumOfBids());
+            Assertions.assertEquals(0, book.getOrderID(0));
+            Assertions.assertEquals(2, book.getOrderID(1));
+            Assertions.assertEquals(1, book.getOrderID(2));
+
+            recoveredEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 2), subscriber.getRef());
+            //a subscriber gets its own reports in the market data
+            MarketDataBatch batch = subscriber.expectMsgClass(MarketDataBatch.class);
+            Assertions.assertEquals(3, ((ExecReportResponse) batch.get(0)).getOrderID());
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static List<Path> listSnapshots(Path directory) {
+        try {
+            return EngineSnapshot.list(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    public void testEngineCapturesRequests() throws Exception {
+        Path file = directory.resolve("capture.dat");
+        ActorSystem system = ActorSystem.create("capture", ConfigFactory.parseString(
+                "engine.capture.enabled = on\n" +
+                "engine.capture.file = \"" + file.toString().replace("\\", "/") + "\"\n" +
+                "engine.capture.buffer-size = 64").withFallback(ConfigFactory.load()));
+        try {
+            final TestKit trader1 = new TestKit(system);
+            final TestKit trader2 = new TestKit(system);
+            final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.TV, 5, 1, new Date(), 1), trader1.getRef());
+            matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.TV, 5, 2, new Date(), 2), trader2.getRef());
+            matchEngine.tell(new MassCancelRequest(1), trader1.getRef());
+            trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            trader1.expectMsgClass(BatchExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            trader1.watch(matchEngine);
+            matchEngine.tell(PoisonPill.getInstance(), ActorRef.noSender());
+            trader1.expectTerminated(matchEngine);
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+
+        //the small buffer was written out on the way, the rest on stop
+        List<String> records = new ArrayList<>();
+        List<Long> arrivals = new ArrayList<>();
+        Assertions.assertEquals(3, RequestCapture.read(file, (arrivalNanos, sender, request) -> {
+            records.add(sender + " " + request.getClass().getSimpleName());
+            arrivals.add(arrivalNanos);
+        }));
+        Assertions.assertEquals(Arrays.asList("0 NewOrderRequest", "1 NewOrderRequest", "0 MassCancelRequest"), records);
+        Assertions.assertTrue(arrivals.get(0) <= arrivals.get(1) && arrivals.get(1) <= arrivals.get(2));
+    }
+
+}
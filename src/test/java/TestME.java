@@ -2,6 +2,7 @@ import akka.actor.ActorContext;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.testkit.javadsl.TestKit;
+import com.typesafe.config.ConfigFactory;
 import enums.*;
 import messages.*;
 import org.junit.jupiter.api.AfterAll;
@@ -10,7 +11,10 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 public class TestME {
     static ActorSystem system;
@@ -112,6 +116,29 @@ public class TestME {
         };
     }
 
+    @Test
+    public void testNORWithPriceOffTick() {
+        new TestKit(system) {
+            {
+                final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+                //tick size of BAG is 0.1
+                NewOrderRequest request1 = new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 2.25, new Date(), 1);
+                matchEngine.tell(request1, getRef());
+                ExecReportResponse response1 = expectMsgClass(ExecReportResponse.class);
+                Assertions.assertEquals(RejectionReason.INVALID_TICK, response1.getRejectionReason());
+
+                NewOrderRequest request2 = new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 2.3, new Date(), 1);
+                matchEngine.tell(request2, getRef());
+                ExecReportResponse response2 = expectMsgClass(ExecReportResponse.class);
+                expectMsgClass(TransactionComplete.class);
+                Assertions.assertEquals(Status.ACTIVE, response2.getStatus());
+                Assertions.assertEquals(23, response2.getPriceTicks());
+                Assertions.assertEquals(2.3, response2.getPrice());
+            }
+        };
+    }
+
     @Test
     public void testMORWithInvalidQuantity() {
         new TestKit(system) {
@@ -337,39 +364,56 @@ public class TestME {
         final TestKit trader1 = new TestKit(system);
         final ActorRef matchEngine = system.actorOf(MatchEngine.props());
 
-        //adding new order for trader1
-        NewOrderRequest newOrderRequest = new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 2, new Date(), 1);
-        matchEngine.tell(newOrderRequest, trader1.getRef());
-        ExecReportResponse NORResponse = trader1.expectMsgClass(ExecReportResponse.class);
+        //adding new orders for trader1
+        NewOrderRequest newOrderRequest1 = new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 2, new Date(), 1);
+        matchEngine.tell(newOrderRequest1, trader1.getRef());
+        ExecReportResponse NORResponse1 = trader1.expectMsgClass(ExecReportResponse.class);
         trader1.expectMsgClass(TransactionComplete.class);
 
-        //modifying the order of trader1
-        ModifyOrderRequest modifyOrderRequest = new ModifyOrderRequest(NORResponse.getOrderID(), 1, 3, 3);
+        NewOrderRequest newOrderRequest2 = new NewOrderRequest(Side.OFFERS, Instrument.BAG, 4, 5, new Date(), 1);
+        matchEngine.tell(newOrderRequest2, trader1.getRef());
+        ExecReportResponse NORResponse2 = trader1.expectMsgClass(ExecReportResponse.class);
+        trader1.expectMsgClass(TransactionComplete.class);
+
+        //modifying the first order of trader1
+        ModifyOrderRequest modifyOrderRequest = new ModifyOrderRequest(NORResponse1.getOrderID(), 1, 3, 3);
         matchEngine.tell(modifyOrderRequest, trader1.getRef());
         ExecReportResponse MORResponse = trader1.expectMsgClass(ExecReportResponse.class);
         trader1.expectMsgClass(TransactionComplete.class);
 
-        //cancelling the order of trader1
-        CancelOrderRequest cancelOrderRequest = new CancelOrderRequest(NORResponse.getOrderID(), 1);
-        matchEngine.tell(cancelOrderRequest, trader1.getRef());
-        ExecReportResponse CORResponse = trader1.expectMsgClass(ExecReportResponse.class);
+        //cancelling the order of trader1 on another instrument
+        NewOrderRequest newOrderRequest3 = new NewOrderRequest(Side.BIDS, Instrument.BOOK, 2, 2, new Date(), 1);
+        matchEngine.tell(newOrderRequest3, trader1.getRef());
+        ExecReportResponse NORResponse3 = trader1.expectMsgClass(ExecReportResponse.class);
+        trader1.expectMsgClass(TransactionComplete.class);
+        matchEngine.tell(new CancelOrderRequest(NORResponse3.getOrderID(), 1), trader1.getRef());
+        trader1.expectMsgClass(ExecReportResponse.class);
         trader1.expectMsgClass(TransactionComplete.class);
 
         final TestKit trader2 = new TestKit(system);
         matchEngine.tell(new SubscriptionRequest(2), trader2.getRef());
 
-        ExecReportResponse response1 = trader2.expectMsgClass(ExecReportResponse.class);
-        trader2.expectMsgClass(TransactionComplete.class);
-        ExecReportResponse response2 = trader2.expectMsgClass(ExecReportResponse.class);
-        trader2.expectMsgClass(TransactionComplete.class);
-        ExecReportResponse response3 = trader2.expectMsgClass(ExecReportResponse.class);
-        trader2.expectMsgClass(TransactionComplete.class);
+        //one snapshot per book instead of the reports history
+        BookSnapshot snapshot1 = trader2.expectMsgClass(BookSnapshot.class);
+        BookSnapshot snapshot2 = trader2.expectMsgClass(BookSnapshot.class);
         trader2.expectMsgClass(SubscriptionResponse.class);
+        trader2.expectNoMessage();
 
-        //ER's received by trader1 and trader2 must be the same
-        Assertions.assertEquals(NORResponse, response1);
-        Assertions.assertEquals(MORResponse, response2);
-        Assertions.assertEquals(CORResponse, response3);
+        BookSnapshot bagSnapshot = snapshot1.getInstrument() == Instrument.BAG ? snapshot1 : snapshot2;
+        BookSnapshot bookSnapshot = snapshot1.getInstrument() == Instrument.BAG ? snapshot2 : snapshot1;
+        Assertions.assertEquals(Instrument.BOOK, bookSnapshot.getInstrument());
+        Assertions.assertEquals(0, bookSnapshot.size());
+
+        Assertions.assertEquals(2, bagSnapshot.size());
+        Assertions.assertEquals(1, bagSnapshot.getNumOfBids());
+        Assertions.assertTrue(bagSnapshot.getSequence() > MORResponse.getSequence());
+        Assertions.assertEquals(MORResponse.getOrderID(), bagSnapshot.getOrderID(0));
+        Assertions.assertEquals(MORResponse.getQuantity(), bagSnapshot.getQuantity(0));
+        Assertions.assertEquals(MORResponse.getPriceTicks(), bagSnapshot.getPrice(0));
+        Assertions.assertEquals(MORResponse.getSequence(), bagSnapshot.getOrderSequence(0));
+        Assertions.assertEquals(Side.OFFERS, bagSnapshot.getSide(1));
+        Assertions.assertEquals(NORResponse2.getOrderID(), bagSnapshot.getOrderID(1));
+        Assertions.assertEquals(NORResponse2.getPriceTicks(), bagSnapshot.getPrice(1));
     }
 
     @Test
@@ -405,6 +449,217 @@ public class TestME {
 
     }
 
+    @Test
+    public void testTradeWithPooledOrders() {
+        ActorSystem pooledSystem = ActorSystem.create("pooled", ConfigFactory.parseString(
+                "engine.order-pool.enabled = on\n" +
+                "engine.order-pool.size = 1"));
+        try {
+            final TestKit trader1 = new TestKit(pooledSystem);
+            final TestKit trader2 = new TestKit(pooledSystem);
+            final ActorRef matchEngine = pooledSystem.actorOf(MatchEngine.props());
+
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 2, new Date(), 1), trader1.getRef());
+            trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 2, new Date(), 2), trader2.getRef());
+            trader2.expectMsgClass(ExecReportResponse.class);
+            Assertions.assertEquals(Status.FULLY_EXECUTED, trader2.expectMsgClass(ExecReportResponse.class).getStatus());
+            trader2.expectMsgClass(TradeMessage.class);
+            trader2.expectMsgClass(TransactionComplete.class);
+            Assertions.assertEquals(Status.FULLY_EXECUTED, trader1.expectMsgClass(ExecReportResponse.class).getStatus());
+            trader1.expectMsgClass(TradeMessage.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+
+            //the executed orders are reused for the next ones
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 3, 1, new Date(), 1), trader1.getRef());
+            ExecReportResponse added = trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            Assertions.assertEquals(2, added.getOrderID());
+            Assertions.assertEquals(3, added.getQuantity());
+            Assertions.assertEquals(Status.ACTIVE, added.getStatus());
+
+            matchEngine.tell(new CancelOrderRequest(added.getOrderID(), 1), trader1.getRef());
+            ExecReportResponse canceled = trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            Assertions.assertEquals(2, canceled.getOrderID());
+            Assertions.assertEquals(Status.CANCELED, canceled.getStatus());
+
+            matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 1, 4, new Date(), 2), trader2.getRef());
+            ExecReportResponse reused = trader2.expectMsgClass(ExecReportResponse.class);
+            Assertions.assertEquals(3, reused.getOrderID());
+            Assertions.assertEquals(Side.OFFERS, reused.getSide());
+            Assertions.assertEquals(2, reused.getTraderID());
+        } finally {
+            TestKit.shutdownActorSystem(pooledSystem);
+        }
+    }
+
+    @Test
+    public void testTradeWithSlotOrderStore() {
+        ActorSystem slotSystem = ActorSystem.create("slots", ConfigFactory.parseString(
+                "engine.order-store.type = slots\n" +
+                "engine.order-store.initial-capacity = 1"));
+        try {
+            final TestKit trader1 = new TestKit(slotSystem);
+            final TestKit trader2 = new TestKit(slotSystem);
+            final ActorRef matchEngine = slotSystem.actorOf(MatchEngine.props());
+
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 3, 2, new Date(), 1), trader1.getRef());
+            trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 1), trader1.getRef());
+            ExecReportResponse resting = trader1.expectMsgClass(ExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+
+            matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 2, new Date(), 2), trader2.getRef());
+            Assertions.assertEquals(ExecType.ADD, trader2.expectMsgClass(ExecReportResponse.class).getExecType());
+            Assertions.assertEquals(Status.FULLY_EXECUTED, trader2.expectMsgClass(ExecReportResponse.class).getStatus());
+            trader2.expectMsgClass(TradeMessage.class);
+            trader2.expectMsgClass(TransactionComplete.class);
+            ExecReportResponse filled = trader1.expectMsgClass(ExecReportResponse.class);
+            Assertions.assertEquals(Status.PARTFILLED, filled.getStatus());
+            Assertions.assertEquals(1, filled.getQuantity());
+            trader1.expectMsgClass(TradeMessage.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+
+            //a subscriber gets the orders left in the store's slots
+            matchEngine.tell(new SubscriptionRequest(3), trader2.getRef());
+            BookSnapshot snapshot = trader2.expectMsgClass(BookSnapshot.class);
+            trader2.expectMsgClass(SubscriptionResponse.class);
+            Assertions.assertEquals(2, snapshot.size());
+            Assertions.assertEquals(filled.getOrderID(), snapshot.toOrder(0).getOrderID());
+            Assertions.assertEquals(Status.PARTFILLED, snapshot.toOrder(0).getStatus());
+            Assertions.assertEquals(resting.getOrderID(), snapshot.toOrder(1).getOrderID());
+
+            matchEngine.tell(new MassCancelRequest(1, null, null), trader1.getRef());
+            BatchExecReportResponse canceled = trader1.expectMsgClass(BatchExecReportResponse.class);
+            trader1.expectMsgClass(TransactionComplete.class);
+            Assertions.assertEquals(2, canceled.size());
+            Assertions.assertEquals(Status.CANCELED, canceled.get(0).getStatus());
+        } finally {
+            TestKit.shutdownActorSystem(slotSystem);
+        }
+    }
+
+    @Test
+    public void testAdmissionControl() {
+        ActorSystem throttledSystem = ActorSystem.create("throttled", ConfigFactory.parseString(
+                "engine.admission.enabled = on\n" +
+                "engine.admission.rate = 0.001\n" +
+                "engine.admission.burst = 2"));
+        try {
+            final TestKit trader1 = new TestKit(throttledSystem);
+            final TestKit trader2 = new TestKit(throttledSystem);
+            final ActorRef matchEngine = throttledSystem.actorOf(MatchEngine.props());
+
+            //the rejection is sent when the request is enqueued, it may overtake the answers before it
+            //and names the request it answers. it completes a transaction like the engine's answers do
+            for (int i = 1; i <= 3; i++) {
+                matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 1, null, i), trader1.getRef());
+            }
+            int throttled = 0;
+            int completed = 0;
+            for (Object message : trader1.receiveN(6)) {
+                if (message instanceof ExecReportResponse && ((ExecReportResponse) message).getRejectionReason() == RejectionReason.THROTTLED) {
+                    Assertions.assertEquals(3, ((ExecReportResponse) message).getRequestID());
+                    throttled++;
+                } else if (message instanceof TransactionComplete) {
+                    completed++;
+                }
+            }
+            Assertions.assertEquals(1, throttled);
+            Assertions.assertEquals(3, completed);
+
+            //every trader has a bucket of its own
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 2), trader2.getRef());
+            Assertions.assertEquals(ExecType.ADD, trader2.expectMsgClass(ExecReportResponse.class).getExecType());
+            trader2.expectMsgClass(TransactionComplete.class);
+
+            matchEngine.tell(new EngineMailbox.GetThrottleCounters(), trader2.getRef());
+            EngineMailbox.ThrottleCounters counters = trader2.expectMsgClass(EngineMailbox.ThrottleCounters.class);
+            Assertions.assertEquals(1, counters.getThrottledByRate(1));
+            Assertions.assertEquals(0, counters.getThrottledByRate(2));
+            Assertions.assertEquals(0, counters.getThrottledByDepth(1));
+
+            //a batch takes a token per request, one the bucket can't pay for is rejected whole
+            final TestKit trader3 = new TestKit(throttledSystem);
+            List<Request> requests = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                requests.add(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 3));
+            }
+            matchEngine.tell(new BatchOrderRequest(requests), trader3.getRef());
+            BatchExecReportResponse rejected = trader3.expectMsgClass(BatchExecReportResponse.class);
+            Assertions.assertEquals(3, rejected.size());
+            for (int i = 0; i < rejected.size(); i++) {
+                Assertions.assertEquals(RejectionReason.THROTTLED, rejected.get(i).getRejectionReason());
+            }
+            trader3.expectMsgClass(TransactionComplete.class);
+            matchEngine.tell(new BatchOrderRequest(requests.subList(0, 2)), trader3.getRef());
+            BatchExecReportResponse admitted = trader3.expectMsgClass(BatchExecReportResponse.class);
+            Assertions.assertEquals(2, admitted.size());
+            Assertions.assertEquals(Status.ACTIVE, admitted.get(0).getStatus());
+            trader3.expectMsgClass(TransactionComplete.class);
+
+            matchEngine.tell(new EngineMailbox.GetThrottleCounters(), trader3.getRef());
+            Assertions.assertEquals(3, trader3.expectMsgClass(EngineMailbox.ThrottleCounters.class).getThrottledByRate(3));
+        } finally {
+            TestKit.shutdownActorSystem(throttledSystem);
+        }
+    }
+
+    @Test
+    public void testShardedAdmissionControl() {
+        ActorSystem throttledSystem = ActorSystem.create("throttledShards", ConfigFactory.parseString(
+                "engine.admission.enabled = on\n" +
+                "engine.admission.rate = 0.001\n" +
+                "engine.admission.burst = 2"));
+        try {
+            final TestKit trader = new TestKit(throttledSystem);
+            final ActorRef matchEngine = throttledSystem.actorOf(ShardedMatchEngine.props());
+
+            //the router admits the requests, so the trader's bucket is shared by every shard
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.TV, 1, 1, new Date(), 1), trader.getRef());
+            Assertions.assertEquals(ExecType.ADD, trader.expectMsgClass(ExecReportResponse.class).getExecType());
+            trader.expectMsgClass(TransactionComplete.class);
+            matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), 1), trader.getRef());
+            Assertions.assertEquals(ExecType.ADD, trader.expectMsgClass(ExecReportResponse.class).getExecType());
+            trader.expectMsgClass(TransactionComplete.class);
+            matchEngine.tell(new CancelOrderRequest(0, 1), trader.getRef());
+            Assertions.assertEquals(RejectionReason.THROTTLED, trader.expectMsgClass(ExecReportResponse.class).getRejectionReason());
+            trader.expectMsgClass(TransactionComplete.class);
+
+            matchEngine.tell(new EngineMailbox.GetThrottleCounters(), trader.getRef());
+            Assertions.assertEquals(1, trader.expectMsgClass(EngineMailbox.ThrottleCounters.class).getThrottledByRate(1));
+        } finally {
+            TestKit.shutdownActorSystem(throttledSystem);
+        }
+    }
+
+    @Test
+    public void testAdmissionEvictsIdleTraders() {
+        ActorSystem throttledSystem = ActorSystem.create("evicting", ConfigFactory.parseString(
+                "engine.admission.enabled = on\n" +
+                "engine.admission.rate = 1000000000\n" +
+                "engine.admission.burst = 1\n" +
+                "engine.admission.max-traders = 2"));
+        try {
+            final TestKit trader = new TestKit(throttledSystem);
+            final ActorRef matchEngine = throttledSystem.actorOf(MatchEngine.props());
+
+            //every bucket refills within a nanosecond, so the earlier traders are idle when a new one comes
+            for (int traderID = 1; traderID <= 5; traderID++) {
+                matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1, new Date(), traderID), trader.getRef());
+                Assertions.assertEquals(Status.ACTIVE, trader.expectMsgClass(ExecReportResponse.class).getStatus());
+                trader.expectMsgClass(TransactionComplete.class);
+            }
+            matchEngine.tell(new EngineMailbox.GetThrottleCounters(), trader.getRef());
+            Assertions.assertTrue(trader.expectMsgClass(EngineMailbox.ThrottleCounters.class).getNumOfTraders() <= 2);
+        } finally {
+            TestKit.shutdownActorSystem(throttledSystem);
+        }
+    }
+
     @Test
     public void testTradeMultipleBidsAndOffer() {
         final TestKit trader1 = new TestKit(system);
@@ -521,8 +776,7 @@ public class TestME {
         trader1.expectMsgClass(ExecReportResponse.class);
         trader1.expectMsgClass(TransactionComplete.class);
 
-        subscriber.expectMsgClass(ExecReportResponse.class);
-        subscriber.expectMsgClass(TransactionComplete.class);
+        Assertions.assertEquals(1, subscriber.expectMsgClass(MarketDataBatch.class).size());
 
         matchEngine.tell(request2, trader2.getRef());
 
@@ -535,11 +789,14 @@ public class TestME {
         trader1.expectMsgClass(TradeMessage.class);
         trader1.expectMsgClass(TransactionComplete.class);
 
-        subscriber.expectMsgClass(ExecReportResponse.class);
-        subscriber.expectMsgClass(ExecReportResponse.class);
-        subscriber.expectMsgClass(ExecReportResponse.class);
-        subscriber.expectMsgClass(TradeMessage.class);
-        subscriber.expectMsgClass(TransactionComplete.class);
+        //the whole transaction comes in one batch
+        MarketDataBatch batch = subscriber.expectMsgClass(MarketDataBatch.class);
+        subscriber.expectNoMessage();
+        Assertions.assertEquals(4, batch.size());
+        Assertions.assertEquals(ExecType.ADD, ((ExecReportResponse) batch.get(0)).getExecType());
+        Assertions.assertEquals(ExecType.REMOVE, ((ExecReportResponse) batch.get(1)).getExecType());
+        Assertions.assertEquals(ExecType.REMOVE, ((ExecReportResponse) batch.get(2)).getExecType());
+        Assertions.assertTrue(batch.get(3) instanceof TradeMessage);
     }
 
     @Test
@@ -602,6 +859,29 @@ public class TestME {
         Assertions.assertEquals(offerRequest.getPrice(), tradeMessage1.getTradePrice());
     }
 
+    @Test
+    public void testTradePriceAfterModify() {
+        final TestKit trader1 = new TestKit(system);
+        final TestKit trader2 = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 1, new Date(), 1), trader1.getRef());
+        ExecReportResponse bid = trader1.expectMsgClass(ExecReportResponse.class);
+        trader1.expectMsgClass(TransactionComplete.class);
+
+        NewOrderRequest offerRequest = new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 2, new Date(), 2);
+        matchEngine.tell(offerRequest, trader2.getRef());
+        trader2.expectMsgClass(ExecReportResponse.class);
+        trader2.expectMsgClass(TransactionComplete.class);
+
+        // the bid is older by order ID but the offer rested first at the bid's new price
+        matchEngine.tell(new ModifyOrderRequest(bid.getOrderID(), 1, 2, 3), trader1.getRef());
+        TradeMessage tradeMessage = (TradeMessage) trader1.fishForMessage(Duration.ofSeconds(3), "trade",
+                message -> message instanceof TradeMessage);
+
+        Assertions.assertEquals(offerRequest.getPrice(), tradeMessage.getTradePrice());
+    }
+
     @Test
     public void testCancellingOrderWhenItIsBeingExecuted() {
         final TestKit trader1 = new TestKit(system);
@@ -662,25 +942,327 @@ public class TestME {
         nonSubscriber.expectMsgClass(ExecReportResponse.class);
         nonSubscriber.expectMsgClass(TransactionComplete.class);
 
-        system.stop(nonSubscriber.getTestActor());
-
         matchEngine.tell(new SubscriptionRequest(2), subscriber.getRef());
-        subscriber.expectMsgClass(ExecReportResponse.class);
-        subscriber.expectMsgClass(TransactionComplete.class);
-        subscriber.expectMsgClass(ExecReportResponse.class);
-        subscriber.expectMsgClass(TransactionComplete.class);
+        Assertions.assertEquals(1, subscriber.expectMsgClass(BookSnapshot.class).size());
+        Assertions.assertEquals(1, subscriber.expectMsgClass(BookSnapshot.class).size());
+        subscriber.expectMsgClass(SubscriptionResponse.class);
 
-        ExecReportResponse response1 = subscriber.expectMsgClass(ExecReportResponse.class);
-        subscriber.expectMsgClass(TransactionComplete.class);
-        ExecReportResponse response2 = subscriber.expectMsgClass(ExecReportResponse.class);
-        subscriber.expectMsgClass(TransactionComplete.class);
+        system.stop(nonSubscriber.getTestActor());
 
-        subscriber.expectMsgClass(SubscriptionResponse.class);
+        MarketDataBatch batch = subscriber.expectMsgClass(MarketDataBatch.class);
         subscriber.expectNoMessage();
+        Assertions.assertEquals(2, batch.size());
+        ExecReportResponse response1 = (ExecReportResponse) batch.get(0);
+        ExecReportResponse response2 = (ExecReportResponse) batch.get(1);
 
         Assertions.assertEquals(ExecType.REMOVE, response1.getExecType());
         Assertions.assertEquals(ExecType.REMOVE, response2.getExecType());
+        Assertions.assertEquals(Status.CANCELED, response1.getStatus());
         Assertions.assertTrue(nonSubscriber.getTestActor().isTerminated());
 
+        //a later subscriber gets empty books
+        final TestKit subscriber2 = new TestKit(system);
+        matchEngine.tell(new SubscriptionRequest(3), subscriber2.getRef());
+        Assertions.assertEquals(0, subscriber2.expectMsgClass(BookSnapshot.class).size());
+        Assertions.assertEquals(0, subscriber2.expectMsgClass(BookSnapshot.class).size());
+        subscriber2.expectMsgClass(SubscriptionResponse.class);
+    }
+
+    @Test
+    public void testTraderForgottenAfterLastOrder() {
+        final TestKit trader = new TestKit(system);
+        final TestKit newTrader = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 2, new Date(), 1), trader.getRef());
+        int orderID1 = trader.expectMsgClass(ExecReportResponse.class).getOrderID();
+        trader.expectMsgClass(TransactionComplete.class);
+        matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 3, new Date(), 1), trader.getRef());
+        int orderID2 = trader.expectMsgClass(ExecReportResponse.class).getOrderID();
+        trader.expectMsgClass(TransactionComplete.class);
+
+        //the trader keeps its identity while it has a live order
+        matchEngine.tell(new CancelOrderRequest(orderID1, 1), trader.getRef());
+        Assertions.assertEquals(ExecType.REMOVE, trader.expectMsgClass(ExecReportResponse.class).getExecType());
+        trader.expectMsgClass(TransactionComplete.class);
+        matchEngine.tell(new CancelOrderRequest(orderID2, 1), trader.getRef());
+        Assertions.assertEquals(ExecType.REMOVE, trader.expectMsgClass(ExecReportResponse.class).getExecType());
+        trader.expectMsgClass(TransactionComplete.class);
+
+        //after its last order the ID is free for another actor
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 2, new Date(), 1), newTrader.getRef());
+        int orderID3 = newTrader.expectMsgClass(ExecReportResponse.class).getOrderID();
+        newTrader.expectMsgClass(TransactionComplete.class);
+
+        matchEngine.tell(new CancelOrderRequest(orderID3, 1), trader.getRef());
+        Assertions.assertEquals(RejectionReason.INVALID_TRADER_ID, trader.expectMsgClass(ExecReportResponse.class).getRejectionReason());
+    }
+
+    @Test
+    public void testMassCancelRequest() {
+        final TestKit trader = new TestKit(system);
+        final TestKit other = new TestKit(system);
+        final TestKit subscriber = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 1, new Date(), 1), trader.getRef());
+        matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 3, new Date(), 1), trader.getRef());
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BOOK, 2, 2, new Date(), 1), trader.getRef());
+        for (int i = 0; i < 3; i++) {
+            trader.expectMsgClass(ExecReportResponse.class);
+            trader.expectMsgClass(TransactionComplete.class);
+        }
+        matchEngine.tell(new SubscriptionRequest(2), subscriber.getRef());
+        subscriber.expectMsgClass(BookSnapshot.class);
+        subscriber.expectMsgClass(BookSnapshot.class);
+        subscriber.expectMsgClass(SubscriptionResponse.class);
+
+        matchEngine.tell(new MassCancelRequest(1), other.getRef());
+        Assertions.assertEquals(RejectionReason.INVALID_TRADER_ID, other.expectMsgClass(ExecReportResponse.class).getRejectionReason());
+
+        //only the bids of one instrument
+        matchEngine.tell(new MassCancelRequest(1, Instrument.BAG, Side.BIDS), trader.getRef());
+        BatchExecReportResponse reports = trader.expectMsgClass(BatchExecReportResponse.class);
+        Assertions.assertEquals(1, reports.size());
+        Assertions.assertEquals(ExecType.REMOVE, reports.get(0).getExecType());
+        Assertions.assertEquals(Side.BIDS, reports.get(0).getSide());
+        trader.expectMsgClass(TransactionComplete.class);
+        Assertions.assertEquals(1, subscriber.expectMsgClass(MarketDataBatch.class).size());
+
+        //everything else, in one message to the trader and one to each subscriber
+        matchEngine.tell(new MassCancelRequest(1), trader.getRef());
+        Assertions.assertEquals(2, trader.expectMsgClass(BatchExecReportResponse.class).size());
+        trader.expectMsgClass(TransactionComplete.class);
+        Assertions.assertEquals(2, subscriber.expectMsgClass(MarketDataBatch.class).size());
+
+        //nothing left is not an error
+        matchEngine.tell(new MassCancelRequest(1), trader.getRef());
+        Assertions.assertEquals(0, trader.expectMsgClass(BatchExecReportResponse.class).size());
+        trader.expectMsgClass(TransactionComplete.class);
+        subscriber.expectNoMessage();
+    }
+
+    @Test
+    public void testImmediateOrders() {
+        final TestKit seller = new TestKit(system);
+        final TestKit buyer = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+        matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 1, new Date(), 1), seller.getRef());
+        matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 3, 2, new Date(), 1), seller.getRef());
+        for (int i = 0; i < 2; i++) {
+            seller.expectMsgClass(ExecReportResponse.class);
+            seller.expectMsgClass(TransactionComplete.class);
+        }
+
+        //IOC takes what crosses and drops the rest
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 4, 1, new Date(), 2, TimeInForce.IMMEDIATE_OR_CANCEL), buyer.getRef());
+        Assertions.assertEquals(2, buyer.expectMsgClass(TradeMessage.class).getTradeQuantity());
+        ExecReportResponse ioc = buyer.expectMsgClass(ExecReportResponse.class);
+        Assertions.assertEquals(ExecType.REMOVE, ioc.getExecType());
+        Assertions.assertEquals(Status.CANCELED, ioc.getStatus());
+        Assertions.assertEquals(2, ioc.getQuantity());
+        buyer.expectMsgClass(TransactionComplete.class);
+        Assertions.assertEquals(Status.FULLY_EXECUTED, seller.expectMsgClass(ExecReportResponse.class).getStatus());
+        seller.expectMsgClass(TradeMessage.class);
+        seller.expectMsgClass(TransactionComplete.class);
+
+        //FOK trades nothing unless it fills whole
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 4, 2, new Date(), 2, TimeInForce.FILL_OR_KILL), buyer.getRef());
+        ExecReportResponse killed = buyer.expectMsgClass(ExecReportResponse.class);
+        Assertions.assertEquals(Status.CANCELED, killed.getStatus());
+        Assertions.assertEquals(4, killed.getQuantity());
+        buyer.expectMsgClass(TransactionComplete.class);
+        seller.expectNoMessage();
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 3, 2, new Date(), 2, TimeInForce.FILL_OR_KILL), buyer.getRef());
+        Assertions.assertEquals(3, buyer.expectMsgClass(TradeMessage.class).getTradeQuantity());
+        ExecReportResponse filled = buyer.expectMsgClass(ExecReportResponse.class);
+        Assertions.assertEquals(Status.FULLY_EXECUTED, filled.getStatus());
+        Assertions.assertEquals(0, filled.getQuantity());
+        buyer.expectMsgClass(TransactionComplete.class);
+        Assertions.assertEquals(Status.FULLY_EXECUTED, seller.expectMsgClass(ExecReportResponse.class).getStatus());
+        seller.expectMsgClass(TradeMessage.class);
+        seller.expectMsgClass(TransactionComplete.class);
+    }
+
+    @Test
+    public void testDepthSubscriptionConflation() {
+        final TestKit trader = new TestKit(system);
+        final TestKit depthSubscriber = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+
+        matchEngine.tell(new DepthSubscriptionRequest(2, 1), depthSubscriber.getRef());
+        depthSubscriber.expectMsgClass(SubscriptionResponse.class);
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 5, 2, new Date(), 1), trader.getRef());
+        MarketDepth depth = depthSubscriber.expectMsgClass(MarketDepth.class);
+        Assertions.assertEquals(1, depth.getNumOfBidLevels());
+        Assertions.assertEquals(0, depth.getNumOfOfferLevels());
+        Assertions.assertEquals(20, depth.getBidPrice(0));
+        Assertions.assertEquals(5, depth.getBidQuantity(0));
+
+        //nothing more until the subscriber acknowledges, then only the latest state
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 3, 2, new Date(), 1), trader.getRef());
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1.9, new Date(), 1), trader.getRef());
+        depthSubscriber.expectNoMessage(Duration.ofMillis(200));
+        matchEngine.tell(new MarketDepthAck(), depthSubscriber.getRef());
+        depth = depthSubscriber.expectMsgClass(MarketDepth.class);
+        Assertions.assertEquals(1, depth.getNumOfBidLevels());
+        Assertions.assertEquals(8, depth.getBidQuantity(0));
+        Assertions.assertEquals(2, depth.getBidOrders(0));
+        matchEngine.tell(new MarketDepthAck(), depthSubscriber.getRef());
+
+        //a change below the subscribed depth isn't sent
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 1.8, new Date(), 1), trader.getRef());
+        depthSubscriber.expectNoMessage(Duration.ofMillis(200));
+
+        matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 2.5, new Date(), 1), trader.getRef());
+        depth = depthSubscriber.expectMsgClass(MarketDepth.class);
+        Assertions.assertEquals(25, depth.getOfferPrice(0));
+        Assertions.assertEquals(2, depth.getOfferQuantity(0));
+    }
+
+    @Test
+    public void testShardedEngineTradeAndCancel() {
+        final TestKit trader1 = new TestKit(system);
+        final TestKit trader2 = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(ShardedMatchEngine.props());
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BAG, 2, 2, new Date(), 1), trader1.getRef());
+        ExecReportResponse bagResponse = trader1.expectMsgClass(ExecReportResponse.class);
+        trader1.expectMsgClass(TransactionComplete.class);
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.BOOK, 2, 2, new Date(), 1), trader1.getRef());
+        ExecReportResponse bookResponse = trader1.expectMsgClass(ExecReportResponse.class);
+        trader1.expectMsgClass(TransactionComplete.class);
+        Assertions.assertNotEquals(bagResponse.getOrderID(), bookResponse.getOrderID());
+
+        matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 2, new Date(), 2), trader2.getRef());
+        trader2.expectMsgClass(ExecReportResponse.class);
+        ExecReportResponse response2 = trader2.expectMsgClass(ExecReportResponse.class);
+        trader2.expectMsgClass(TradeMessage.class);
+        trader2.expectMsgClass(TransactionComplete.class);
+
+        ExecReportResponse response1 = trader1.expectMsgClass(ExecReportResponse.class);
+        trader1.expectMsgClass(TradeMessage.class);
+        trader1.expectMsgClass(TransactionComplete.class);
+        Assertions.assertEquals(Status.FULLY_EXECUTED, response1.getStatus());
+        Assertions.assertEquals(Status.FULLY_EXECUTED, response2.getStatus());
+
+        //cancel is routed to the BOOK shard by order ID
+        matchEngine.tell(new CancelOrderRequest(bookResponse.getOrderID(), 1), trader1.getRef());
+        ExecReportResponse cancelResponse = trader1.expectMsgClass(ExecReportResponse.class);
+        trader1.expectMsgClass(TransactionComplete.class);
+        Assertions.assertEquals(Status.CANCELED, cancelResponse.getStatus());
+        Assertions.assertEquals(Instrument.BOOK, cancelResponse.getInstrument());
+
+        //trader2 can't touch trader1's order
+        matchEngine.tell(new CancelOrderRequest(bookResponse.getOrderID(), 1), trader2.getRef());
+        ExecReportResponse rejection = trader2.expectMsgClass(ExecReportResponse.class);
+        Assertions.assertEquals(RejectionReason.INVALID_TRADER_ID, rejection.getRejectionReason());
+    }
+
+    @Test
+    public void testShardedEngineSubscription() {
+        final TestKit trader = new TestKit(system);
+        final TestKit subscriber = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(ShardedMatchEngine.props());
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.TV, 2, 2, new Date(), 1), trader.getRef());
+        trader.expectMsgClass(ExecReportResponse.class);
+        trader.expectMsgClass(TransactionComplete.class);
+
+        matchEngine.tell(new SubscriptionRequest(2), subscriber.getRef());
+        BookSnapshot snapshot = subscriber.expectMsgClass(BookSnapshot.class);
+        subscriber.expectMsgClass(SubscriptionResponse.class);
+        subscriber.expectNoMessage();
+        Assertions.assertEquals(Instrument.TV, snapshot.getInstrument());
+        Assertions.assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    public void testBatchOrderRequest() {
+        final TestKit trader = new TestKit(system);
+        final TestKit subscriber = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(MatchEngine.props());
+        matchEngine.tell(new SubscriptionRequest(2), subscriber.getRef());
+        subscriber.expectMsgClass(SubscriptionResponse.class);
+
+        //the bid and the offer cross, but only trade once the whole batch is applied
+        matchEngine.tell(new BatchOrderRequest(Arrays.asList(
+                new NewOrderRequest(Side.BIDS, Instrument.BAG, 5, 2, new Date(), 1),
+                new NewOrderRequest(Side.OFFERS, Instrument.BAG, 3, 2, new Date(), 1),
+                new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, -1, new Date(), 1),
+                new CancelOrderRequest(42, 1),
+                new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 2, new Date(), 1, TimeInForce.IMMEDIATE_OR_CANCEL))), trader.getRef());
+
+        BatchExecReportResponse reports = trader.expectMsgClass(BatchExecReportResponse.class);
+        Assertions.assertEquals(5, reports.size());
+        Assertions.assertEquals(ExecType.ADD, reports.get(0).getExecType());
+        Assertions.assertEquals(5, reports.get(0).getQuantity());
+        Assertions.assertEquals(ExecType.ADD, reports.get(1).getExecType());
+        Assertions.assertEquals(RejectionReason.INVALID_PRICE, reports.get(2).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.INVALID_ORDER_ID, reports.get(3).getRejectionReason());
+        Assertions.assertEquals(RejectionReason.INVALID_TIME_IN_FORCE, reports.get(4).getRejectionReason());
+
+        ExecReportResponse bidFill = trader.expectMsgClass(ExecReportResponse.class);
+        Assertions.assertEquals(Status.PARTFILLED, bidFill.getStatus());
+        Assertions.assertEquals(Status.FULLY_EXECUTED, trader.expectMsgClass(ExecReportResponse.class).getStatus());
+        //the trader is on both sides of the trade
+        Assertions.assertEquals(3, trader.expectMsgClass(TradeMessage.class).getTradeQuantity());
+        trader.expectMsgClass(TradeMessage.class);
+        trader.expectMsgClass(TransactionComplete.class);
+        trader.expectNoMessage();
+
+        //subscribers see the batch as one transaction
+        MarketDataBatch batch = subscriber.expectMsgClass(MarketDataBatch.class);
+        Assertions.assertEquals(5, batch.size());
+        Assertions.assertInstanceOf(TradeMessage.class, batch.get(4));
+        subscriber.expectNoMessage();
+    }
+
+    @Test
+    public void testShardedMassCancelRequest() {
+        final TestKit trader = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(ShardedMatchEngine.props());
+
+        matchEngine.tell(new NewOrderRequest(Side.BIDS, Instrument.TV, 1, 2, new Date(), 1), trader.getRef());
+        trader.expectMsgClass(ExecReportResponse.class);
+        trader.expectMsgClass(TransactionComplete.class);
+        matchEngine.tell(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 1, 2, new Date(), 1), trader.getRef());
+        trader.expectMsgClass(ExecReportResponse.class);
+        trader.expectMsgClass(TransactionComplete.class);
+
+        //the shards' reports come back as one batch
+        matchEngine.tell(new MassCancelRequest(1), trader.getRef());
+        BatchExecReportResponse reports = trader.expectMsgClass(BatchExecReportResponse.class);
+        Assertions.assertEquals(2, reports.size());
+        Assertions.assertEquals(ExecType.REMOVE, reports.get(0).getExecType());
+        Assertions.assertEquals(ExecType.REMOVE, reports.get(1).getExecType());
+        trader.expectMsgClass(TransactionComplete.class);
+        trader.expectNoMessage(Duration.ofMillis(200));
+    }
+
+    @Test
+    public void testShardedBatchOrderRequest() {
+        final TestKit trader = new TestKit(system);
+        final ActorRef matchEngine = system.actorOf(ShardedMatchEngine.props());
+
+        //the shards' answers and the router's rejection come back as one batch in the order of the requests
+        matchEngine.tell(new BatchOrderRequest(Arrays.asList(
+                new NewOrderRequest(Side.BIDS, Instrument.TV, 1, 2, new Date(), 1),
+                new CancelOrderRequest(0, 2),
+                new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 2, new Date(), 1))), trader.getRef());
+        BatchExecReportResponse reports = trader.expectMsgClass(BatchExecReportResponse.class);
+        Assertions.assertEquals(3, reports.size());
+        Assertions.assertEquals(ExecType.ADD, reports.get(0).getExecType());
+        Assertions.assertEquals(Instrument.TV, reports.get(0).getInstrument());
+        Assertions.assertEquals(ExecType.REJECTED, reports.get(1).getExecType());
+        Assertions.assertEquals(RejectionReason.INVALID_TRADER_ID, reports.get(1).getRejectionReason());
+        Assertions.assertEquals(ExecType.ADD, reports.get(2).getExecType());
+        Assertions.assertEquals(Instrument.BAG, reports.get(2).getInstrument());
+        trader.expectMsgClass(TransactionComplete.class);
+        trader.expectNoMessage(Duration.ofMillis(200));
     }
 }
@@ -0,0 +1,70 @@
+import akka.actor.ActorSystem;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.testkit.javadsl.TestKit;
+import enums.*;
+import messages.*;
+import order.Order;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class TestMessageCodec {
+
+    private static List<Object> messages() {
+        Order order = new Order(3, 42, Side.OFFERS, Instrument.BOOK);
+        order.setQuantity(7);
+        order.setPrice(51);
+        order.setStatus(Status.PARTFILLED);
+        order.setSequence(99);
+        order.setTimestamp(1_700_000_000_000_000_000L);
+        return Arrays.asList(
+                new NewOrderRequest(Side.BIDS, Instrument.TV, 5, 12.3, new Date(1_700_000_000_000L), 1),
+                new NewOrderRequest(Side.OFFERS, Instrument.BAG, 1, 1.05, null, 2),
+                new NewOrderRequest(Side.BIDS, Instrument.BOOK, 3, 7, null, 2, TimeInForce.FILL_OR_KILL),
+                new ModifyOrderRequest(42, 3, 4, 2.55, 7),
+                new CancelOrderRequest(42, 3),
+                new ExecReportResponse(order, ExecType.UPDATE),
+                new ExecReportResponse(new ModifyOrderRequest(42, 3, 4, -1, 8), RejectionReason.INVALID_PRICE),
+                new TradeMessage(41, 42, 51, 2, Instrument.BOOK),
+                new MassCancelRequest(3, Instrument.TV, null),
+                new BatchOrderRequest(Arrays.asList(new CancelOrderRequest(42, 3), new ModifyOrderRequest(41, 3, 1, 5.1))),
+                new BatchExecReportResponse(new ExecReportResponse[]{new ExecReportResponse(order, ExecType.ADD)}));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        List<Object> messages = messages();
+        ByteBuffer buffer = ByteBuffer.allocate(messages.stream().mapToInt(MessageCodec::encodedSize).sum());
+        for (Object message : messages) {
+            MessageCodec.encode(message, buffer);
+        }
+        buffer.flip();
+        for (Object message : messages) {
+            Assertions.assertEquals(message.toString(), MessageCodec.decode(buffer).toString());
+        }
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testAkkaSerializer() {
+        ActorSystem system = ActorSystem.create("codec");
+        try {
+            Serialization serialization = SerializationExtension.get(system);
+            for (Object message : messages()) {
+                Assertions.assertEquals(MessageSerializer.IDENTIFIER, serialization.findSerializerFor(message).identifier());
+                byte[] bytes = serialization.serialize(message).get();
+                Assertions.assertEquals(MessageCodec.encodedSize(message), bytes.length);
+                Object decoded = serialization.deserialize(bytes, MessageSerializer.IDENTIFIER, "").get();
+                Assertions.assertEquals(message.toString(), decoded.toString());
+            }
+        } finally {
+            TestKit.shutdownActorSystem(system);
+        }
+    }
+
+}
@@ -0,0 +1,360 @@
+import enums.ExecType;
+import enums.Instrument;
+import enums.Side;
+import enums.Status;
+import enums.TimeInForce;
+import messages.BookSnapshot;
+import messages.ExecReportResponse;
+import messages.ModifyOrderRequest;
+import messages.NewOrderRequest;
+import messages.TradeMessage;
+import order.MEOrderBook;
+import order.ObjectOrderMatcher;
+import order.Order;
+import order.OrderMatcher;
+import order.OrderPool;
+import order.OrderStore;
+import order.SlotOrderBook;
+import order.SlotOrderMatcher;
+import order.TraderOrderBook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class TestOrderBook {
+
+    private static final Object[] sent = new Object[3];
+
+    private static Order order(int orderID, Side side, long price, int quantity) {
+        Order order = new Order(1, orderID, side, Instrument.BAG);
+        order.setPrice(price);
+        order.setQuantity(quantity);
+        order.setSequence(orderID);
+        return order;
+    }
+
+    @Test
+    public void testPriceTimePriority() {
+        MEOrderBook book = new MEOrderBook(Instrument.BAG);
+        book.addOrder(order(0, Side.BIDS, 2, 1));
+        book.addOrder(order(1, Side.BIDS, 3, 1));
+        book.addOrder(order(2, Side.BIDS, 3, 1));
+        book.addOrder(order(3, Side.OFFERS, 5, 1));
+        book.addOrder(order(4, Side.OFFERS, 4, 1));
+
+        Assertions.assertEquals(3, book.getBids().size());
+        Assertions.assertEquals(1, book.getBids().get(0).getOrderID());
+        Assertions.assertEquals(2, book.getBids().get(1).getOrderID());
+        Assertions.assertEquals(0, book.getBids().get(2).getOrderID());
+        Assertions.assertEquals(4, book.getOffers().get(0).getOrderID());
+        Assertions.assertEquals(2, book.getBids().getLevels().size());
+        Assertions.assertEquals(2, book.getBids().getBestLevel().getQuantity());
+    }
+
+    @Test
+    public void testCancelAndModify() {
+        MEOrderBook book = new MEOrderBook(Instrument.BAG);
+        book.addOrder(order(0, Side.BIDS, 3, 1));
+        book.addOrder(order(1, Side.BIDS, 3, 1));
+        book.addOrder(order(2, Side.BIDS, 2, 1));
+
+        book.cancelOrder(0);
+        Assertions.assertEquals(1, book.getBids().get(0).getOrderID());
+
+        book.cancelOrder(1);
+        Assertions.assertEquals(2, book.getBids().get(0).getOrderID());
+        Assertions.assertEquals(1, book.getBids().getLevels().size());
+
+        book.modifyOrder(2, 4, 1, 10);
+        Assertions.assertEquals(1, book.getBids().size());
+        Assertions.assertEquals(1, book.getBids().get(0).getPrice());
+        Assertions.assertEquals(4, book.getBids().getBestLevel().getQuantity());
+
+        book.fullyExecuteOrder(2);
+        Assertions.assertTrue(book.getBids().isEmpty());
+        Assertions.assertNull(book.getBids().getBest());
+    }
+
+    @Test
+    public void testTimePriorityRules() {
+        MEOrderBook book = new MEOrderBook(Instrument.BAG);
+        book.addOrder(order(0, Side.OFFERS, 3, 5));
+        book.addOrder(order(1, Side.OFFERS, 3, 5));
+        book.addOrder(order(2, Side.OFFERS, 3, 5));
+
+        //partial fill and quantity decrease keep the place
+        book.partFillOrder(0, 2);
+        Assertions.assertFalse(book.modifyOrder(1, 4, 3, 10), "sequence taken");
+        Assertions.assertEquals(0, book.getOffers().get(0).getOrderID());
+        Assertions.assertEquals(1, book.getOffers().get(1).getOrderID());
+        Assertions.assertEquals(1, book.getOffers().get(1).getSequence());
+        Assertions.assertEquals(11, book.getOffers().getBestLevel().getQuantity());
+
+        //quantity increase loses the place
+        Assertions.assertTrue(book.modifyOrder(0, 3, 3, 11), "sequence not taken");
+        Assertions.assertEquals(1, book.getOffers().get(0).getOrderID());
+        Assertions.assertEquals(0, book.getOffers().get(2).getOrderID());
+        Assertions.assertEquals(11, book.getOffers().get(2).getSequence());
+
+        //price change loses the place
+        Assertions.assertTrue(book.modifyOrder(1, 4, 2, 12), "sequence not taken");
+        book.modifyOrder(1, 4, 3, 13);
+        Assertions.assertEquals(2, book.getOffers().get(0).getOrderID());
+        Assertions.assertEquals(1, book.getOffers().get(2).getOrderID());
+
+        Assertions.assertTrue(book.getOffers().get(0).compareTo(book.getOffers().get(1)) > 0);
+        Assertions.assertEquals(0, book.getOffers().get(0).compareTo(book.getOffers().get(0)));
+    }
+
+    @Test
+    public void testLoadSnapshot() {
+        MEOrderBook book = new MEOrderBook(Instrument.BAG);
+        book.addOrder(order(0, Side.BIDS, 2, 1));
+        book.addOrder(order(1, Side.BIDS, 3, 2));
+        book.addOrder(order(2, Side.BIDS, 3, 3));
+        book.addOrder(order(3, Side.OFFERS, 4, 4));
+
+        TraderOrderBook replica = new TraderOrderBook(Instrument.BAG);
+        replica.addOrder(order(7, Side.OFFERS, 9, 1));
+        replica.loadSnapshot(new BookSnapshot(Instrument.BAG, 4, book.getBids(), book.getOffers()));
+
+        Assertions.assertEquals(4, replica.getOrders().size());
+        Assertions.assertEquals(3, replica.getBids().size());
+        Assertions.assertEquals(1, replica.getBids().get(0).getOrderID());
+        Assertions.assertEquals(2, replica.getBids().get(1).getOrderID());
+        Assertions.assertEquals(0, replica.getBids().get(2).getOrderID());
+        Assertions.assertEquals(5, replica.getBids().getBestLevel().getQuantity());
+        Assertions.assertEquals(3, replica.getOffers().getBest().getOrderID());
+    }
+
+
+    @Test
+    public void testTraderBookDeltas() {
+        TraderOrderBook replica = new TraderOrderBook(Instrument.BAG);
+        replica.addOrder(new ExecReportResponse(order(0, Side.BIDS, 2, 1), ExecType.ADD));
+        replica.addOrder(new ExecReportResponse(order(1, Side.BIDS, 3, 1), ExecType.ADD));
+        replica.addOrder(new ExecReportResponse(order(2, Side.OFFERS, 5, 4), ExecType.ADD));
+        Assertions.assertEquals(1, replica.getBestBid().getOrderID());
+        Assertions.assertEquals(2, replica.getBestOffer().getOrderID());
+
+        //a part fill keeps the sequence and the place in the queue
+        replica.modifyOrder(new ExecReportResponse(order(2, Side.OFFERS, 5, 1), ExecType.UPDATE));
+        Assertions.assertEquals(1, replica.getOffers().getBestLevel().getQuantity());
+
+        //a price change comes with a new sequence
+        Order moved = order(0, Side.BIDS, 4, 1);
+        moved.setSequence(7);
+        replica.modifyOrder(new ExecReportResponse(moved, ExecType.UPDATE));
+        Assertions.assertEquals(0, replica.getBestBid().getOrderID());
+        Assertions.assertEquals(4, replica.getBestBid().getPrice());
+
+        replica.cancelOrder(new ExecReportResponse(moved, ExecType.REMOVE));
+        replica.cancelOrder(new ExecReportResponse(order(2, Side.OFFERS, 5, 1), ExecType.REMOVE));
+        Assertions.assertEquals(1, replica.getBestBid().getOrderID());
+        Assertions.assertNull(replica.getBestOffer());
+        Assertions.assertEquals(1, replica.getOrders().size());
+    }
+
+    @Test
+    public void testSlotOrderBook() {
+        OrderStore store = new OrderStore(2);
+        SlotOrderBook book = new SlotOrderBook(store, Instrument.BAG);
+        int first = book.addOrder(0, 1, Side.BIDS, 1, 3, 0);
+        int second = book.addOrder(1, 1, Side.BIDS, 2, 3, 1);
+        int third = book.addOrder(2, 1, Side.BIDS, 1, 2, 2);
+        book.addOrder(3, 1, Side.OFFERS, 1, 4, 3);
+
+        Assertions.assertEquals(first, book.getBids().getBest());
+        Assertions.assertEquals(second, book.getBids().getNext(first));
+        Assertions.assertEquals(3, book.getBids().getQuantity(3));
+        Assertions.assertEquals(2, book.getBids().getNumOfLevels());
+        Assertions.assertEquals(3, store.getOrderID(book.getOffers().getBest()));
+
+        book.cancelOrder(first);
+        store.free(first);
+        Assertions.assertEquals(OrderStore.NO_SLOT, store.slotOf(0));
+        Assertions.assertEquals(second, book.getBids().getBest());
+
+        //a freed slot is reused, and a price change goes to the back of the new level
+        int reused = book.addOrder(4, 2, Side.BIDS, 5, 2, 4);
+        Assertions.assertEquals(first, reused);
+        Assertions.assertTrue(book.modifyOrder(second, 2, 2, 5), "sequence not taken");
+        Assertions.assertEquals(third, book.getBids().getBest());
+        Assertions.assertEquals(second, book.getBids().getNext(reused));
+        Assertions.assertEquals(8, book.getBids().getQuantity(2));
+
+        book.partFillOrder(third, 0);
+        book.fullyExecuteOrder(third);
+        Assertions.assertEquals(Status.FULLY_EXECUTED, store.getStatus(third));
+        Assertions.assertEquals(reused, book.getBids().getBest());
+        Assertions.assertEquals(2, book.getBids().size());
+        Assertions.assertEquals(4, store.size());
+    }
+
+    @Test
+    public void testSlotOrderMatcherMatchesObjectOrderMatcher() {
+        OrderMatcher objects = new ObjectOrderMatcher(new OrderPool(16));
+        OrderMatcher slots = new SlotOrderMatcher(new OrderPool(16), 4);
+        List<String> objectEvents = new ArrayList<>();
+        List<String> slotEvents = new ArrayList<>();
+        Random random = new Random(7);
+        Instrument[] instruments = {Instrument.BAG, Instrument.TV};
+        for (int orderID = 0; orderID < 5_000; orderID++) {
+            int traderID = random.nextInt(3);
+            Instrument instrument = instruments[random.nextInt(2)];
+            int action = random.nextInt(10);
+            if (action < 5) {
+                TimeInForce timeInForce = action == 0 ? TimeInForce.IMMEDIATE_OR_CANCEL : action == 1 ? TimeInForce.FILL_OR_KILL : null;
+                NewOrderRequest request = new NewOrderRequest(random.nextBoolean() ? Side.BIDS : Side.OFFERS, instrument,
+                        1 + random.nextInt(10), 10 + random.nextInt(10), null, traderID, timeInForce);
+                apply(objects, request, orderID, objectEvents);
+                apply(slots, request, orderID, slotEvents);
+            } else if (action < 8) {
+                int restingID = random.nextInt(orderID + 1);
+                Assertions.assertEquals(objects.getInstrument(restingID), slots.getInstrument(restingID));
+                if (objects.getInstrument(restingID) == null) continue;
+                ModifyOrderRequest request = new ModifyOrderRequest(restingID, objects.getTraderID(restingID), 1 + random.nextInt(10), 10 + random.nextInt(10));
+                long sequence = objects.getNumOfSequence();
+                Order modified = objects.modifyOrder(request);
+                // only a modify that loses priority takes a sequence
+                Assertions.assertEquals(modified.getSequence() == sequence ? sequence + 1 : sequence, objects.getNumOfSequence());
+                objectEvents.add(report(modified, ExecType.UPDATE));
+                slotEvents.add(report(slots.modifyOrder(request), ExecType.UPDATE));
+                objects.match(objects.getInstrument(restingID), (bid, offer, trade) -> addTrade(objectEvents, bid, offer, trade));
+                slots.match(slots.getInstrument(restingID), (bid, offer, trade) -> addTrade(slotEvents, bid, offer, trade));
+            } else if (action < 9) {
+                int restingID = random.nextInt(orderID + 1);
+                if (objects.getInstrument(restingID) == null) continue;
+                objectEvents.add(report(objects.cancelOrder(restingID), ExecType.REMOVE));
+                slotEvents.add(report(slots.cancelOrder(restingID), ExecType.REMOVE));
+            } else {
+                Side side = random.nextBoolean() ? Side.BIDS : null;
+                cancelOrders(objects, traderID, instrument, side, objectEvents);
+                cancelOrders(slots, traderID, instrument, side, slotEvents);
+            }
+            Assertions.assertEquals(objects.getNumOfOrders(), slots.getNumOfOrders());
+            Assertions.assertEquals(objects.getNumOfSequence(), slots.getNumOfSequence());
+        }
+
+        Assertions.assertEquals(objectEvents, slotEvents);
+        Assertions.assertEquals(new HashSet<>(objects.getTraderIDs()), new HashSet<>(slots.getTraderIDs()));
+        for (Instrument instrument : instruments) {
+            BookSnapshot objectBook = objects.snapshot(instrument);
+            BookSnapshot slotBook = slots.snapshot(instrument);
+            Assertions.assertEquals(objectBook.size(), slotBook.size());
+            for (int i = 0; i < objectBook.size(); i++) {
+                Assertions.assertEquals(report(objectBook.toOrder(i), ExecType.ADD), report(slotBook.toOrder(i), ExecType.ADD));
+            }
+            Assertions.assertTrue(objects.depth(instrument, 5).sameLevels(slots.depth(instrument, 5)));
+        }
+    }
+
+    private static void apply(OrderMatcher matcher, NewOrderRequest request, int orderID, List<String> events) {
+        if (request.getTimeInForce().isImmediate()) {
+            Order order = matcher.matchImmediate(request, orderID, (resting, trade) -> {
+                events.add(report(resting));
+                events.add(trade.toString());
+            });
+            events.add(report(order, ExecType.REMOVE));
+            matcher.release(order);
+            return;
+        }
+        events.add(report(matcher.addOrder(request, orderID), ExecType.ADD));
+        matcher.match(request.getInstrument(), (bid, offer, trade) -> addTrade(events, bid, offer, trade));
+    }
+
+    private static void cancelOrders(OrderMatcher matcher, int traderID, Instrument instrument, Side side, List<String> events) {
+        List<Order> canceled = new ArrayList<>();
+        matcher.cancelOrders(traderID, instrument, side, canceled);
+        //the matchers may find a trader's orders in any order
+        List<String> reports = new ArrayList<>();
+        for (Order order : canceled) {
+            reports.add(report(order, ExecType.REMOVE));
+            matcher.release(order);
+        }
+        Collections.sort(reports);
+        events.addAll(reports);
+    }
+
+    private static void addTrade(List<String> events, ExecReportResponse bid, ExecReportResponse offer, TradeMessage trade) {
+        events.add(report(bid));
+        events.add(report(offer));
+        events.add(trade.toString());
+    }
+
+    private static String report(Order order, ExecType execType) {
+        return report(new ExecReportResponse(order, execType));
+    }
+
+    //a report without its timestamp, which differs between the matchers
+    private static String report(ExecReportResponse response) {
+        return response.getOrderID() + " " + response.getTraderID() + " " + response.getSide() + " " + response.getInstrument() + " "
+                + response.getQuantity() + " " + response.getPriceTicks() + " " + response.getStatus() + " " + response.getExecType()
+                + " " + response.getSequence();
+    }
+
+    @Test
+    public void testMatchLoopAllocationBudget() {
+        OrderPool pool = new OrderPool(64);
+        ObjectOrderMatcher matcher = new ObjectOrderMatcher(pool);
+        //resting bids deep enough to keep their levels, and a far offer that keeps the aggressor's order index
+        for (int i = 0; i < 10; i++) {
+            matcher.addOrder(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1_000_000, 999 - i, new Date(), 1), -1 - i);
+        }
+        matcher.addOrder(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 1, 2_000, new Date(), 2), -11);
+        NewOrderRequest offer = new NewOrderRequest(Side.OFFERS, Instrument.BAG, 1, 999, new Date(), 2);
+        NewOrderRequest bid = new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 990, new Date(), 1);
+        Order report = order(0, Side.BIDS, 9_990, 1);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        matchOrders(matcher, offer, bid, 0, 100_000);
+        buildReports(report, 100_000);
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        matchOrders(matcher, offer, bid, 200_000, 100_000);
+        long matchBytes = threads.getCurrentThreadAllocatedBytes() - allocated;
+        allocated = threads.getCurrentThreadAllocatedBytes();
+        buildReports(report, 100_000);
+        long reportBytes = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+        //besides the reports nothing is allocated: the offer opens and closes its price level on the way through
+        //the book with a spare level and a ladder of primitive prices, pooled orders and the indexes add nothing
+        long bytesPerCycle = (matchBytes - reportBytes) / 100_000;
+        Assertions.assertTrue(bytesPerCycle <= 0, bytesPerCycle + " bytes per cycle besides reports");
+        Assertions.assertEquals(10, matcher.getOrderBook(Instrument.BAG).getBids().getLevels().size());
+        Assertions.assertEquals(0, pool.getNumOfAllocated());
+        Assertions.assertEquals(11, matcher.getOrders().size());
+    }
+
+    //a pooled offer trading with the best bid, then a pooled bid that is canceled, as the engine does them
+    private static void matchOrders(OrderMatcher matcher, NewOrderRequest offer, NewOrderRequest bid, int firstOrderID, int numOfCycles) {
+        for (int orderID = firstOrderID; orderID < firstOrderID + 2 * numOfCycles; orderID += 2) {
+            matcher.addOrder(offer, orderID);
+            matcher.match(Instrument.BAG, TestOrderBook::sendTrade);
+            matcher.addOrder(bid, orderID + 1);
+            matcher.release(matcher.cancelOrder(orderID + 1));
+        }
+    }
+
+    //the reports of one fill, built like the matcher builds them
+    private static void buildReports(Order order, int numOfCycles) {
+        for (int i = 0; i < numOfCycles; i++) {
+            sendTrade(new ExecReportResponse(order, ExecType.UPDATE), new ExecReportResponse(order, ExecType.REMOVE),
+                    new TradeMessage(order.getOrderID(), i, order.getPrice(), 1, Instrument.BAG));
+        }
+    }
+
+    //keeps the reports from being optimized away, like sending them would
+    private static void sendTrade(ExecReportResponse bidResponse, ExecReportResponse offerResponse, TradeMessage tradeMessage) {
+        sent[0] = bidResponse;
+        sent[1] = offerResponse;
+        sent[2] = tradeMessage;
+    }
+
+}
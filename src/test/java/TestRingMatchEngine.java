@@ -0,0 +1,155 @@
+import enums.*;
+import messages.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ring.RingBuffer;
+import ring.RingMatchEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestRingMatchEngine {
+
+    //polls the session until it gets a report of the given type
+    private static List<Response> pollUntil(RingMatchEngine.Session session, Class<? extends Response> last) {
+        List<Response> responses = new ArrayList<>();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        for (int attempt = 0; responses.isEmpty() || !last.isInstance(responses.get(responses.size() - 1)); ) {
+            if (session.poll((response, sequence, endOfBatch) -> responses.add(response), 16) == 0) {
+                Assertions.assertTrue(System.nanoTime() < deadline, "no " + last.getSimpleName() + " after " + responses);
+                RingBuffer.idle(attempt++);
+            }
+        }
+        return responses;
+    }
+
+    @Test
+    public void testTradeBetweenSessions() throws Exception {
+        try (RingMatchEngine engine = new RingMatchEngine(64, 16, null)) {
+            engine.start();
+            RingMatchEngine.Session buyer = engine.connect(64);
+            RingMatchEngine.Session seller = engine.connect(64);
+
+            buyer.send(new NewOrderRequest(Side.BIDS, Instrument.BAG, 3, 10, new Date(), 1));
+            List<Response> bidReports = pollUntil(buyer, TransactionComplete.class);
+            ExecReportResponse bidAdded = (ExecReportResponse) bidReports.get(0);
+            Assertions.assertEquals(ExecType.ADD, bidAdded.getExecType());
+
+            //the trader ID belongs to the buyer's session
+            seller.send(new CancelOrderRequest(bidAdded.getOrderID(), 1));
+            ExecReportResponse rejection = (ExecReportResponse) pollUntil(seller, ExecReportResponse.class).get(0);
+            Assertions.assertEquals(RejectionReason.INVALID_TRADER_ID, rejection.getRejectionReason());
+
+            seller.send(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 2, 10, new Date(), 2));
+            List<Response> offerReports = pollUntil(seller, TransactionComplete.class);
+            Assertions.assertEquals(4, offerReports.size());
+            Assertions.assertEquals(ExecType.ADD, ((ExecReportResponse) offerReports.get(0)).getExecType());
+            Assertions.assertEquals(Status.FULLY_EXECUTED, ((ExecReportResponse) offerReports.get(1)).getStatus());
+            Assertions.assertEquals(2, ((TradeMessage) offerReports.get(2)).getTradeQuantity());
+
+            List<Response> fillReports = pollUntil(buyer, TransactionComplete.class);
+            ExecReportResponse bidFilled = (ExecReportResponse) fillReports.get(0);
+            Assertions.assertEquals(Status.PARTFILLED, bidFilled.getStatus());
+            Assertions.assertEquals(1, bidFilled.getQuantity());
+            Assertions.assertInstanceOf(TradeMessage.class, fillReports.get(1));
+
+            //the rest of the bid goes with its session
+            buyer.disconnect();
+            seller.send(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 1, 10, new Date(), 2));
+            Assertions.assertEquals(2, pollUntil(seller, TransactionComplete.class).size());
+        }
+    }
+
+    @Test
+    public void testUnsupportedRequests() throws Exception {
+        try (RingMatchEngine engine = new RingMatchEngine(64, 16, null)) {
+            engine.start();
+            RingMatchEngine.Session session = engine.connect(64);
+
+            session.send(new SubscriptionRequest(1));
+            ExecReportResponse rejection = (ExecReportResponse) pollUntil(session, ExecReportResponse.class).get(0);
+            Assertions.assertEquals(RejectionReason.UNSUPPORTED_REQUEST, rejection.getRejectionReason());
+
+            session.send(new BatchOrderRequest(Arrays.asList(
+                    new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 10, new Date(), 1),
+                    new CancelOrderRequest(0, 1))));
+            List<Response> batchReports = pollUntil(session, TransactionComplete.class);
+            BatchExecReportResponse rejections = (BatchExecReportResponse) batchReports.get(0);
+            Assertions.assertEquals(2, rejections.size());
+            Assertions.assertEquals(RejectionReason.UNSUPPORTED_REQUEST, rejections.get(1).getRejectionReason());
+
+            //the engine thread is still running
+            session.send(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 10, new Date(), 1));
+            List<Response> reports = pollUntil(session, TransactionComplete.class);
+            Assertions.assertEquals(ExecType.ADD, ((ExecReportResponse) reports.get(0)).getExecType());
+            Assertions.assertEquals(0, ((ExecReportResponse) reports.get(0)).getOrderID());
+        }
+    }
+
+    @Test
+    public void testSlowSessionIsDropped() throws Exception {
+        try (RingMatchEngine engine = new RingMatchEngine(64, 16, null)) {
+            engine.start();
+            //room for the ADD and TC of one order only
+            RingMatchEngine.Session slow = engine.connect(2);
+            RingMatchEngine.Session fast = engine.connect(64);
+
+            slow.send(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 10, new Date(), 1));
+            slow.send(new NewOrderRequest(Side.BIDS, Instrument.BAG, 1, 10, new Date(), 1));
+            //the engine didn't wait for the slow session, whose bids went with it
+            fast.send(new NewOrderRequest(Side.OFFERS, Instrument.BAG, 1, 10, new Date(), 2));
+            List<Response> offerReports = pollUntil(fast, TransactionComplete.class);
+            Assertions.assertEquals(2, offerReports.size());
+            Assertions.assertEquals(Status.ACTIVE, ((ExecReportResponse) offerReports.get(0)).getStatus());
+
+            Assertions.assertTrue(slow.isDropped());
+            List<Response> slowReports = pollUntil(slow, TransactionComplete.class);
+            Assertions.assertEquals(2, slowReports.size());
+            Assertions.assertEquals(ExecType.ADD, ((ExecReportResponse) slowReports.get(0)).getExecType());
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        int producers = 4;
+        int ordersPerProducer = 5_000;
+        Set<Integer> orderIDs = ConcurrentHashMap.newKeySet();
+        //a small request ring, so the producers wrap around it and wait for the engine
+        try (RingMatchEngine engine = new RingMatchEngine(16, 4, null)) {
+            engine.start();
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int i = 0; i < producers; i++) {
+                int traderID = i;
+                Thread thread = new Thread(() -> {
+                    try {
+                        RingMatchEngine.Session session = engine.connect(16);
+                        for (int n = 0; n < ordersPerProducer; n++) {
+                            session.send(new NewOrderRequest(Side.BIDS, Instrument.TV, 1, 1, new Date(), traderID));
+                            ExecReportResponse added = (ExecReportResponse) pollUntil(session, TransactionComplete.class).get(0);
+                            Assertions.assertEquals(traderID, added.getTraderID());
+                            orderIDs.add(added.getOrderID());
+                        }
+                        session.disconnect();
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assertions.assertEquals(new ArrayList<>(), failures);
+        }
+        Assertions.assertEquals(producers * ordersPerProducer, orderIDs.size());
+    }
+
+}